@@ -2,12 +2,62 @@ package com.ivan.lab1;
 
 import com.ivan.utils.FileManager;
 import com.ivan.utils.Locale;
+import com.ivan.utils.MonoalphabeticTransform;
+import com.ivan.utils.StreamingTextCipher;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Scanner;
 
 public class CaesarCipher {
 
+    /**
+     * Encrypts a single character using a Caesar cipher with the specified shift.
+     * Each letter is shifted by a fixed number of positions in the alphabet (a-z, A-Z),
+     * wrapping around from 'z' to 'a' (or 'Z' to 'A'). Non-letter characters remain unchanged.
+     *
+     * @param c     the character to encrypt
+     * @param shift the number of positions to shift the letter (positive for forward)
+     * @return the encrypted character
+     */
+    private static char encryptChar(char c, int shift) {
+        if (!Character.isLetter(c)) {
+            return c;
+        }
+        // Set base to 'A' (ASCII 65) for uppercase or 'a' (ASCII 97) for lowercase
+        char base = Character.isUpperCase(c) ? 'A' : 'a';
+        // Calculate encrypted character:
+        // 1. (c - base): Convert to 0-based index (e.g., 'B' - 'A' = 1)
+        // 2. + shift: Apply shift (e.g., shift = 3)
+        // 3. % 26: Wrap around alphabet (modulo 26)
+        // 4. + base: Convert back to ASCII (e.g., 1 + 'A' = 'B')
+        return (char) ((c - base + shift) % 26 + base);
+    }
+
+    /**
+     * Compiles the Caesar encryption with the specified shift into a lookup table.
+     * The per-character rules of {@link #encryptChar(char, int)} are evaluated once per character
+     * value, so the returned transform encrypts any amount of text with one lookup per character.
+     *
+     * @param shift the number of positions to shift each letter (positive for forward)
+     * @return the encryption transform
+     */
+    public static MonoalphabeticTransform encryptor(int shift) {
+        return MonoalphabeticTransform.of(c -> encryptChar((char) c, shift));
+    }
+
+    /**
+     * Compiles the Caesar decryption with the specified shift into a lookup table,
+     * equivalent to encryption with a shift of (26 - shift).
+     *
+     * @param shift the number of positions used for encryption
+     * @return the decryption transform
+     */
+    public static MonoalphabeticTransform decryptor(int shift) {
+        return encryptor(26 - shift);
+    }
+
     /**
      * Encrypts the input text using a Caesar cipher with the specified shift.
      * The Caesar cipher is a substitution cipher where each letter in the plaintext
@@ -19,22 +69,7 @@ public class CaesarCipher {
      * @return the encrypted text with shifted letters
      */
     public static String encrypt(String text, int shift) {
-        StringBuilder result = new StringBuilder();
-        for (char c : text.toCharArray()) {
-            if (Character.isLetter(c)) {
-                // Set base to 'A' (ASCII 65) for uppercase or 'a' (ASCII 97) for lowercase
-                char base = Character.isUpperCase(c) ? 'A' : 'a';
-                // Calculate encrypted character:
-                // 1. (c - base): Convert to 0-based index (e.g., 'B' - 'A' = 1)
-                // 2. + shift: Apply shift (e.g., shift = 3)
-                // 3. % 26: Wrap around alphabet (modulo 26)
-                // 4. + base: Convert back to ASCII (e.g., 1 + 'A' = 'B')
-                result.append((char) ((c - base + shift) % 26 + base));
-            } else {
-                result.append(c);
-            }
-        }
-        return result.toString();
+        return encryptor(shift).apply(text);
     }
 
     /**
@@ -51,7 +86,35 @@ public class CaesarCipher {
     public static String decrypt(String text, int shift) {
         // Decrypt by encrypting with inverse shift:
         // Shift backward by 'shift' → (26 - shift) % 26 (e.g., shift=3 → 23)
-        return encrypt(text, 26 - shift);
+        return decryptor(shift).apply(text);
+    }
+
+    /**
+     * Encrypts a UTF-8 text file of any size with a Caesar cipher, streaming it through bounded buffers.
+     * Unlike {@link #encrypt(String, int)} on a file read with {@link FileManager}, the text is not trimmed
+     * and line endings are kept, so every non-letter byte of the input is written unchanged.
+     *
+     * @param input  the plaintext file
+     * @param output the ciphertext file (created or truncated)
+     * @param shift  the number of positions to shift each letter (positive for forward)
+     * @return the number of bytes processed
+     * @throws IOException if a file cannot be read or written
+     */
+    public static long encryptFile(Path input, Path output, int shift) throws IOException {
+        return StreamingTextCipher.transform(input, output, encryptor(shift));
+    }
+
+    /**
+     * Decrypts a UTF-8 text file of any size encrypted with {@link #encryptFile(Path, Path, int)}.
+     *
+     * @param input  the ciphertext file
+     * @param output the plaintext file (created or truncated)
+     * @param shift  the number of positions used for encryption
+     * @return the number of bytes processed
+     * @throws IOException if a file cannot be read or written
+     */
+    public static long decryptFile(Path input, Path output, int shift) throws IOException {
+        return StreamingTextCipher.transform(input, output, decryptor(shift));
     }
 
     public static void main(String[] args) {
@@ -63,16 +126,18 @@ public class CaesarCipher {
         scanner.nextLine();
 
         try {
-            String inputText = FileManager.readInputFile(Locale.EN);
-            String encryptedText = encrypt(inputText, shift);
+            // The files are streamed, so the input is not limited by the heap and keeps its exact bytes
+            Path input = FileManager.inputPath(Locale.EN);
+            Path encrypted = FileManager.resourcePath(FileManager.OUTPUT_FILE);
+            Path decrypted = FileManager.resourcePath(FileManager.DECRYPTED_FILE);
 
-            FileManager.writeOutputFile(encryptedText);
-            System.out.println("Encrypted text is saved to encrypted.txt");
+            long size = encryptFile(input, encrypted, shift);
+            System.out.println("Encrypted text is saved to encrypted.txt (" + size + " bytes)");
 
             System.out.println("\nDecrypting file: encrypted.txt...");
-            String decryptedText = decrypt(encryptedText, shift);
-            System.out.println("Decrypted text:");
-            System.out.println(decryptedText);
+            decryptFile(encrypted, decrypted, shift);
+            System.out.println("Decrypted text is saved to decrypted.txt");
+            System.out.println("Decrypted file matches input: " + (Files.mismatch(input, decrypted) == -1));
 
         } catch (IOException e) {
             System.out.println("Error: " + e.getMessage());
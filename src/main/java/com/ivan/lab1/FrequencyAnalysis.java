@@ -3,8 +3,6 @@ package com.ivan.lab1;
 import com.ivan.utils.FileManager;
 
 import java.io.IOException;
-import java.util.*;
-import java.util.stream.Collectors;
 
 public class FrequencyAnalysis {
 
@@ -15,60 +13,50 @@ public class FrequencyAnalysis {
             'v', 'k', 'j', 'x', 'q', 'z'
     };
 
+    // Expected letter probabilities of English text, in alphabet order
+    private static final double[] ENGLISH_PROBABILITIES =
+            FrequencyAnalyzer.toProbabilities(FrequencyAnalyzer.englishPercentages());
+
+    // Number of bigrams and trigrams to print
+    private static final int TOP_NGRAMS = 10;
+
     public static void main(String[] args) {
         try {
             String encryptedText = FileManager.readEncryptedFile();
 
-            // Clean text by:
-            // 1. Converting to lowercase (e.g., 'A' → 'a')
-            // 2. Filtering letters only (a-z)
-            // 3. Converting codes to strings
-            // 4. Joining into a single string
-            String cleanText = encryptedText.toLowerCase()
-                    .chars()
-                    .filter(Character::isLetter)
-                    .mapToObj(ch -> String.valueOf((char) ch))
-                    .collect(Collectors.joining());
-
-            Map<Character, Integer> frequencyMap = new HashMap<>();
-            // Initialize map with all letters (a-z) set to 0
-            for (char c = 'a'; c <= 'z'; c++) {
-                frequencyMap.put(c, 0);
-            }
-
-            int totalChars = 0;
-            for (char c : cleanText.toCharArray()) {
-                frequencyMap.put(c, frequencyMap.get(c) + 1);
-                totalChars++;
-            }
-
-            List<Map.Entry<Character, Integer>> sortedEntries = new LinkedList<>(frequencyMap.entrySet());
-            // Sort by frequency descending (higher counts first)
-            sortedEntries.sort((e1, e2) -> e2.getValue().compareTo(e1.getValue()));
+            // Count letters, bigrams and trigrams in primitive counters (case-insensitive, letters only)
+            FrequencyAnalyzer.Counts counts = FrequencyAnalyzer.LATIN.count(encryptedText);
+            long totalChars = counts.getLetterCount();
+            // Alphabet indices sorted by frequency descending (higher counts first)
+            int[] ranked = counts.rankedLetters();
 
             System.out.println("Frequency analysis:");
             System.out.printf("%-10s%-10s%-10s%n", "Character", "Count", "Frequency (%)");
             System.out.println("-".repeat(30));
-            for (Map.Entry<Character, Integer> entry : sortedEntries) {
-                int count = entry.getValue();
+            for (int letter : ranked) {
+                long count = counts.getUnigramCount(letter);
                 if (count > 0) {
                     // Calculate percentage: (count / total) * 100
                     double frequency = (double) count / totalChars * 100;
-                    System.out.printf("%-10c%-10d%.2f%n", entry.getKey(), count, frequency);
+                    System.out.printf("%-10c%-10d%.2f%n", FrequencyAnalyzer.LATIN.letter(letter), count, frequency);
                 }
             }
+            printTopNGrams("bigrams", counts.topBigrams(TOP_NGRAMS), 2, counts);
+            printTopNGrams("trigrams", counts.topTrigrams(TOP_NGRAMS), 3, counts);
 
-            if (totalChars > 0 && !sortedEntries.isEmpty()) {
-                char mostFrequentChar = sortedEntries.get(0).getKey();
-                // Estimate shift:
-                // 1. (mostFrequentChar - 'e'): Difference in ASCII (e.g., 'i' - 'e' = 4)
-                // 2. + 26: Avoid negative values
-                // 3. % 26: Wrap around alphabet
-                int probableShift = (mostFrequentChar - ENGLISH_FREQUENCY[0] + 26) % 26;
+            if (totalChars > 0) {
+                char mostFrequentChar = FrequencyAnalyzer.LATIN.letter(ranked[0]);
+                // Score every shift by chi-squared against English letter frequencies,
+                // which stays reliable on short or skewed texts where the single most frequent letter misleads
+                int[] shifts = counts.rankShifts(ENGLISH_PROBABILITIES);
+                int probableShift = shifts[0];
 
                 System.out.println("\nShift analysis:");
                 System.out.println("Most frequent character in the text: " + mostFrequentChar);
                 System.out.println("Most frequent character in English: " + ENGLISH_FREQUENCY[0]);
+                System.out.println("Shift by most frequent character: " + (mostFrequentChar - ENGLISH_FREQUENCY[0] + 26) % 26);
+                System.out.println("Best shifts by chi-squared: " + formatShift(counts, shifts[0]) + "; "
+                        + formatShift(counts, shifts[1]) + "; " + formatShift(counts, shifts[2]));
                 System.out.println("Probable shift: " + probableShift);
 
                 String decryptedText = CaesarCipher.decrypt(encryptedText, probableShift);
@@ -82,4 +70,28 @@ public class FrequencyAnalysis {
             System.out.println("Error working with files: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    private static String formatShift(FrequencyAnalyzer.Counts counts, int shift) {
+        return String.format("a=1, b=%d, score=%.2f", shift, counts.chiSquared(ENGLISH_PROBABILITIES, 1, shift));
+    }
+
+    /**
+     * Prints the most frequent n-grams with their counts on one line.
+     *
+     * @param name   the n-gram name for the label
+     * @param codes  the n-gram codes, most frequent first
+     * @param length the n-gram length (2 or 3)
+     * @param counts the counts the codes were selected from
+     */
+    private static void printTopNGrams(String name, int[] codes, int length, FrequencyAnalyzer.Counts counts) {
+        if (codes.length == 0) {
+            return;
+        }
+        StringBuilder line = new StringBuilder("Most frequent " + name + ":");
+        long[] all = length == 2 ? counts.getBigrams() : counts.getTrigrams();
+        for (int code : codes) {
+            line.append(' ').append(FrequencyAnalyzer.LATIN.format(code, length)).append('(').append(all[code]).append(')');
+        }
+        System.out.println(line);
+    }
+}
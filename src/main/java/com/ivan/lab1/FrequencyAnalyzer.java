@@ -0,0 +1,540 @@
+package com.ivan.lab1;
+
+import com.ivan.utils.Alphabet;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+/**
+ * Letter, bigram and trigram frequency counter over a fixed alphabet.
+ * <p>
+ * Characters are mapped to alphabet indices through a case-insensitive {@link Alphabet}, and the
+ * counts are kept in primitive arrays indexed by the n-gram code (a * m + b for bigrams,
+ * (a * m + b) * m + c for trigrams). Characters outside the alphabet are skipped, so n-grams are
+ * counted over the letter-only stream, as in {@link FrequencyAnalysis}.
+ * Partial counts of consecutive chunks can be merged, which lets files of any size be counted in
+ * parallel ranges with the n-grams that cross range boundaries restored on merge.
+ */
+public final class FrequencyAnalyzer {
+    /**
+     * The 26-letter Latin alphabet of lab1 and lab2.
+     */
+    public static final FrequencyAnalyzer LATIN = new FrequencyAnalyzer(Alphabet.LATIN_SMALL);
+    /**
+     * The 33-letter Ukrainian alphabet (with ґ).
+     */
+    public static final FrequencyAnalyzer UKRAINIAN = new FrequencyAnalyzer(Alphabet.UKRAINIAN_SMALL);
+
+    // Letter frequencies of English text in percent, in the order of LATIN
+    private static final double[] ENGLISH_PERCENTAGES = {
+            8.167, 1.492, 2.782, 4.253, 12.702, 2.228, 2.015, 6.094, 6.966, 0.153, 0.772, 4.025, 2.406,
+            6.749, 7.507, 1.929, 0.095, 5.987, 6.327, 9.056, 2.758, 0.978, 2.360, 0.150, 1.974, 0.074
+    };
+
+    // Size of the file ranges decoded at once by one worker
+    private static final int MAP_WINDOW = 16 * 1024 * 1024;
+    // Files smaller than this are counted by a single worker
+    private static final long PARALLEL_THRESHOLD = 1024 * 1024;
+    private static final int RANGES_PER_THREAD = 4;
+    private static final int CHAR_BUFFER_SIZE = 8192;
+
+    // Folds both cases of a letter to its index
+    private final Alphabet alphabet;
+
+    /**
+     * Creates an analyzer for the given alphabet.
+     *
+     * @param alphabet the letters in alphabet order; each is counted together with its other case
+     */
+    public FrequencyAnalyzer(Alphabet alphabet) {
+        this.alphabet = alphabet.ignoringCase();
+    }
+
+    /**
+     * @return the letter frequencies of English text in percent, in the order of {@link #LATIN}
+     */
+    public static double[] englishPercentages() {
+        return ENGLISH_PERCENTAGES.clone();
+    }
+
+    /**
+     * Scales letter frequencies so that they sum to 1.
+     *
+     * @param percentages the letter frequencies in any unit, in alphabet order
+     * @return the letter probabilities
+     */
+    public static double[] toProbabilities(double[] percentages) {
+        double total = 0;
+        for (double percentage : percentages) {
+            total += percentage;
+        }
+        double[] probabilities = new double[percentages.length];
+        for (int i = 0; i < percentages.length; i++) {
+            probabilities[i] = percentages[i] / total;
+        }
+        return probabilities;
+    }
+
+    /**
+     * @return the number of letters m
+     */
+    public int size() {
+        return alphabet.size();
+    }
+
+    /**
+     * @param i the alphabet index (0 to m - 1)
+     * @return the letter as given in the alphabet
+     */
+    public char letter(int i) {
+        return alphabet.charAt(i);
+    }
+
+    /**
+     * @param c any character
+     * @return the alphabet index of the character, or -1 if it is not a letter of the alphabet
+     */
+    public int indexOf(char c) {
+        return alphabet.indexOf(c);
+    }
+
+    /**
+     * Formats an n-gram code as letters.
+     *
+     * @param code   the n-gram code (a * m + b for bigrams)
+     * @param length the n-gram length (1, 2 or 3)
+     * @return the letters of the n-gram
+     */
+    public String format(int code, int length) {
+        char[] text = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            text[i] = alphabet.charAt(code % alphabet.size());
+            code /= alphabet.size();
+        }
+        return new String(text);
+    }
+
+    /**
+     * @return empty counts for this alphabet, ready for {@link Counts#update(char[], int, int)}
+     */
+    public Counts newCounts() {
+        return new Counts(this);
+    }
+
+    /**
+     * Counts the letters and n-grams of a text.
+     *
+     * @param text the text
+     * @return the counts
+     */
+    public Counts count(CharSequence text) {
+        Counts counts = newCounts();
+        char[] buffer = new char[Math.min(CHAR_BUFFER_SIZE, Math.max(1, text.length()))];
+        for (int start = 0; start < text.length(); start += buffer.length) {
+            int end = Math.min(text.length(), start + buffer.length);
+            for (int i = start; i < end; i++) {
+                buffer[i - start] = text.charAt(i);
+            }
+            counts.update(buffer, 0, end - start);
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the letters and n-grams of a character stream of any length, one buffer at a time.
+     *
+     * @param reader the stream to read until its end (not closed)
+     * @return the counts
+     * @throws IOException if the stream cannot be read
+     */
+    public Counts count(Reader reader) throws IOException {
+        Counts counts = newCounts();
+        char[] buffer = new char[CHAR_BUFFER_SIZE];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            counts.update(buffer, 0, read);
+        }
+        return counts;
+    }
+
+    /**
+     * Counts a UTF-8 file on the common fork-join pool.
+     *
+     * @param file the UTF-8 text file
+     * @return the counts
+     * @throws IOException if the file cannot be read
+     */
+    public Counts countFile(Path file) throws IOException {
+        return countFile(file, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Counts a UTF-8 file of any size. The file is split into byte ranges that start on character
+     * boundaries; every worker decodes its range through memory-mapped windows, and the partial counts
+     * are merged in file order.
+     *
+     * @param file the UTF-8 text file
+     * @param pool the pool that counts the ranges
+     * @return the counts
+     * @throws IOException if the file cannot be read
+     */
+    public Counts countFile(Path file, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int parts = size < PARALLEL_THRESHOLD ? 1 : pool.getParallelism() * RANGES_PER_THREAD;
+            long rangeSize = (size + parts - 1) / parts;
+
+            List<Callable<Counts>> tasks = new ArrayList<>();
+            long start = 0;
+            while (start < size) {
+                long end = alignToCharacter(channel, Math.min(size, start + rangeSize), size);
+                long rangeStart = start;
+                tasks.add(() -> countRange(channel, rangeStart, end, size));
+                start = end;
+            }
+
+            Counts counts = newCounts();
+            try {
+                for (Future<Counts> result : pool.invokeAll(tasks)) {
+                    counts.merge(result.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Frequency analysis interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IllegalStateException("Frequency analysis failed", e.getCause());
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Decodes and counts the bytes [from, to) of the file; both ends are character boundaries.
+     */
+    private Counts countRange(FileChannel channel, long from, long to, long size) throws IOException {
+        Counts counts = newCounts();
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+        long windowStart = from;
+        while (windowStart < to) {
+            long windowEnd = alignToCharacter(channel, Math.min(to, windowStart + MAP_WINDOW), size);
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+            decoder.reset();
+            CoderResult result;
+            do {
+                result = decoder.decode(bytes, chars, true);
+                counts.update(chars.array(), 0, chars.position());
+                chars.clear();
+            } while (result.isOverflow());
+            decoder.flush(chars);
+            counts.update(chars.array(), 0, chars.position());
+            chars.clear();
+            windowStart = windowEnd;
+        }
+        return counts;
+    }
+
+    /**
+     * Moves a position forward past UTF-8 continuation bytes (10xxxxxx), so it starts a character.
+     */
+    private static long alignToCharacter(FileChannel channel, long position, long size) throws IOException {
+        if (position >= size) {
+            return size;
+        }
+        ByteBuffer probe = ByteBuffer.allocate(4);
+        channel.read(probe, position);
+        for (int i = 0; i < probe.position(); i++) {
+            if ((probe.get(i) & 0xC0) != 0x80) {
+                return position + i;
+            }
+        }
+        return Math.min(size, position + probe.position());
+    }
+
+    /**
+     * Letter, bigram and trigram counts of a stream of text over one alphabet.
+     * <p>
+     * {@link #update(char[], int, int)} continues the stream, so n-grams that span two updates are counted.
+     * {@link #merge(Counts)} appends the counts of the text that directly follows this one, using the first
+     * and last two letters of both parts to count the n-grams across the boundary.
+     */
+    public static final class Counts {
+        private final FrequencyAnalyzer analyzer;
+        private final int m;
+        private final long[] unigrams;
+        private final long[] bigrams;
+        private final long[] trigrams;
+        private long letterCount;
+        // First two and last two letter indices of the counted text, -1 while there are fewer letters
+        private int first = -1;
+        private int second = -1;
+        private int beforeLast = -1;
+        private int last = -1;
+
+        private Counts(FrequencyAnalyzer analyzer) {
+            this.analyzer = analyzer;
+            this.m = analyzer.size();
+            this.unigrams = new long[m];
+            this.bigrams = new long[m * m];
+            this.trigrams = new long[m * m * m];
+        }
+
+        /**
+         * Counts {@code length} characters of {@code text} as the continuation of the text counted so far.
+         *
+         * @param text   the characters
+         * @param offset the first character to count
+         * @param length the number of characters
+         */
+        public void update(char[] text, int offset, int length) {
+            Alphabet alphabet = analyzer.alphabet;
+            int p2 = beforeLast;
+            int p1 = last;
+            long counted = 0;
+            for (int i = offset, end = offset + length; i < end; i++) {
+                int letter = alphabet.indexOf(text[i]);
+                if (letter < 0) {
+                    continue;
+                }
+                unigrams[letter]++;
+                if (p1 >= 0) {
+                    int pair = p1 * m + letter;
+                    bigrams[pair]++;
+                    if (p2 >= 0) {
+                        trigrams[p2 * m * m + pair]++;
+                    }
+                }
+                if (letterCount + counted < 2) {
+                    if (letterCount + counted == 0) {
+                        first = letter;
+                    } else {
+                        second = letter;
+                    }
+                }
+                counted++;
+                p2 = p1;
+                p1 = letter;
+            }
+            letterCount += counted;
+            beforeLast = p2;
+            last = p1;
+        }
+
+        /**
+         * Adds the counts of the text that directly follows the text of these counts.
+         *
+         * @param next the counts of the following text, over the same alphabet
+         * @return these counts
+         */
+        public Counts merge(Counts next) {
+            if (next.m != m) {
+                throw new IllegalArgumentException("Counts are over different alphabets");
+            }
+            // N-grams across the boundary
+            if (letterCount > 0 && next.letterCount > 0) {
+                bigrams[last * m + next.first]++;
+                if (letterCount > 1) {
+                    trigrams[(beforeLast * m + last) * m + next.first]++;
+                }
+                if (next.letterCount > 1) {
+                    trigrams[(last * m + next.first) * m + next.second]++;
+                }
+            }
+            add(unigrams, next.unigrams);
+            add(bigrams, next.bigrams);
+            add(trigrams, next.trigrams);
+
+            if (letterCount == 0) {
+                first = next.first;
+                second = next.second;
+            } else if (letterCount == 1) {
+                second = next.first;
+            }
+            if (next.letterCount == 1) {
+                beforeLast = last;
+                last = next.last;
+            } else if (next.letterCount > 1) {
+                beforeLast = next.beforeLast;
+                last = next.last;
+            }
+            letterCount += next.letterCount;
+            return this;
+        }
+
+        private static void add(long[] target, long[] source) {
+            for (int i = 0; i < target.length; i++) {
+                target[i] += source[i];
+            }
+        }
+
+        public FrequencyAnalyzer getAnalyzer() {
+            return analyzer;
+        }
+
+        /**
+         * @return the number of counted letters
+         */
+        public long getLetterCount() {
+            return letterCount;
+        }
+
+        public long getUnigramCount(int a) {
+            return unigrams[a];
+        }
+
+        public long getBigramCount(int a, int b) {
+            return bigrams[a * m + b];
+        }
+
+        public long getTrigramCount(int a, int b, int c) {
+            return trigrams[(a * m + b) * m + c];
+        }
+
+        /**
+         * @return the letter counts by alphabet index
+         */
+        public long[] getUnigrams() {
+            return unigrams.clone();
+        }
+
+        /**
+         * @return the bigram counts by code a * m + b
+         */
+        public long[] getBigrams() {
+            return bigrams.clone();
+        }
+
+        /**
+         * @return the trigram counts by code (a * m + b) * m + c
+         */
+        public long[] getTrigrams() {
+            return trigrams.clone();
+        }
+
+        /**
+         * @param a the alphabet index
+         * @return the relative frequency of the letter (0 for an empty text)
+         */
+        public double frequency(int a) {
+            return letterCount == 0 ? 0 : (double) unigrams[a] / letterCount;
+        }
+
+        /**
+         * Pearson's chi-squared of these counts read through an affine key.
+         * The algorithm takes plaintext letter x to appear as ciphertext letter y = (a * x + b) mod m and
+         * sums (observed - expected)^2 / expected over x, where the expected count is the letter count
+         * times the probability of x. With a = 1 the key is the Caesar shift b.
+         *
+         * @param probabilities the expected letter probabilities of the plaintext, in alphabet order
+         * @param a             the multiplicative key (1 for a Caesar shift)
+         * @param b             the additive key
+         * @return the score; lower is a better fit
+         */
+        public double chiSquared(double[] probabilities, int a, int b) {
+            if (probabilities.length != m) {
+                throw new IllegalArgumentException("Expected " + m + " letter probabilities");
+            }
+            double total = letterCount;
+            double score = 0;
+            int step = Math.floorMod(a, m);
+            for (int x = 0, y = Math.floorMod(b, m); x < m; x++, y = (y + step) % m) {
+                long observed = unigrams[y];
+                double expected = total * probabilities[x];
+                score += expected == 0 ? 0 : (observed - expected) * (observed - expected) / expected;
+            }
+            return score;
+        }
+
+        /**
+         * @param probabilities the expected letter probabilities of the plaintext, in alphabet order
+         * @return all m Caesar shifts ordered by {@link #chiSquared(double[], int, int)}, best first;
+         * ties keep the smaller shift
+         */
+        public int[] rankShifts(double[] probabilities) {
+            double[] scores = new double[m];
+            for (int shift = 0; shift < m; shift++) {
+                scores[shift] = chiSquared(probabilities, 1, shift);
+            }
+            return IntStream.range(0, m).boxed()
+                    .sorted(Comparator.comparingDouble(shift -> scores[shift]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+
+        /**
+         * @return the alphabet indices ordered by count, most frequent first; ties keep alphabet order
+         */
+        public int[] rankedLetters() {
+            return topCodes(unigrams, m);
+        }
+
+        /**
+         * @param limit the maximum number of bigrams
+         * @return the codes of the most frequent bigrams that occur at least once, most frequent first
+         */
+        public int[] topBigrams(int limit) {
+            return topCodes(bigrams, limit);
+        }
+
+        /**
+         * @param limit the maximum number of trigrams
+         * @return the codes of the most frequent trigrams that occur at least once, most frequent first
+         */
+        public int[] topTrigrams(int limit) {
+            return topCodes(trigrams, limit);
+        }
+
+        /**
+         * Selects the {@code limit} largest counts by insertion into a small sorted prefix.
+         * For unigrams zero counts are kept, so every letter is ranked.
+         */
+        private int[] topCodes(long[] counts, int limit) {
+            boolean keepZero = counts == unigrams;
+            int[] top = new int[Math.max(0, Math.min(limit, counts.length))];
+            if (top.length == 0) {
+                return top;
+            }
+            int size = 0;
+            for (int code = 0; code < counts.length; code++) {
+                long count = counts[code];
+                if (count == 0 && !keepZero) {
+                    continue;
+                }
+                if (size == top.length && counts[top[size - 1]] >= count) {
+                    continue;
+                }
+                int position = size < top.length ? size++ : size - 1;
+                while (position > 0 && counts[top[position - 1]] < count) {
+                    top[position] = top[position - 1];
+                    position--;
+                }
+                top[position] = code;
+            }
+            return Arrays.copyOf(top, size);
+        }
+    }
+}
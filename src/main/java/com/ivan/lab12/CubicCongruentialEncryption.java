@@ -1,68 +1,178 @@
 package com.ivan.lab12;
 
 import com.ivan.utils.FileManager;
+import com.ivan.utils.KeyStreamSource;
+import com.ivan.utils.StreamingFileCipher;
+
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.Arrays;
 
 public class CubicCongruentialEncryption {
     private static final long KEY_SIZE_BYTES = 12_600_000; // 100 Mbit = 12.5 MB
     private static final int BUFFER_SIZE = 8192; // 8 KB buffer for file operations
-    private static final long MODULUS = 4294967291L; // Large prime number (2^32 - 5)
-    private static final long A = 12345L; // Coefficients for CCG
-    private static final long B = 67890L;
-    private static final long C = 54321L;
-    private static final long D = 98765L;
+    private static final byte[] SEED_MAGIC = {'C', 'C', 'G', '2'}; // Seed file for CubicCongruentialGenerator
+    private static final int DEFAULT_BYTES_PER_STEP = 4;
 
     /**
-     * Cubic Congruential Generator to produce pseudorandom sequence.
+     * Reads a key file one buffer at a time and repeats it cyclically, so the key is never loaded whole.
+     * A text key ("0" and "1") is decoded eight characters per byte while reading.
      */
-    private static class CCG {
-        private long state;
+    private static class KeyFileStream implements KeyStreamSource, Closeable {
+        private final FileChannel channel;
+        private final boolean isText;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        KeyFileStream(String keyFilePath, boolean isText) throws IOException {
+            this.channel = FileChannel.open(Paths.get(keyFilePath), StandardOpenOption.READ);
+            this.isText = isText;
+            buffer.flip(); // Start empty, the first read fills it
+        }
+
+        /**
+         * Makes sure the buffer has data, rewinding to the start of the key file at its end.
+         */
+        private void fill() {
+            if (buffer.hasRemaining()) {
+                return;
+            }
+            try {
+                buffer.clear();
+                if (channel.read(buffer) <= 0) {
+                    channel.position(0);
+                    if (channel.read(buffer) <= 0) {
+                        throw new IllegalArgumentException("Key file is empty");
+                    }
+                }
+                buffer.flip();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
 
-        public CCG(long seed) {
-            this.state = seed;
+        @Override
+        public void generateKeyStream(byte[] keyStream, int offset, int length) {
+            int end = offset + length;
+            while (offset < end) {
+                if (isText) {
+                    int value = 0;
+                    for (int bit = 0; bit < 8; bit++) {
+                        fill();
+                        int digit = buffer.get() - '0';
+                        if ((digit & ~1) != 0) {
+                            throw new IllegalArgumentException("Text key file must contain only '0' and '1'");
+                        }
+                        value = (value << 1) | digit;
+                    }
+                    keyStream[offset++] = (byte) value;
+                } else {
+                    fill();
+                    int count = Math.min(buffer.remaining(), end - offset);
+                    buffer.get(keyStream, offset, count);
+                    offset += count;
+                }
+            }
         }
 
-        public byte nextByte() {
-            // Cubic congruential formula: x_{n+1} = (a*x_n^3 + b*x_n^2 + c*x_n + d) mod m
-            state = (A * state % MODULUS * state % MODULUS * state % MODULUS +
-                     B * state % MODULUS * state % MODULUS +
-                     C * state + D) % MODULUS;
-            return (byte) (state & 0b11111111); // Take least significant byte
+        @Override
+        public void close() throws IOException {
+            channel.close();
         }
     }
 
     /**
      * Generates a pseudorandom key of 100 Mbit (12.5 MB) using CCG and saves it to a file.
+     * The key is written one buffer at a time, so it is never held in memory.
      * @param keyFilePath Path to save the key file
      * @param asText If true, saves as text ("0" and "1"); if false, saves as binary
      */
     public static void generateKey(String keyFilePath, boolean asText) throws IOException {
-        CCG generator = new CCG(System.currentTimeMillis()); // Seed with current time
-        byte[] key = new byte[(int) KEY_SIZE_BYTES];
+        // Seed with current time
+        CubicCongruentialGenerator generator =
+                new CubicCongruentialGenerator(System.currentTimeMillis(), DEFAULT_BYTES_PER_STEP);
+        byte[] key = new byte[BUFFER_SIZE];
+        byte[] text = new byte[BUFFER_SIZE * 8];
 
-        // Generate key using CCG
-        for (int i = 0; i < KEY_SIZE_BYTES; i++) {
-            key[i] = generator.nextByte();
+        try (OutputStream out = new FileOutputStream(keyFilePath)) {
+            for (long written = 0; written < KEY_SIZE_BYTES; written += BUFFER_SIZE) {
+                int length = (int) Math.min(BUFFER_SIZE, KEY_SIZE_BYTES - written);
+                generator.generateKeyStream(key, 0, length);
+                if (asText) {
+                    // Convert binary to text ("0" and "1")
+                    out.write(text, 0, toBinaryText(key, length, text));
+                } else {
+                    out.write(key, 0, length);
+                }
+            }
         }
+    }
 
-        if (asText) {
-            // Convert binary to text ("0" and "1")
-            StringBuilder binaryString = new StringBuilder((int) KEY_SIZE_BYTES * 8);
-            for (byte b : key) {
-                for (int i = 7; i >= 0; i--) {
-                    binaryString.append((b >> i) & 1);
-                }
+    /**
+     * Generates a random seed and saves it as a seed key file (a few bytes instead of a 12.5 MB key).
+     * The CCG keystream is regenerated from the seed by {@link #encryptFile(String, String, String)}.
+     * @param seedFilePath Path to save the seed file
+     * @return the generated seed
+     */
+    public static long generateSeedKey(String seedFilePath) throws IOException {
+        return generateSeedKey(seedFilePath, DEFAULT_BYTES_PER_STEP);
+    }
+
+    /**
+     * Generates a random seed and saves it as a seed key file for {@link CubicCongruentialGenerator}.
+     * @param seedFilePath Path to save the seed file
+     * @param bytesPerStep Number of generator state bytes used per step (1 to 4)
+     * @return the generated seed
+     */
+    public static long generateSeedKey(String seedFilePath, int bytesPerStep) throws IOException {
+        long seed = new SecureRandom().nextLong();
+        new CubicCongruentialGenerator(seed, bytesPerStep); // Validates bytesPerStep
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(seedFilePath))) {
+            out.write(SEED_MAGIC);
+            out.writeLong(seed);
+            out.writeByte(bytesPerStep);
+        }
+        return seed;
+    }
+
+    /**
+     * Reads a seed key file ("CCG2", seed and bytes per step) and creates its {@link CubicCongruentialGenerator}.
+     * @param seedFilePath Path to the seed file
+     * @return the keystream positioned at its start
+     */
+    private static KeyStreamSource openSeedKey(String seedFilePath) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(seedFilePath))) {
+            byte[] magic = new byte[SEED_MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, SEED_MAGIC)) {
+                throw new IllegalArgumentException("Not a CCG seed file: " + seedFilePath);
             }
-            FileManager.writeLargeFile(keyFilePath, binaryString.toString());
-        } else {
-            // Save as binary
-            FileManager.writeLargeBinaryFile(keyFilePath, key);
+            long seed = in.readLong();
+            return new CubicCongruentialGenerator(seed, in.readUnsignedByte());
         }
     }
 
+    /**
+     * Encrypts or decrypts a file of any length using XOR with a CCG keystream regenerated from a seed file.
+     * The keystream is produced block by block while the file is streamed, so memory use does not depend
+     * on the file size. Encryption and decryption are the same operation.
+     * @param inputFilePath Path to the input file
+     * @param seedFilePath Path to the seed file (see {@link #generateSeedKey(String)})
+     * @param outputFilePath Path to save the output file
+     * @return the number of bytes processed
+     */
+    public static long encryptFile(String inputFilePath, String seedFilePath, String outputFilePath)
+            throws IOException {
+        return StreamingFileCipher.transform(inputFilePath, outputFilePath, openSeedKey(seedFilePath));
+    }
+
     /**
      * Encrypts or decrypts a file using XOR with a key file generated by CCG.
+     * The key file is read in chunks alongside the input instead of being loaded whole.
      * @param inputFilePath Path to the input file (100 Mbit)
      * @param keyFilePath Path to the key file (binary or text)
      * @param outputFilePath Path to save the output file
@@ -72,57 +182,61 @@ public class CubicCongruentialEncryption {
     public static void encryptFile(String inputFilePath, String keyFilePath,
                                    String outputFilePath, boolean keyIsText,
                                    boolean asTextOutput) throws IOException {
-        // Read key
-        byte[] keyBytes = FileManager.readLargeBinaryFile(keyFilePath);
-        if (keyIsText) {
-            String keyText = FileManager.readLargeFile(keyFilePath);
-            if (keyText.length() != KEY_SIZE_BYTES * 8) {
-                throw new IllegalArgumentException("Text key file must contain exactly 100 Mbit");
-            }
-            keyBytes = new byte[(int) KEY_SIZE_BYTES];
-            for (int i = 0; i < KEY_SIZE_BYTES; i++) {
-                String byteString = keyText.substring(i * 8, (i + 1) * 8);
-                keyBytes[i] = (byte) Integer.parseInt(byteString, 2);
-            }
+        if (keyIsText && Files.size(Paths.get(keyFilePath)) != KEY_SIZE_BYTES * 8) {
+            throw new IllegalArgumentException("Text key file must contain exactly 100 Mbit");
         }
-        
+
         // Validate input file size (100 Mbit = 12.5 MB)
         File inputFile = new File(inputFilePath);
         if (inputFile.length() != KEY_SIZE_BYTES) {
             throw new IllegalArgumentException("Input file must be exactly 100 Mbit (12.5 MB)");
         }
 
-        // Process file with XOR
-        try (FileInputStream fis = new FileInputStream(inputFile);
-             OutputStream fos = asTextOutput ? new FileOutputStream(outputFilePath) : new FileOutputStream(outputFilePath)) {
-            byte[] buffer = new byte[BUFFER_SIZE];
-            int keyIndex = 0;
-            int bytesRead;
-
-            while ((bytesRead = fis.read(buffer)) != -1) {
-                // XOR with key
-                for (int i = 0; i < bytesRead; i++) {
-                    buffer[i] = (byte) (buffer[i] ^ keyBytes[keyIndex]);
-                    keyIndex = (keyIndex + 1) % keyBytes.length;
-                }
+        try (KeyFileStream key = new KeyFileStream(keyFilePath, keyIsText)) {
+            if (!asTextOutput) {
+                // Binary output: stream through memory-mapped windows, repeating the key cyclically
+                StreamingFileCipher.transform(inputFilePath, outputFilePath, key);
+                return;
+            }
 
-                if (asTextOutput) {
-                    // Convert to text ("0" and "1")
-                    StringBuilder binaryString = new StringBuilder(bytesRead * 8);
+            // Process file with XOR
+            try (FileInputStream fis = new FileInputStream(inputFile);
+                 OutputStream fos = new FileOutputStream(outputFilePath)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                byte[] keyStream = new byte[BUFFER_SIZE];
+                byte[] text = new byte[BUFFER_SIZE * 8];
+                int bytesRead;
+
+                while ((bytesRead = fis.read(buffer)) != -1) {
+                    // XOR with key
+                    key.generateKeyStream(keyStream, 0, bytesRead);
                     for (int i = 0; i < bytesRead; i++) {
-                        for (int j = 7; j >= 0; j--) {
-                            binaryString.append((buffer[i] >> j) & 1);
-                        }
+                        buffer[i] = (byte) (buffer[i] ^ keyStream[i]);
                     }
-                    fos.write(binaryString.toString().getBytes(StandardCharsets.UTF_8));
-                } else {
-                    // Write binary output
-                    fos.write(buffer, 0, bytesRead);
+
+                    // Convert to text ("0" and "1")
+                    fos.write(text, 0, toBinaryText(buffer, bytesRead, text));
                 }
             }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
     }
 
+    /**
+     * Writes each of the first {@code length} bytes as eight ASCII characters '0' and '1', most significant bit first.
+     * @return the number of characters written
+     */
+    private static int toBinaryText(byte[] bytes, int length, byte[] text) {
+        int position = 0;
+        for (int i = 0; i < length; i++) {
+            for (int j = 7; j >= 0; j--) {
+                text[position++] = (byte) ('0' + ((bytes[i] >> j) & 1));
+            }
+        }
+        return position;
+    }
+
     public static void main(String[] args) throws IOException {
         // Generate key
         generateKey("key.bin", false);
@@ -131,5 +245,10 @@ public class CubicCongruentialEncryption {
         // Encrypt and decrypt
         FileManager.writeLargeBinaryFile("input.bin", new byte[(int) KEY_SIZE_BYTES]); // Dummy input
         encryptFile("input.bin", "key.bin", "encrypted.bin", false, false); // Encrypt to binary
+
+        // Seed key: the keystream is regenerated on the fly, input may have any length
+        generateSeedKey("key.seed");
+        encryptFile("input.bin", "key.seed", "encrypted-seed.bin");
+        encryptFile("encrypted-seed.bin", "key.seed", "decrypted-seed.bin");
     }
 }
\ No newline at end of file
@@ -0,0 +1,137 @@
+package com.ivan.lab12;
+
+import com.ivan.utils.KeyStreamSource;
+
+/**
+ * Cubic congruential generator x_{n+1} = (a*x_n^3 + b*x_n^2 + c*x_n + d) mod p with p = 2^32 - 5.
+ * <p>
+ * The polynomial is evaluated by Horner's rule, ((a*x + b)*x + c)*x + d, so every intermediate
+ * product is a 32-bit residue times a 32-bit state and fits into an unsigned 64-bit long.
+ * Because p is a pseudo-Mersenne prime (2^32 ≡ 5 mod p), each product is reduced with two folds
+ * hi*5 + lo and a single conditional subtraction instead of a division.
+ * <p>
+ * Every step yields up to four output bytes, least significant byte first. The stream does not depend
+ * on how it is split into {@link #nextBytes(byte[], int, int)} calls.
+ */
+public class CubicCongruentialGenerator implements KeyStreamSource {
+    public static final long MODULUS = 4294967291L; // 2^32 - 5
+    private static final long FOLD = 5L;             // 2^32 mod p
+    private static final long LOW_MASK = 0xFFFFFFFFL;
+
+    private final long a;
+    private final long b;
+    private final long c;
+    private final long d;
+    private final int bytesPerStep;
+
+    private long state;
+    private int pending;   // Output bytes of the current state not yet returned
+    private int buffered;  // The current state, shifted so that the next byte is the lowest
+
+    /**
+     * Creates a generator with the coefficients used by {@link CubicCongruentialEncryption}.
+     *
+     * @param seed         the initial state, reduced modulo p
+     * @param bytesPerStep the number of state bytes emitted per step (1 to 4)
+     */
+    public CubicCongruentialGenerator(long seed, int bytesPerStep) {
+        this(seed, bytesPerStep, 12345L, 67890L, 54321L, 98765L);
+    }
+
+    /**
+     * @param seed         the initial state, reduced modulo p
+     * @param bytesPerStep the number of state bytes emitted per step (1 to 4)
+     * @param a            the cubic coefficient
+     * @param b            the quadratic coefficient
+     * @param c            the linear coefficient
+     * @param d            the constant term
+     */
+    public CubicCongruentialGenerator(long seed, int bytesPerStep, long a, long b, long c, long d) {
+        if (bytesPerStep < 1 || bytesPerStep > 4) {
+            throw new IllegalArgumentException("Bytes per step must be between 1 and 4: " + bytesPerStep);
+        }
+        this.a = Math.floorMod(a, MODULUS);
+        this.b = Math.floorMod(b, MODULUS);
+        this.c = Math.floorMod(c, MODULUS);
+        this.d = Math.floorMod(d, MODULUS);
+        this.bytesPerStep = bytesPerStep;
+        this.state = Math.floorMod(seed, MODULUS);
+    }
+
+    public int getBytesPerStep() {
+        return bytesPerStep;
+    }
+
+    /**
+     * Advances the state by one step.
+     *
+     * @return the new state, in [0, p)
+     */
+    public long nextState() {
+        long x = state;
+        long r = reduce(a * x + b);
+        r = reduce(r * x + c);
+        r = reduce(r * x + d);
+        state = r;
+        return r;
+    }
+
+    /**
+     * @return the next output byte
+     */
+    public byte nextByte() {
+        if (pending == 0) {
+            buffered = (int) nextState();
+            pending = bytesPerStep;
+        }
+        byte result = (byte) buffered;
+        buffered >>>= 8;
+        pending--;
+        return result;
+    }
+
+    /**
+     * Fills {@code length} bytes of {@code bytes} starting at {@code offset} with the next output bytes.
+     *
+     * @param bytes  the destination buffer
+     * @param offset the first index to write
+     * @param length the number of bytes to produce
+     */
+    public void nextBytes(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+
+        // Finish the bytes left over from the previous call
+        while (pending > 0 && offset < end) {
+            bytes[offset++] = nextByte();
+        }
+
+        // Whole steps without the per-byte bookkeeping
+        int step = bytesPerStep;
+        while (end - offset >= step) {
+            int value = (int) nextState();
+            for (int i = 0; i < step; i++) {
+                bytes[offset++] = (byte) value;
+                value >>>= 8;
+            }
+        }
+
+        while (offset < end) {
+            bytes[offset++] = nextByte();
+        }
+    }
+
+    @Override
+    public void generateKeyStream(byte[] keyStream, int offset, int length) {
+        nextBytes(keyStream, offset, length);
+    }
+
+    /**
+     * Reduces a value below 2^64 (treated as unsigned) modulo p = 2^32 - 5.
+     */
+    private static long reduce(long value) {
+        // value = hi*2^32 + lo ≡ hi*5 + lo; the first fold leaves less than 2^35, the second less than 2p
+        long folded = (value >>> 32) * FOLD + (value & LOW_MASK);
+        folded = (folded >>> 32) * FOLD + (folded & LOW_MASK);
+        return folded >= MODULUS ? folded - MODULUS : folded;
+    }
+}
@@ -1,26 +1,27 @@
 package com.ivan.lab13;
 
+import com.ivan.utils.StreamingFileCipher;
+
 import java.io.*;
+import java.nio.file.Paths;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
-import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Клас, що реалізує розширену версію клітинного автомата з більш складними правилами
  * та додатковими перемішуваннями для покращення криптографічних властивостей
  */
-public class AdvancedCellularAutomata {
-    private boolean[] cells;
+public class AdvancedCellularAutomata implements KeyStreamGenerator {
+    private final BitPackedAutomaton cells; // Бітово-упакований стан (64 клітини на слово)
     private int size;
     private final int[] rules;
+    private final CompiledRule[] schedule; // Скомпільовані таблиці для кожного правила з rules
     private int ruleIndex;
     private int[] outputIndices;
     private final int NUM_ITERATIONS = 8; // Зменшено кількість ітерацій для підвищення продуктивності
-    private final Random random;
-
-    // Константа для розміру буфера при файлових операціях
-    private static final int BUFFER_SIZE = 8192;
+    private final CopyableRandom random;
 
     /**
      * Створює розширений КА з більш складними правилами
@@ -31,11 +32,12 @@ public class AdvancedCellularAutomata {
      */
     public AdvancedCellularAutomata(int size, String seed, int[] customRules) {
         this.size = size;
-        this.cells = new boolean[size];
+        this.cells = new BitPackedAutomaton(size);
         this.rules = (customRules != null && customRules.length > 0) ?
                 customRules : new int[]{150, 30, 90, 22, 54, 86, 158, 135};
+        this.schedule = RuleCompiler.compileSchedule(this.rules);
         this.ruleIndex = 0;
-        this.random = new Random(seed.hashCode()); // Детермінований випадковий генератор для підвищення надійності
+        this.random = new CopyableRandom(seed.hashCode()); // Детермінований випадковий генератор для підвищення надійності
 
         // Ініціалізація КА на основі пароля
         initializeFromSeed(seed);
@@ -49,6 +51,19 @@ public class AdvancedCellularAutomata {
         }
     }
 
+    /**
+     * Створює копію стану іншого КА (клітини, індекс правила, стан генератора випадкових чисел)
+     */
+    private AdvancedCellularAutomata(AdvancedCellularAutomata other) {
+        this.cells = other.cells.copy();
+        this.size = other.size;
+        this.rules = other.rules;
+        this.schedule = other.schedule;
+        this.ruleIndex = other.ruleIndex;
+        this.outputIndices = other.outputIndices;
+        this.random = other.random.copy();
+    }
+
     /**
      * Ініціалізує клітини КА на основі пароля
      */
@@ -60,7 +75,7 @@ public class AdvancedCellularAutomata {
 
             // Заповнення клітинного автомата
             for (int i = 0; i < size; i++) {
-                cells[i] = (hash[i % hash.length] & (1 << (i % 8))) != 0;
+                cells.set(i, (hash[i % hash.length] & (1 << (i % 8))) != 0);
             }
 
             // Додаткове перемішування (зменшено кількість ітерацій)
@@ -72,14 +87,14 @@ public class AdvancedCellularAutomata {
                 // Перемішування бітів
                 for (int j = 0; j < hash.length && j < size / 8; j++) {
                     for (int k = 0; k < 8 && j * 8 + k < size; k++) {
-                        cells[j * 8 + k] ^= ((hash[j] >> k) & 1) == 1;
+                        cells.xor(j * 8 + k, ((hash[j] >> k) & 1) == 1);
                     }
                 }
             }
         } catch (NoSuchAlgorithmException e) {
             // Запасний варіант ініціалізації
             for (int i = 0; i < size; i++) {
-                cells[i] = random.nextBoolean();
+                cells.set(i, random.nextBoolean());
             }
         }
     }
@@ -97,70 +112,13 @@ public class AdvancedCellularAutomata {
         }
     }
 
-    /**
-     * Застосовує правило Вольфрама до конкретної клітини
-     */
-    private boolean applyRule(boolean left, boolean center, boolean right, int rule) {
-        // Обчислення індексу правила (кодування стану сусідства)
-        int index = (left ? 4 : 0) | (center ? 2 : 0) | (right ? 1 : 0);
-
-        // Перевірка відповідного біта у правилі
-        return (rule & (1 << index)) != 0;
-    }
-
-    /**
-     * Застосовує спеціальну логічну форму для конкретного правила
-     * замість використання арифметичної форми
-     */
-    private boolean applyRuleLogic(boolean a, boolean b, boolean c, int ruleNumber) {
-        switch (ruleNumber) {
-            case 22: // b' = a⊕a∧b∧c⊕b⊕c
-                return a ^ (a && b && c) ^ b ^ c;
-
-            case 30: // b' = a⊕(b∨c)
-                return a ^ (b || c);
-
-            case 54: // b' = (a∨c)⊕b
-                return (a || c) ^ b;
-
-            case 86: // b' = (a∨b)⊕c
-                return (a || b) ^ c;
-
-            case 90: // b' = a⊕c
-                return a ^ c;
-
-            case 135: // b' = 1∨a⊕b∨c
-                return true ^ a ^ b ^ c;
-
-            case 150: // b' = a⊕b⊕c
-                return a ^ b ^ c;
-
-            case 158: // b' = a⊕b⊕c∨b∧c
-                return a ^ b ^ c || (b && c);
-
-            default: // Для невідомих правил використовуємо стандартний метод
-                return applyRule(a, b, c, ruleNumber);
-        }
-    }
-
     /**
      * Виконує одну ітерацію еволюції КА
+     * (64 клітини за одну операцію, див. BitPackedAutomaton)
      */
     public void evolve() {
-        boolean[] newCells = new boolean[size];
-        int rule = rules[ruleIndex];
-
-        for (int i = 0; i < size; i++) {
-            boolean left = cells[(i - 1 + size) % size];    // Зліва
-            boolean center = cells[i];                      // Поточна клітина
-            boolean right = cells[(i + 1) % size];          // Справа
-
-            // Застосовуємо конкретне правило
-            newCells[i] = applyRuleLogic(left, center, right, rule);
-        }
-
-        // Оновлення стану КА
-        cells = newCells;
+        // Застосовуємо поточне правило до всього рядка
+        cells.evolve(schedule[ruleIndex]);
 
         // Перехід до наступного правила для більшої ентропії
         ruleIndex = (ruleIndex + 1) % rules.length;
@@ -175,14 +133,14 @@ public class AdvancedCellularAutomata {
         // Додаткове збурення для уникнення циклічних патернів
         if (random.nextFloat() < 0.05) { // 5% ймовірність
             int flipIndex = random.nextInt(size);
-            cells[flipIndex] = !cells[flipIndex];
+            cells.flip(flipIndex);
         }
 
         // Додаткове перемішування: XOR між віддаленими клітинами (зменшено кількість операцій)
         for (int i = 0; i < size / 4; i++) {
             int index1 = random.nextInt(size);
             int index2 = (index1 + size/2) % size; // Протилежний бік
-            cells[index1] = cells[index1] ^ cells[index2];
+            cells.xor(index1, cells.get(index2));
         }
     }
 
@@ -203,7 +161,7 @@ public class AdvancedCellularAutomata {
         // Формуємо байт, збираючи біти з різних частин КА
         byte result = 0;
         for (int i = 0; i < 8; i++) {
-            if (cells[outputIndices[i]]) {
+            if (cells.get(outputIndices[i])) {
                 result |= (1 << i);
             }
         }
@@ -215,53 +173,59 @@ public class AdvancedCellularAutomata {
      * Генерує масив байтів для використання як ключовий потік
      */
     public void generateKeyStream(byte[] keyStream, int length) {
+        generateKeyStream(keyStream, 0, length);
+    }
+
+    @Override
+    public void generateKeyStream(byte[] keyStream, int offset, int length) {
         for (int i = 0; i < length; i++) {
-            keyStream[i] = generateByte();
+            keyStream[offset + i] = generateByte();
         }
     }
 
+    @Override
+    public AdvancedCellularAutomata copy() {
+        return new AdvancedCellularAutomata(this);
+    }
+
     /**
-     * Допоміжна функція для шифрування/дешифрування файлу
+     * Допоміжна функція для шифрування/дешифрування файлу.
+     * Під час проходу записуються контрольні точки ключового потоку: повернений індекс
+     * дозволяє дешифрувати файл паралельно (див. transformFileChunked)
      */
-    public static void encryptFile(String inputFile, String outputFile, String password, int[] rules)
+    public static CheckpointIndex encryptFile(String inputFile, String outputFile, String password, int[] rules)
             throws IOException {
-        try (FileInputStream fis = new FileInputStream(inputFile);
-             FileOutputStream fos = new FileOutputStream(outputFile)) {
-
-            // Використовуємо менший розмір КА для підвищення продуктивності
-            AdvancedCellularAutomata ca = new AdvancedCellularAutomata(512, password, rules);
-
-            byte[] buffer = new byte[BUFFER_SIZE];
-            byte[] keyStream = new byte[BUFFER_SIZE];
-            int bytesRead;
-            long totalBytesProcessed = 0;
-            long fileSize = new File(inputFile).length();
-
-            System.out.println("Початок шифрування файлу: " + inputFile);
-            System.out.println("Загальний розмір файлу: " + formatFileSize(fileSize));
-
-            while ((bytesRead = fis.read(buffer)) != -1) {
-                // Генерація ключового потоку
-                ca.generateKeyStream(keyStream, bytesRead);
-
-                // XOR для шифрування/дешифрування
-                for (int i = 0; i < bytesRead; i++) {
-                    buffer[i] = (byte) (buffer[i] ^ keyStream[i]);
-                }
-
-                fos.write(buffer, 0, bytesRead);
-
-                // Виводимо прогрес
-                totalBytesProcessed += bytesRead;
-                if (totalBytesProcessed % (1024 * 1024) == 0) { // Показуємо прогрес кожен мегабайт
-                    double progress = (double) totalBytesProcessed / fileSize * 100;
-                    System.out.printf("Оброблено: %s (%.2f%%)\n",
-                            formatFileSize(totalBytesProcessed), progress);
-                }
+        // Використовуємо менший розмір КА для підвищення продуктивності
+        AdvancedCellularAutomata ca = new AdvancedCellularAutomata(512, password, rules);
+        long fileSize = new File(inputFile).length();
+
+        System.out.println("Початок шифрування файлу: " + inputFile);
+        System.out.println("Загальний розмір файлу: " + formatFileSize(fileSize));
+
+        // Файл відображається у пам'ять вікнами, ключовий потік генерується блоками по 8 КБ
+        CheckpointIndex.Recorder recorder = CheckpointIndex.recorder(ca, ChunkedStreamCipher.DEFAULT_INTERVAL,
+                ChunkedStreamCipher.BLOCK_SIZE);
+        StreamingFileCipher.transform(Paths.get(inputFile), Paths.get(outputFile), recorder, totalBytesProcessed -> {
+            // Виводимо прогрес
+            if (totalBytesProcessed % (1024 * 1024) == 0) { // Показуємо прогрес кожен мегабайт
+                double progress = (double) totalBytesProcessed / fileSize * 100;
+                System.out.printf("Оброблено: %s (%.2f%%)\n",
+                        formatFileSize(totalBytesProcessed), progress);
             }
+        });
 
-            System.out.println("Шифрування завершено: " + outputFile);
-        }
+        System.out.println("Шифрування завершено: " + outputFile);
+        return recorder.finish();
+    }
+
+    /**
+     * Паралельне шифрування/дешифрування файлу частинами (див. ChunkedStreamCipher).
+     * Індекс береться з encryptFile з тим самим паролем і правилами, тому результат
+     * побайтово збігається з послідовним проходом
+     */
+    public static void transformFileChunked(String inputFile, String outputFile, CheckpointIndex index)
+            throws IOException {
+        ChunkedStreamCipher.encryptFile(inputFile, outputFile, index, ForkJoinPool.commonPool());
     }
 
     /**
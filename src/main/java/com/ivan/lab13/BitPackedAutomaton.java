@@ -0,0 +1,182 @@
+package com.ivan.lab13;
+
+/**
+ * Бітово-упакований стан одновимірного циклічного клітинного автомата.
+ * Клітини зберігаються у масиві long (64 клітини на слово), а правила Вольфрама
+ * обчислюються булевою алгеброю одразу над цілими словами замість поклітинного обходу
+ */
+final class BitPackedAutomaton {
+    private final int size;
+    private final int lastBits;   // Кількість значущих бітів в останньому слові (1..64)
+    private final long lastMask;  // Маска значущих бітів останнього слова
+
+    private long[] cells;
+    private long[] next;          // Другий буфер, щоб не виділяти пам'ять на кожному кроці
+    private final long[] left;    // Сусіди зліва: біт i містить клітину i-1
+    private final long[] right;   // Сусіди справа: біт i містить клітину i+1
+
+    BitPackedAutomaton(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Розмір КА має бути додатним: " + size);
+        }
+        int words = (size + 63) >>> 6;
+        this.size = size;
+        this.lastBits = size - ((words - 1) << 6);
+        this.lastMask = lastBits == 64 ? -1L : (1L << lastBits) - 1;
+        this.cells = new long[words];
+        this.next = new long[words];
+        this.left = new long[words];
+        this.right = new long[words];
+    }
+
+    /**
+     * Створює незалежну копію поточного стану
+     */
+    BitPackedAutomaton copy() {
+        BitPackedAutomaton copy = new BitPackedAutomaton(size);
+        System.arraycopy(cells, 0, copy.cells, 0, cells.length);
+        return copy;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean get(int index) {
+        return ((cells[index >>> 6] >>> index) & 1L) != 0;
+    }
+
+    void set(int index, boolean value) {
+        long bit = 1L << index;
+        if (value) {
+            cells[index >>> 6] |= bit;
+        } else {
+            cells[index >>> 6] &= ~bit;
+        }
+    }
+
+    void xor(int index, boolean value) {
+        if (value) {
+            flip(index);
+        }
+    }
+
+    void flip(int index) {
+        cells[index >>> 6] ^= 1L << index;
+    }
+
+    /**
+     * Заповнює масиви лівих і правих сусідів циклічним зсувом усього рядка на одну клітину
+     */
+    private void shiftNeighbours() {
+        long[] c = cells;
+        int last = c.length - 1;
+
+        // Біт 0 отримує останню клітину рядка, біт size-1 - першу
+        long lastCell = (c[last] >>> (lastBits - 1)) & 1L;
+        long firstCell = c[0] & 1L;
+
+        for (int w = 0; w < last; w++) {
+            right[w] = (c[w] >>> 1) | (c[w + 1] << 63);
+        }
+        right[last] = (c[last] >>> 1) | (firstCell << (lastBits - 1));
+
+        left[0] = (c[0] << 1) | lastCell;
+        for (int w = 1; w <= last; w++) {
+            left[w] = (c[w] << 1) | (c[w - 1] >>> 63);
+        }
+    }
+
+    /**
+     * Виконує одну ітерацію еволюції за правилом Вольфрама.
+     * Логічні форми збігаються з попередньою поклітинною реалізацією, включно з правилом 135,
+     * для якого історично використовується форма 1⊕a⊕b⊕c (тобто правило 105) -
+     * це зберігає сумісність ключового потоку з уже зашифрованими файлами
+     *
+     * @param compiled скомпільоване правило (див. RuleCompiler)
+     */
+    void evolve(CompiledRule compiled) {
+        shiftNeighbours();
+        int rule = compiled.rule();
+        long[] c = cells;
+        long[] l = left;
+        long[] r = right;
+        long[] n = next;
+        int words = c.length;
+
+        switch (rule) {
+            case 22: // b' = a⊕a∧b∧c⊕b⊕c
+                for (int w = 0; w < words; w++) {
+                    n[w] = l[w] ^ (l[w] & c[w] & r[w]) ^ c[w] ^ r[w];
+                }
+                break;
+            case 30: // b' = a⊕(b∨c)
+                for (int w = 0; w < words; w++) {
+                    n[w] = l[w] ^ (c[w] | r[w]);
+                }
+                break;
+            case 54: // b' = (a∨c)⊕b
+                for (int w = 0; w < words; w++) {
+                    n[w] = (l[w] | r[w]) ^ c[w];
+                }
+                break;
+            case 86: // b' = (a∨b)⊕c
+                for (int w = 0; w < words; w++) {
+                    n[w] = (l[w] | c[w]) ^ r[w];
+                }
+                break;
+            case 90: // b' = a⊕c
+                for (int w = 0; w < words; w++) {
+                    n[w] = l[w] ^ r[w];
+                }
+                break;
+            case 105: // b' = 1⊕a⊕b⊕c
+            case 135: // Історична форма 1∨a⊕b∨c збігається з правилом 105
+                for (int w = 0; w < words; w++) {
+                    n[w] = ~(l[w] ^ c[w] ^ r[w]);
+                }
+                break;
+            case 150: // b' = a⊕b⊕c
+                for (int w = 0; w < words; w++) {
+                    n[w] = l[w] ^ c[w] ^ r[w];
+                }
+                break;
+            case 158: // b' = a⊕b⊕c∨b∧c
+                for (int w = 0; w < words; w++) {
+                    n[w] = (l[w] ^ c[w] ^ r[w]) | (c[w] & r[w]);
+                }
+                break;
+            case 165: // b' = 1⊕a⊕c
+                for (int w = 0; w < words; w++) {
+                    n[w] = ~(l[w] ^ r[w]);
+                }
+                break;
+            default: // Довільне правило: таблиця пошуку на 8 клітин за одне звернення
+                byte[] octets = compiled.octetTable;
+                for (int w = 0; w < words; w++) {
+                    long value = 0;
+                    for (int p = 0; p < 64; p += 8) {
+                        // Вікно з 10 клітин p-1..p+8: 8 бітів із лівих сусідів і 2 з правих
+                        int window = (int) ((l[w] >>> p) & 0xFF) | (int) (((r[w] >>> (p + 6)) & 3) << 8);
+                        value |= (long) (octets[window] & 0xFF) << p;
+                    }
+                    n[w] = value;
+                }
+                if (lastBits != 64) {
+                    // Вікно останньої клітини виходить за межі КА, тому її правий сусід
+                    // (клітина 0) береться з масиву правих сусідів окремо
+                    int b = lastBits - 1;
+                    int last = words - 1;
+                    int neighbourhood = (int) (((l[last] >>> b) & 1) << 2 | ((c[last] >>> b) & 1) << 1 | ((r[last] >>> b) & 1));
+                    long bit = compiled.next(neighbourhood) ? 1L << b : 0L;
+                    n[last] = (n[last] & ~(1L << b)) | bit;
+                }
+                break;
+        }
+
+        // Обнуляємо біти за межами КА та міняємо буфери місцями
+        n[words - 1] &= lastMask;
+        next = c;
+        cells = n;
+    }
+}
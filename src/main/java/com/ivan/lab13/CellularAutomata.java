@@ -8,18 +8,38 @@ import java.util.Random;
 /**
  * Клас, що реалізує одновимірний клітинний автомат
  */
-class CellularAutomata {
+class CellularAutomata implements KeyStreamGenerator {
     private boolean[] cells;
+    private boolean[] nextCells; // Другий буфер: стани міняються місцями без виділення пам'яті
     private int size;
-    private int[] rules = {150, 30, 86, 22}; // Використовуємо кілька правил з таблиці
+    private final int[] bitOffsets; // Зміщення клітин для кожного біта байта ключового потоку
+    private final int[] rules;
+    private final CompiledRule[] schedule; // Таблиці пошуку для кожного правила з rules
     private int currentRule = 0;
     
+    // Правила за замовчуванням
+    private static final int[] DEFAULT_RULES = {150, 30, 86, 22};
+    
     /**
      * Створює КА заданого розміру та ініціалізує його за допомогою пароля
      */
     public CellularAutomata(int size, String seed) {
+        this(size, seed, null);
+    }
+    
+    /**
+     * Створює КА із власним розкладом правил (номери за Вольфрамом)
+     */
+    public CellularAutomata(int size, String seed, int[] customRules) {
         this.size = size;
+        this.rules = (customRules != null && customRules.length > 0) ? customRules : DEFAULT_RULES;
+        this.schedule = RuleCompiler.compileSchedule(rules);
         this.cells = new boolean[size];
+        this.nextCells = new boolean[size];
+        this.bitOffsets = new int[8];
+        for (int bitIndex = 0; bitIndex < 8; bitIndex++) {
+            bitOffsets[bitIndex] = (23 * bitIndex) % size;
+        }
         
         // Ініціалізація клітин на основі пароля
         try {
@@ -39,29 +59,45 @@ class CellularAutomata {
     }
     
     /**
-     * Застосовує правило за Вольфрамом до клітин КА
+     * Створює копію стану іншого КА (клітини та індекс поточного правила)
      */
-    private boolean applyRule(boolean left, boolean center, boolean right, int rule) {
-        int index = (left ? 4 : 0) | (center ? 2 : 0) | (right ? 1 : 0);
-        return (rule & (1 << index)) != 0;
+    private CellularAutomata(CellularAutomata other) {
+        this.size = other.size;
+        this.rules = other.rules;
+        this.schedule = other.schedule;
+        this.bitOffsets = other.bitOffsets;
+        this.cells = other.cells.clone();
+        this.nextCells = new boolean[size];
+        this.currentRule = other.currentRule;
     }
     
     /**
      * Виконує одну ітерацію еволюції КА
      */
     public void evolve() {
-        boolean[] newCells = new boolean[size];
-        int rule = rules[currentRule];
+        boolean[] src = cells;
+        boolean[] dst = nextCells;
+        boolean[] table = schedule[currentRule].cellTable;
+        int last = size - 1;
         
-        for (int i = 0; i < size; i++) {
-            boolean left = cells[(i - 1 + size) % size];
-            boolean center = cells[i];
-            boolean right = cells[(i + 1) % size];
-            
-            newCells[i] = applyRule(left, center, right, rule);
+        // Індекс сусідства (ліва*4 + центральна*2 + права) зсувається на одну клітину за крок,
+        // тож кожна клітина - це одне звернення до таблиці правила без розгалужень і ділення за модулем
+        int neighbourhood = (src[last] ? 4 : 0) | (src[0] ? 2 : 0) | (src[1 % size] ? 1 : 0);
+        dst[0] = table[neighbourhood];
+        for (int i = 1; i < last; i++) {
+            neighbourhood = ((neighbourhood << 1) & 7) | (src[i + 1] ? 1 : 0);
+            dst[i] = table[neighbourhood];
+        }
+        if (last > 0) {
+            // Остання клітина замикається на першу (циклічна топологія)
+            neighbourhood = ((neighbourhood << 1) & 7) | (src[0] ? 1 : 0);
+            dst[last] = table[neighbourhood];
         }
         
-        cells = newCells;
+        // Міняємо буфери місцями замість виділення нового масиву
+        cells = dst;
+        nextCells = src;
+        
         currentRule = (currentRule + 1) % rules.length; // Міняємо правило для наступної ітерації
     }
     
@@ -70,20 +106,42 @@ class CellularAutomata {
      */
     public void generateKeyStream(byte[] keyStream, int length) {
         Arrays.fill(keyStream, (byte) 0);
+        generateKeyStream(keyStream, 0, length);
+    }
+    
+    /**
+     * Генерує ключовий потік безпосередньо у частину буфера викликача.
+     * Результат збігається з generateKeyStream(byte[], int) для тієї ж довжини
+     */
+    @Override
+    public void generateKeyStream(byte[] keyStream, int offset, int length) {
+        // Зміщення першої клітини байта: (17 * byteIndex) % size
+        int base = 0;
         
         for (int byteIndex = 0; byteIndex < length; byteIndex++) {
             // Одна еволюція КА для кожного байта
             evolve();
             
             // Збираємо 8 бітів для формування байта
+            int value = 0;
             for (int bitIndex = 0; bitIndex < 8; bitIndex++) {
                 // Вибираємо біти з різних місць КА для кращої випадковості
-                int cellIndex = (17 * byteIndex + 23 * bitIndex) % size;
+                int cellIndex = base + bitOffsets[bitIndex];
+                if (cellIndex >= size) {
+                    cellIndex -= size;
+                }
                 
                 if (cells[cellIndex]) {
-                    keyStream[byteIndex] |= (1 << bitIndex);
+                    value |= (1 << bitIndex);
                 }
             }
+            keyStream[offset + byteIndex] = (byte) value;
+            base = (base + 17) % size;
         }
     }
-}
\ No newline at end of file
+    
+    @Override
+    public CellularAutomata copy() {
+        return new CellularAutomata(this);
+    }
+}
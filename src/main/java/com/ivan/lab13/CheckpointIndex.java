@@ -0,0 +1,122 @@
+package com.ivan.lab13;
+
+import com.ivan.utils.KeyStreamSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Індекс контрольних точок ключового потоку.
+ * Зберігає копії стану генератора на зміщеннях 0, interval, 2*interval, ...,
+ * щоб обробку будь-якої частини файлу можна було почати з найближчої точки,
+ * а не з початку потоку. Індекс записується під час звичайного послідовного шифрування
+ * (див. Recorder), а паралельно виконуються наступні проходи з тим самим ключем - дешифрування
+ * або повторне шифрування
+ */
+public final class CheckpointIndex {
+    private final KeyStreamGenerator[] checkpoints;
+    private final long interval;
+    private final long length;
+    private final int blockSize;
+
+    private CheckpointIndex(KeyStreamGenerator[] checkpoints, long interval, long length, int blockSize) {
+        this.checkpoints = checkpoints;
+        this.interval = interval;
+        this.length = length;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Створює записувач індексу для послідовного проходу шифрування.
+     * Записувач сам є джерелом ключового потоку: шифрування бере потік з нього,
+     * а він зберігає копію стану генератора на кожній межі інтервалу, тому індекс
+     * з'являється без окремого прокручування генератора
+     *
+     * @param generator генератор у початковому стані (сам генератор не змінюється)
+     * @param interval відстань між контрольними точками (кратна blockSize)
+     * @param blockSize розмір блоку одного виклику generateKeyStream
+     * @return записувач індексу
+     */
+    public static Recorder recorder(KeyStreamGenerator generator, long interval, int blockSize) {
+        if (blockSize <= 0 || interval <= 0 || interval % blockSize != 0) {
+            throw new IllegalArgumentException("Інтервал контрольних точок має бути кратним розміру блоку");
+        }
+        return new Recorder(generator.copy(), interval, blockSize);
+    }
+
+    /**
+     * Джерело ключового потоку, що записує контрольні точки під час генерації.
+     * Потік має запитуватися блоками по blockSize байтів від початку (коротшим може бути лише останній блок)
+     */
+    public static final class Recorder implements KeyStreamSource {
+        private final KeyStreamGenerator generator;
+        private final List<KeyStreamGenerator> checkpoints = new ArrayList<>();
+        private final long interval;
+        private final int blockSize;
+        private long position;
+
+        private Recorder(KeyStreamGenerator generator, long interval, int blockSize) {
+            this.generator = generator;
+            this.interval = interval;
+            this.blockSize = blockSize;
+        }
+
+        @Override
+        public void generateKeyStream(byte[] keyStream, int offset, int length) {
+            if (position % blockSize != 0) {
+                throw new IllegalStateException("Після неповного блоку ключовий потік продовжувати не можна");
+            }
+            if (position == checkpoints.size() * interval) {
+                checkpoints.add(generator.copy());
+            }
+            generator.generateKeyStream(keyStream, offset, length);
+            position += length;
+        }
+
+        /**
+         * Завершує запис: індекс покриває весь згенерований ключовий потік
+         *
+         * @return індекс контрольних точок
+         */
+        public CheckpointIndex finish() {
+            if (checkpoints.isEmpty()) {
+                checkpoints.add(generator.copy());
+            }
+            return new CheckpointIndex(checkpoints.toArray(new KeyStreamGenerator[0]), interval, position, blockSize);
+        }
+    }
+
+    /**
+     * Повертає копію генератора у стані контрольної точки з номером checkpoint
+     */
+    public KeyStreamGenerator restore(int checkpoint) {
+        return checkpoints[checkpoint].copy();
+    }
+
+    /**
+     * Номер найближчої контрольної точки, що не перевищує зміщення offset
+     */
+    public int checkpointFor(long offset) {
+        return (int) Math.min(checkpoints.length - 1, offset / interval);
+    }
+
+    public long offsetOf(int checkpoint) {
+        return checkpoint * interval;
+    }
+
+    public int count() {
+        return checkpoints.length;
+    }
+
+    public long interval() {
+        return interval;
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public int blockSize() {
+        return blockSize;
+    }
+}
@@ -0,0 +1,152 @@
+package com.ivan.lab13;
+
+import com.ivan.utils.StreamingFileCipher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Паралельне потокове шифрування файлу частинами з використанням індексу контрольних точок,
+ * записаного під час попереднього послідовного проходу з тим самим ключем.
+ * Кожна частина файлу обробляється окремою задачею у пулі fork-join, яка відновлює генератор
+ * з найближчої контрольної точки, тому результат побайтово збігається з послідовним шифруванням
+ */
+public final class ChunkedStreamCipher {
+    // Розмір блоку збігається з блоком послідовного шифрування (8 КБ)
+    public static final int BLOCK_SIZE = StreamingFileCipher.BLOCK_SIZE;
+    // Відстань між контрольними точками за замовчуванням (1 МБ)
+    public static final long DEFAULT_INTERVAL = 1024 * 1024;
+
+    private ChunkedStreamCipher() {
+    }
+
+    /**
+     * Шифрує/дешифрує файл послідовно за один прохід і водночас записує індекс контрольних точок.
+     * Автомат не вміє перескакувати вперед, тому перший прохід завжди послідовний; повернений індекс
+     * дозволяє виконати наступні проходи (дешифрування, повторне шифрування) паралельно
+     *
+     * @param inputFile вхідний файл
+     * @param outputFile вихідний файл
+     * @param generator генератор ключового потоку у початковому стані
+     * @param interval відстань між контрольними точками (кратна BLOCK_SIZE)
+     * @return індекс контрольних точок для паралельних проходів
+     */
+    public static CheckpointIndex encryptFile(String inputFile, String outputFile,
+                                              KeyStreamGenerator generator, long interval)
+            throws IOException {
+        CheckpointIndex.Recorder recorder = CheckpointIndex.recorder(generator, interval, BLOCK_SIZE);
+        StreamingFileCipher.transform(inputFile, outputFile, recorder);
+        return recorder.finish();
+    }
+
+    /**
+     * Шифрує/дешифрує файл паралельно, використовуючи готовий індекс контрольних точок
+     *
+     * @param inputFile вхідний файл (не довший за index.length())
+     * @param outputFile вихідний файл
+     * @param index індекс контрольних точок ключового потоку
+     * @param pool пул потоків для обробки частин
+     */
+    public static void encryptFile(String inputFile, String outputFile, CheckpointIndex index, ForkJoinPool pool)
+            throws IOException {
+        Path inputPath = Paths.get(inputFile);
+        try (FileChannel in = FileChannel.open(inputPath, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(Paths.get(outputFile), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            long fileSize = in.size();
+            if (fileSize > index.length()) {
+                throw new IllegalArgumentException("Індекс контрольних точок коротший за файл: " + inputFile);
+            }
+
+            // Одна задача на кожен проміжок між контрольними точками
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (long from = 0; from < fileSize; from += index.interval()) {
+                long start = from;
+                long end = Math.min(fileSize, from + index.interval());
+                tasks.add(() -> {
+                    transformRange(in, out, start, end, index);
+                    return null;
+                });
+            }
+
+            for (Future<Void> result : pool.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Шифрування перервано", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Помилка паралельного шифрування", e.getCause());
+        }
+    }
+
+    /**
+     * Шифрує/дешифрує довільний діапазон [from, to) файлу.
+     * Генератор відновлюється з найближчої попередньої контрольної точки, пропускає
+     * ключовий потік до from і далі обробляє дані блоками, вирівняними від початку файлу
+     *
+     * @param in вхідний канал (позиційне читання, безпечне для кількох потоків)
+     * @param out вихідний канал (позиційний запис)
+     * @param from початкове зміщення
+     * @param to кінцеве зміщення (не включно)
+     * @param index індекс контрольних точок
+     */
+    public static void transformRange(FileChannel in, FileChannel out, long from, long to, CheckpointIndex index)
+            throws IOException {
+        int checkpoint = index.checkpointFor(from);
+        KeyStreamGenerator generator = index.restore(checkpoint);
+        int blockSize = index.blockSize();
+
+        byte[] buffer = new byte[blockSize];
+        byte[] keyStream = new byte[blockSize];
+        ByteBuffer wrapper = ByteBuffer.wrap(buffer);
+
+        // Пропускаємо ключовий потік від контрольної точки до початку діапазону
+        long position = index.offsetOf(checkpoint);
+        while (position + blockSize <= from) {
+            generator.generateKeyStream(keyStream, 0, blockSize);
+            position += blockSize;
+        }
+
+        while (position < to) {
+            int blockLength = (int) Math.min(blockSize, to - position);
+            generator.generateKeyStream(keyStream, 0, blockLength);
+
+            // Частина блоку перед from (якщо діапазон не вирівняний) лише пропускається
+            int skip = (int) Math.max(0, from - position);
+
+            wrapper.clear().position(skip).limit(blockLength);
+            while (wrapper.hasRemaining()) {
+                if (in.read(wrapper, position + wrapper.position()) < 0) {
+                    throw new IOException("Неочікуваний кінець файлу на позиції " + (position + wrapper.position()));
+                }
+            }
+
+            // XOR для шифрування/дешифрування
+            for (int i = skip; i < blockLength; i++) {
+                buffer[i] = (byte) (buffer[i] ^ keyStream[i]);
+            }
+
+            wrapper.clear().position(skip).limit(blockLength);
+            while (wrapper.hasRemaining()) {
+                out.write(wrapper, position + wrapper.position());
+            }
+
+            position += blockLength;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.ivan.lab13;
+
+/**
+ * Скомпільоване правило Вольфрама у вигляді таблиць пошуку.
+ * Створюється через RuleCompiler і є незмінним, тому один екземпляр
+ * можна спільно використовувати між автоматами та потоками
+ */
+public final class CompiledRule {
+    private final int rule;
+
+    // Новий стан клітини для кожного з 8 станів сусідства (ліва*4 + центральна*2 + права)
+    final boolean[] cellTable;
+
+    // Нові стани 8 клітин для 10-бітового вікна: біт k вікна - клітина (p - 1 + k),
+    // біт j результату - нова клітина (p + j)
+    final byte[] octetTable;
+
+    CompiledRule(int rule, boolean[] cellTable, byte[] octetTable) {
+        this.rule = rule;
+        this.cellTable = cellTable;
+        this.octetTable = octetTable;
+    }
+
+    /**
+     * Повертає номер правила за Вольфрамом
+     */
+    public int rule() {
+        return rule;
+    }
+
+    /**
+     * Обчислює новий стан клітини за індексом сусідства (0..7)
+     */
+    public boolean next(int neighbourhood) {
+        return cellTable[neighbourhood];
+    }
+
+    /**
+     * Обчислює нові стани 8 сусідніх клітин за одним 10-бітовим вікном
+     */
+    public int nextOctet(int window) {
+        return octetTable[window] & 0xFF;
+    }
+}
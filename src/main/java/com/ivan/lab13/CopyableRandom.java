@@ -0,0 +1,42 @@
+package com.ivan.lab13;
+
+import java.util.Random;
+
+/**
+ * Детермінований генератор з тим самим лінійним конгруентним алгоритмом, що й java.util.Random,
+ * але з доступним внутрішнім станом, який можна скопіювати у контрольну точку
+ */
+final class CopyableRandom extends Random {
+    private static final long serialVersionUID = 1L;
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    // Без ініціалізатора: поле заповнюється з setSeed під час роботи конструктора Random
+    private long state;
+
+    CopyableRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * Створює копію з тим самим станом послідовності
+     */
+    CopyableRandom copy() {
+        CopyableRandom copy = new CopyableRandom(0);
+        copy.state = state;
+        return copy;
+    }
+}
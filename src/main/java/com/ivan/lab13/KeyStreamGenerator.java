@@ -0,0 +1,15 @@
+package com.ivan.lab13;
+
+import com.ivan.utils.KeyStreamSource;
+
+/**
+ * Генератор ключового потоку, стан якого можна зберегти як контрольну точку
+ * і пізніше продовжити генерацію з неї (див. CheckpointIndex)
+ */
+public interface KeyStreamGenerator extends KeyStreamSource {
+
+    /**
+     * Створює незалежну копію поточного стану генератора
+     */
+    KeyStreamGenerator copy();
+}
@@ -0,0 +1,72 @@
+package com.ivan.lab13;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Компілятор правил Вольфрама у таблиці пошуку.
+ * Замість розгалужень та перевірки (rule & (1 << index)) для кожної клітини
+ * цикли еволюції звертаються до заздалегідь обчислених таблиць:
+ * 3 біти сусідства на одну клітину або 10-бітове вікно на 8 клітин одразу
+ */
+public final class RuleCompiler {
+    private static final int OCTET_WINDOW_SIZE = 1 << 10;
+
+    private RuleCompiler() {
+    }
+
+    /**
+     * Компілює одне правило
+     *
+     * @param rule номер правила за Вольфрамом (0..255)
+     * @return скомпільоване правило
+     */
+    public static CompiledRule compile(int rule) {
+        if (rule < 0 || rule > 255) {
+            throw new IllegalArgumentException("Номер правила має бути в межах 0..255: " + rule);
+        }
+
+        // Таблиця для однієї клітини: біт індексу сусідства у номері правила
+        boolean[] cellTable = new boolean[8];
+        for (int index = 0; index < 8; index++) {
+            cellTable[index] = (rule & (1 << index)) != 0;
+        }
+
+        // Таблиця для 8 клітин: кожна нова клітина j залежить від бітів j, j+1, j+2 вікна
+        byte[] octetTable = new byte[OCTET_WINDOW_SIZE];
+        for (int window = 0; window < OCTET_WINDOW_SIZE; window++) {
+            int octet = 0;
+            for (int j = 0; j < 8; j++) {
+                int left = (window >>> j) & 1;
+                int center = (window >>> (j + 1)) & 1;
+                int right = (window >>> (j + 2)) & 1;
+                if (cellTable[(left << 2) | (center << 1) | right]) {
+                    octet |= 1 << j;
+                }
+            }
+            octetTable[window] = (byte) octet;
+        }
+
+        return new CompiledRule(rule, cellTable, octetTable);
+    }
+
+    /**
+     * Компілює розклад правил (по одному правилу на крок еволюції).
+     * Однакові номери правил у розкладі використовують спільні таблиці
+     *
+     * @param rules номери правил у порядку застосування
+     * @return скомпільовані правила у тому ж порядку
+     */
+    public static CompiledRule[] compileSchedule(int[] rules) {
+        if (rules == null || rules.length == 0) {
+            throw new IllegalArgumentException("Розклад правил не може бути порожнім");
+        }
+
+        Map<Integer, CompiledRule> compiled = new HashMap<>();
+        CompiledRule[] schedule = new CompiledRule[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            schedule[i] = compiled.computeIfAbsent(rules[i], RuleCompiler::compile);
+        }
+        return schedule;
+    }
+}
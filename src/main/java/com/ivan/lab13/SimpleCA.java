@@ -8,12 +8,18 @@ import java.util.Random;
 /**
  * Клас, що реалізує простий клітинний автомат (КА) для генерації ключового потоку
  */
-public class SimpleCA {
+public class SimpleCA implements KeyStreamGenerator {
     private boolean[] cells;
+    private boolean[] nextCells; // Другий буфер: стани міняються місцями без виділення пам'яті
     private int size;
-    private int[] rules = {150, 30, 90, 22}; // Використовуємо декілька правил
+    private final int[] bitOffsets; // Зміщення клітин для кожного біта байта ключового потоку
+    private final int[] rules;
+    private final CompiledRule[] schedule; // Таблиці пошуку для кожного правила з rules
     private int currentRule = 0;
     
+    // Правила за замовчуванням
+    private static final int[] DEFAULT_RULES = {150, 30, 90, 22};
+    
     /**
      * Створює КА заданого розміру та ініціалізує його за допомогою пароля
      * 
@@ -21,8 +27,26 @@ public class SimpleCA {
      * @param seed пароль для ініціалізації
      */
     public SimpleCA(int size, String seed) {
+        this(size, seed, null);
+    }
+    
+    /**
+     * Створює КА із власним розкладом правил
+     * 
+     * @param size розмір КА
+     * @param seed пароль для ініціалізації
+     * @param customRules правила для послідовних ітерацій (номери за Вольфрамом)
+     */
+    public SimpleCA(int size, String seed, int[] customRules) {
         this.size = size;
+        this.rules = (customRules != null && customRules.length > 0) ? customRules : DEFAULT_RULES;
+        this.schedule = RuleCompiler.compileSchedule(rules);
         this.cells = new boolean[size];
+        this.nextCells = new boolean[size];
+        this.bitOffsets = new int[8];
+        for (int bitIndex = 0; bitIndex < 8; bitIndex++) {
+            bitOffsets[bitIndex] = (7 * bitIndex) % size;
+        }
         
         // Ініціалізація клітин на основі пароля
         try {
@@ -49,41 +73,44 @@ public class SimpleCA {
     }
     
     /**
-     * Застосовує правило Вольфрама до клітин КА
-     * 
-     * @param left ліва клітина
-     * @param center центральна клітина
-     * @param right права клітина
-     * @param rule номер правила за класифікацією Вольфрама
-     * @return нове значення для центральної клітини
+     * Створює копію стану іншого КА (клітини та індекс поточного правила)
      */
-    private boolean applyRule(boolean left, boolean center, boolean right, int rule) {
-        // Обчислюємо індекс правила на основі стану сусідства
-        int index = (left ? 4 : 0) | (center ? 2 : 0) | (right ? 1 : 0);
-        
-        // Перевіряємо відповідний біт у правилі
-        return (rule & (1 << index)) != 0;
+    private SimpleCA(SimpleCA other) {
+        this.size = other.size;
+        this.rules = other.rules;
+        this.schedule = other.schedule;
+        this.bitOffsets = other.bitOffsets;
+        this.cells = other.cells.clone();
+        this.nextCells = new boolean[size];
+        this.currentRule = other.currentRule;
     }
     
     /**
      * Виконує одну ітерацію еволюції КА
      */
     public void evolve() {
-        boolean[] newCells = new boolean[size];
-        int rule = rules[currentRule];
+        boolean[] src = cells;
+        boolean[] dst = nextCells;
+        boolean[] table = schedule[currentRule].cellTable;
+        int last = size - 1;
         
-        for (int i = 0; i < size; i++) {
-            // Визначаємо сусідні клітини (з урахуванням циклічної топології)
-            boolean left = cells[(i - 1 + size) % size];
-            boolean center = cells[i];
-            boolean right = cells[(i + 1) % size];
-            
-            // Обчислюємо новий стан клітини за правилом
-            newCells[i] = applyRule(left, center, right, rule);
+        // Індекс сусідства (ліва*4 + центральна*2 + права) зсувається на одну клітину за крок,
+        // тож кожна клітина - це одне звернення до таблиці правила без розгалужень і ділення за модулем
+        int neighbourhood = (src[last] ? 4 : 0) | (src[0] ? 2 : 0) | (src[1 % size] ? 1 : 0);
+        dst[0] = table[neighbourhood];
+        for (int i = 1; i < last; i++) {
+            neighbourhood = ((neighbourhood << 1) & 7) | (src[i + 1] ? 1 : 0);
+            dst[i] = table[neighbourhood];
+        }
+        if (last > 0) {
+            // Остання клітина замикається на першу (циклічна топологія)
+            neighbourhood = ((neighbourhood << 1) & 7) | (src[0] ? 1 : 0);
+            dst[last] = table[neighbourhood];
         }
         
-        // Оновлюємо стан КА
-        cells = newCells;
+        // Міняємо буфери місцями замість виділення нового масиву
+        cells = dst;
+        nextCells = src;
         
         // Переходимо до наступного правила для більшої ентропії
         currentRule = (currentRule + 1) % rules.length;
@@ -97,20 +124,46 @@ public class SimpleCA {
      */
     public void generateKeyStream(byte[] keyStream, int length) {
         Arrays.fill(keyStream, (byte) 0);
+        generateKeyStream(keyStream, 0, length);
+    }
+    
+    /**
+     * Генерує ключовий потік безпосередньо у частину буфера викликача.
+     * Результат збігається з generateKeyStream(byte[], int) для тієї ж довжини
+     * 
+     * @param keyStream масив для запису ключового потоку
+     * @param offset позиція першого байта у масиві
+     * @param length необхідна довжина ключового потоку в байтах
+     */
+    @Override
+    public void generateKeyStream(byte[] keyStream, int offset, int length) {
+        // Зміщення першої клітини байта: (13 * byteIndex) % size
+        int base = 0;
         
         for (int byteIndex = 0; byteIndex < length; byteIndex++) {
             // Одна еволюція КА для кожного байта
             evolve();
             
             // Формуємо один байт з клітин КА
+            int value = 0;
             for (int bitIndex = 0; bitIndex < 8; bitIndex++) {
                 // Вибираємо біти з різних місць КА для кращої випадковості
-                int cellIndex = (13 * byteIndex + 7 * bitIndex) % size;
+                int cellIndex = base + bitOffsets[bitIndex];
+                if (cellIndex >= size) {
+                    cellIndex -= size;
+                }
                 
                 if (cells[cellIndex]) {
-                    keyStream[byteIndex] |= (1 << bitIndex);
+                    value |= (1 << bitIndex);
                 }
             }
+            keyStream[offset + byteIndex] = (byte) value;
+            base = (base + 13) % size;
         }
     }
-}
\ No newline at end of file
+    
+    @Override
+    public SimpleCA copy() {
+        return new SimpleCA(this);
+    }
+}
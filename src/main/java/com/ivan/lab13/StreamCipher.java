@@ -1,11 +1,14 @@
 package com.ivan.lab13;
 
+import com.ivan.utils.StreamingFileCipher;
+
 import java.io.*;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 public class StreamCipher {
 
@@ -30,7 +33,8 @@ public class StreamCipher {
             // Крок 3: Шифрування з використанням генератора на основі КА
             System.out.println("\nШифрування з використанням генератора на основі КА...");
             String caEncryptedFilePath = "ca_encrypted.dat";
-            encryptWithCA(inputFilePath, caEncryptedFilePath, "password123");
+            // Під час шифрування записуються контрольні точки КА для паралельного розшифрування
+            CheckpointIndex caIndex = encryptWithCAIndexed(inputFilePath, caEncryptedFilePath, "password123");
             System.out.println("Файл зашифровано за допомогою генератора КА: " + caEncryptedFilePath);
 
             // Додатково: перевірка правильності роботи шифрування через розшифрування
@@ -39,7 +43,8 @@ public class StreamCipher {
             encryptWithSHA(shasEncryptedFilePath, shaDecryptedFilePath, "password123"); // XOR з тим самим ключем призводить до розшифрування
             
             String caDecryptedFilePath = "ca_decrypted.dat";
-            encryptWithCA(caEncryptedFilePath, caDecryptedFilePath, "password123");
+            // Розшифрування КА частинами паралельно з індексу, записаного під час шифрування
+            ChunkedStreamCipher.encryptFile(caEncryptedFilePath, caDecryptedFilePath, caIndex, ForkJoinPool.commonPool());
             
             // Перевірка ідентичності розшифрованих даних з оригіналом
             boolean shaSame = compareFiles(inputFilePath, shaDecryptedFilePath);
@@ -81,38 +86,20 @@ public class StreamCipher {
      */
     static void encryptWithSHA(String inputFile, String outputFile, String password)
             throws IOException, NoSuchAlgorithmException {
-        try (FileInputStream fis = new FileInputStream(inputFile);
-             FileOutputStream fos = new FileOutputStream(outputFile)) {
-            
-            MessageDigest sha = MessageDigest.getInstance("SHA-1");
-            byte[] key = password.getBytes();
-            sha.update(key);
-            
-            byte[] buffer = new byte[BUFFER_SIZE];
-            byte[] keyStream = new byte[BUFFER_SIZE];
-            int bytesRead;
-            long counter = 0;
-            
-            while ((bytesRead = fis.read(buffer)) != -1) {
-                // Генерація ключового потоку з SHA-1
-                generateSHAKeyStream(sha, counter, keyStream, bytesRead);
-                counter++;
-                
-                // XOR для шифрування
-                for (int i = 0; i < bytesRead; i++) {
-                    buffer[i] = (byte) (buffer[i] ^ keyStream[i]);
-                }
-                
-                fos.write(buffer, 0, bytesRead);
-            }
-        }
+        MessageDigest sha = MessageDigest.getInstance("SHA-1");
+        byte[] key = password.getBytes();
+        sha.update(key);
+        
+        // Лічильник збільшується на кожен блок, як і в циклі з буфером 8 КБ
+        long[] counter = {0};
+        StreamingFileCipher.transform(inputFile, outputFile,
+                (keyStream, offset, length) -> generateSHAKeyStream(sha, counter[0]++, keyStream, offset, length));
     }
     
     /**
      * Генерує ключовий потік на основі SHA-1
      */
-    static void generateSHAKeyStream(MessageDigest sha, long counter, byte[] keyStream, int length)
-            throws NoSuchAlgorithmException {
+    static void generateSHAKeyStream(MessageDigest sha, long counter, byte[] keyStream, int start, int length) {
         int offset = 0;
         while (offset < length) {
             byte[] counterBytes = longToBytes(counter);
@@ -121,7 +108,7 @@ public class StreamCipher {
             byte[] hash = sha.digest();
             
             int bytesToCopy = Math.min(hash.length, length - offset);
-            System.arraycopy(hash, 0, keyStream, offset, bytesToCopy);
+            System.arraycopy(hash, 0, keyStream, start + offset, bytesToCopy);
             
             offset += bytesToCopy;
             counter++;
@@ -133,28 +120,21 @@ public class StreamCipher {
      */
     static void encryptWithCA(String inputFile, String outputFile, String password)
             throws IOException {
-        try (FileInputStream fis = new FileInputStream(inputFile);
-             FileOutputStream fos = new FileOutputStream(outputFile)) {
-            
-            // Ініціалізація КА за допомогою пароля
-            CellularAutomata ca = new CellularAutomata(256, password);
-            
-            byte[] buffer = new byte[BUFFER_SIZE];
-            byte[] keyStream = new byte[BUFFER_SIZE];
-            int bytesRead;
-            
-            while ((bytesRead = fis.read(buffer)) != -1) {
-                // Генерація ключового потоку з КА
-                ca.generateKeyStream(keyStream, bytesRead);
-                
-                // XOR для шифрування
-                for (int i = 0; i < bytesRead; i++) {
-                    buffer[i] = (byte) (buffer[i] ^ keyStream[i]);
-                }
-                
-                fos.write(buffer, 0, bytesRead);
-            }
-        }
+        // Ініціалізація КА за допомогою пароля
+        CellularAutomata ca = new CellularAutomata(256, password);
+        
+        // Генерація ключового потоку з КА та XOR безпосередньо між відображеними у пам'ять файлами
+        StreamingFileCipher.transform(inputFile, outputFile, ca);
+    }
+    
+    /**
+     * Варіант encryptWithCA, що під час послідовного проходу записує контрольні точки КА:
+     * з поверненим індексом файл можна дешифрувати паралельно (ChunkedStreamCipher)
+     */
+    static CheckpointIndex encryptWithCAIndexed(String inputFile, String outputFile, String password)
+            throws IOException {
+        CellularAutomata ca = new CellularAutomata(256, password);
+        return ChunkedStreamCipher.encryptFile(inputFile, outputFile, ca, ChunkedStreamCipher.DEFAULT_INTERVAL);
     }
     
     /**
@@ -1,6 +1,9 @@
 package com.ivan.lab13;
 
+import com.ivan.utils.StreamingFileCipher;
+
 import java.io.*;
+import java.nio.file.Paths;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
@@ -46,45 +49,21 @@ public class StreamCipherTester {
      */
     private static void encryptWithSHA(String inputFile, String outputFile, String password)
             throws IOException, NoSuchAlgorithmException {
-        try (FileInputStream fis = new FileInputStream(inputFile);
-             FileOutputStream fos = new FileOutputStream(outputFile)) {
-
-            MessageDigest sha = MessageDigest.getInstance("SHA-1");
-            byte[] key = password.getBytes();
-            sha.update(key);
-
-            byte[] buffer = new byte[BUFFER_SIZE];
-            byte[] keyStream = new byte[BUFFER_SIZE];
-            int bytesRead;
-            long counter = 0;
-            long totalBytesProcessed = 0;
-
-            while ((bytesRead = fis.read(buffer)) != -1) {
-                // Генерація ключового потоку з SHA-1
-                generateSHAKeyStream(sha, counter, keyStream, bytesRead);
-                counter++;
-
-                // XOR для шифрування
-                for (int i = 0; i < bytesRead; i++) {
-                    buffer[i] = (byte) (buffer[i] ^ keyStream[i]);
-                }
-
-                fos.write(buffer, 0, bytesRead);
-
-                // Виводимо прогрес
-                totalBytesProcessed += bytesRead;
-                if (totalBytesProcessed % (5 * 1024 * 1024) == 0) {
-                    System.out.println("Оброблено " + formatFileSize(totalBytesProcessed));
-                }
-            }
-        }
+        MessageDigest sha = MessageDigest.getInstance("SHA-1");
+        byte[] key = password.getBytes();
+        sha.update(key);
+
+        // Лічильник збільшується на кожен блок, як і в циклі з буфером 8 КБ
+        long[] counter = {0};
+        StreamingFileCipher.transform(Paths.get(inputFile), Paths.get(outputFile),
+                (keyStream, offset, length) -> generateSHAKeyStream(sha, counter[0]++, keyStream, offset, length),
+                StreamCipherTester::printProgress);
     }
 
     /**
      * Генерує ключовий потік на основі SHA-1
      */
-    private static void generateSHAKeyStream(MessageDigest sha, long counter, byte[] keyStream, int length)
-            throws NoSuchAlgorithmException {
+    private static void generateSHAKeyStream(MessageDigest sha, long counter, byte[] keyStream, int start, int length) {
         int offset = 0;
         while (offset < length) {
             byte[] counterBytes = longToBytes(counter);
@@ -93,7 +72,7 @@ public class StreamCipherTester {
             byte[] hash = sha.digest();
 
             int bytesToCopy = Math.min(hash.length, length - offset);
-            System.arraycopy(hash, 0, keyStream, offset, bytesToCopy);
+            System.arraycopy(hash, 0, keyStream, start + offset, bytesToCopy);
 
             offset += bytesToCopy;
             counter++;
@@ -105,34 +84,19 @@ public class StreamCipherTester {
      */
     private static void encryptWithSimpleCA(String inputFile, String outputFile, String password)
             throws IOException {
-        try (FileInputStream fis = new FileInputStream(inputFile);
-             FileOutputStream fos = new FileOutputStream(outputFile)) {
-
-            // Створюємо простий КА з 256 клітинами
-            SimpleCA ca = new SimpleCA(256, password);
+        // Створюємо простий КА з 256 клітинами
+        SimpleCA ca = new SimpleCA(256, password);
 
-            byte[] buffer = new byte[BUFFER_SIZE];
-            byte[] keyStream = new byte[BUFFER_SIZE];
-            int bytesRead;
-            long totalBytesProcessed = 0;
-
-            while ((bytesRead = fis.read(buffer)) != -1) {
-                // Генерація ключового потоку
-                ca.generateKeyStream(keyStream, bytesRead);
-
-                // XOR для шифрування
-                for (int i = 0; i < bytesRead; i++) {
-                    buffer[i] = (byte) (buffer[i] ^ keyStream[i]);
-                }
-
-                fos.write(buffer, 0, bytesRead);
+        StreamingFileCipher.transform(Paths.get(inputFile), Paths.get(outputFile), ca,
+                StreamCipherTester::printProgress);
+    }
 
-                // Виводимо прогрес
-                totalBytesProcessed += bytesRead;
-                if (totalBytesProcessed % (5 * 1024 * 1024) == 0) {
-                    System.out.println("Оброблено " + formatFileSize(totalBytesProcessed));
-                }
-            }
+    /**
+     * Виводить прогрес обробки кожні 5 МБ
+     */
+    private static void printProgress(long totalBytesProcessed) {
+        if (totalBytesProcessed % (5 * 1024 * 1024) == 0) {
+            System.out.println("Оброблено " + formatFileSize(totalBytesProcessed));
         }
     }
 
@@ -228,7 +192,8 @@ public class StreamCipherTester {
             System.out.println("\n=== Шифрування з використанням розширеного КА (набір 1) ===");
             String advCaEncryptedFilePath1 = "adv_ca_encrypted_set1.dat";
             long advCaStartTime1 = System.currentTimeMillis();
-            AdvancedCellularAutomata.encryptFile(inputFilePath, advCaEncryptedFilePath1, password, RULE_SET_1);
+            CheckpointIndex advCaIndex1 =
+                    AdvancedCellularAutomata.encryptFile(inputFilePath, advCaEncryptedFilePath1, password, RULE_SET_1);
             long advCaEndTime1 = System.currentTimeMillis();
             System.out.println("Файл зашифровано: " + advCaEncryptedFilePath1);
             System.out.println("Час шифрування: " + (advCaEndTime1 - advCaStartTime1) + " мс");
@@ -264,9 +229,9 @@ public class StreamCipherTester {
             boolean caSame = compareFiles(inputFilePath, caDecryptedFilePath);
             System.out.println("Простий КА розшифрування: " + (caSame ? "Успішно" : "Помилка"));
 
-            // Перевіряємо розширений КА шифр (набір 1)
+            // Перевіряємо розширений КА шифр (набір 1) паралельним дешифруванням частинами з індексу шифрування
             String advCaDecryptedFilePath1 = "adv_ca_decrypted_set1.dat";
-            AdvancedCellularAutomata.encryptFile(advCaEncryptedFilePath1, advCaDecryptedFilePath1, password, RULE_SET_1);
+            AdvancedCellularAutomata.transformFileChunked(advCaEncryptedFilePath1, advCaDecryptedFilePath1, advCaIndex1);
             boolean advCaSame1 = compareFiles(inputFilePath, advCaDecryptedFilePath1);
             System.out.println("Розширений КА (набір 1) розшифрування: " + (advCaSame1 ? "Успішно" : "Помилка"));
 
@@ -0,0 +1,290 @@
+package com.ivan.lab2;
+
+import com.ivan.lab1.FrequencyAnalyzer;
+import com.ivan.utils.FileManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Ciphertext-only attack on the Caesar and affine ciphers by letter statistics.
+ * <p>
+ * The ciphertext is reduced to one letter histogram (counted in parallel for files). A candidate key (a, b)
+ * maps plaintext letter x to ciphertext letter (a * x + b) mod m, so the plaintext histogram of that key is
+ * a permutation of the ciphertext histogram and every key is scored in O(m) against the expected letter
+ * frequencies of the language, independently of the text length. The Caesar cipher is the case a = 1.
+ */
+public final class AffineCipherCracker {
+
+    /**
+     * Language of the plaintext with its alphabet and expected letter frequencies.
+     */
+    public enum Language {
+        // Letter frequencies in percent, in alphabet order
+        ENGLISH(FrequencyAnalyzer.LATIN, FrequencyAnalyzer.englishPercentages()),
+        UKRAINIAN(FrequencyAnalyzer.UKRAINIAN, new double[]{
+                7.2, 1.7, 5.2, 1.6, 0.01, 3.5, 4.7, 0.4, 0.9, 2.3, 6.1, 5.7, 0.6, 1.1, 3.5, 3.6, 3.1,
+                6.5, 9.4, 2.9, 4.7, 4.1, 5.5, 4.0, 0.3, 1.2, 1.0, 1.8, 0.8, 0.5, 1.7, 0.8, 2.9
+        });
+
+        private final FrequencyAnalyzer analyzer;
+        private final double[] probabilities;
+        private final double[] logProbabilities;
+
+        Language(FrequencyAnalyzer analyzer, double[] percentages) {
+            if (percentages.length != analyzer.size()) {
+                throw new IllegalArgumentException("Expected " + analyzer.size() + " letter frequencies");
+            }
+            this.analyzer = analyzer;
+            this.probabilities = FrequencyAnalyzer.toProbabilities(percentages);
+            this.logProbabilities = new double[percentages.length];
+            for (int i = 0; i < percentages.length; i++) {
+                logProbabilities[i] = Math.log(probabilities[i]);
+            }
+        }
+
+        public FrequencyAnalyzer getAnalyzer() {
+            return analyzer;
+        }
+
+        /**
+         * @return the alphabet size m
+         */
+        public int size() {
+            return probabilities.length;
+        }
+
+        /**
+         * @param letter the alphabet index
+         * @return the expected probability of the letter in plaintext
+         */
+        public double probability(int letter) {
+            return probabilities[letter];
+        }
+    }
+
+    /**
+     * Goodness-of-fit measure of a candidate plaintext histogram; lower scores are better for both.
+     */
+    public enum Statistic {
+        /**
+         * Pearson's chi-squared: sum of (observed - expected)^2 / expected,
+         * see {@link FrequencyAnalyzer.Counts#chiSquared(double[], int, int)}.
+         */
+        CHI_SQUARED,
+        /**
+         * Negative log-likelihood of the letters under the language model: - sum of observed * log(p).
+         */
+        LOG_LIKELIHOOD
+    }
+
+    /**
+     * A scored key (a, b); decryption is x = a^(-1) * (y - b) mod m.
+     */
+    public static final class Candidate {
+        private final Language language;
+        private final int a;
+        private final int b;
+        private final int aInverse;
+        private final double score;
+
+        Candidate(Language language, int a, int b, int aInverse, double score) {
+            this.language = language;
+            this.a = a;
+            this.b = b;
+            this.aInverse = aInverse;
+            this.score = score;
+        }
+
+        public int getA() {
+            return a;
+        }
+
+        public int getB() {
+            return b;
+        }
+
+        /**
+         * @return the Caesar shift of this key (equal to b when a = 1)
+         */
+        public int getShift() {
+            return b;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        public Language getLanguage() {
+            return language;
+        }
+
+        /**
+         * Decrypts the letters of the language alphabet with this key, keeping their case;
+         * all other characters are copied unchanged.
+         *
+         * @param cipherText the ciphertext
+         * @return the candidate plaintext
+         */
+        public String decrypt(CharSequence cipherText) {
+            FrequencyAnalyzer analyzer = language.getAnalyzer();
+            int m = analyzer.size();
+            StringBuilder plainText = new StringBuilder(cipherText.length());
+            for (int i = 0; i < cipherText.length(); i++) {
+                char c = cipherText.charAt(i);
+                int y = analyzer.indexOf(c);
+                if (y < 0) {
+                    plainText.append(c);
+                    continue;
+                }
+                char letter = analyzer.letter(aInverse * (y - b + m) % m);
+                plainText.append(Character.isUpperCase(c) ? Character.toUpperCase(letter) : letter);
+            }
+            return plainText.toString();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("a=%d, b=%d, score=%.2f", a, b, score);
+        }
+    }
+
+    private AffineCipherCracker() {
+    }
+
+    /**
+     * Scores all m Caesar shifts of the letter counts.
+     *
+     * @param counts    the ciphertext counts over the language alphabet
+     * @param language  the plaintext language
+     * @param statistic the scoring function
+     * @return all shifts, best first
+     */
+    public static List<Candidate> crackCaesar(FrequencyAnalyzer.Counts counts, Language language, Statistic statistic) {
+        return rank(counts, language, statistic, true);
+    }
+
+    /**
+     * Scores all affine keys (a coprime with m, 0 <= b < m) of the letter counts:
+     * 312 keys for English and 660 for Ukrainian.
+     *
+     * @param counts    the ciphertext counts over the language alphabet
+     * @param language  the plaintext language
+     * @param statistic the scoring function
+     * @return all keys, best first
+     */
+    public static List<Candidate> crackAffine(FrequencyAnalyzer.Counts counts, Language language, Statistic statistic) {
+        return rank(counts, language, statistic, false);
+    }
+
+    /**
+     * Scores all Caesar shifts of a text.
+     *
+     * @param cipherText the ciphertext
+     * @param language   the plaintext language
+     * @return all shifts by chi-squared, best first
+     */
+    public static List<Candidate> crackCaesar(CharSequence cipherText, Language language) {
+        return crackCaesar(language.getAnalyzer().count(cipherText), language, Statistic.CHI_SQUARED);
+    }
+
+    /**
+     * Scores all affine keys of a text.
+     *
+     * @param cipherText the ciphertext
+     * @param language   the plaintext language
+     * @return all keys by chi-squared, best first
+     */
+    public static List<Candidate> crackAffine(CharSequence cipherText, Language language) {
+        return crackAffine(language.getAnalyzer().count(cipherText), language, Statistic.CHI_SQUARED);
+    }
+
+    /**
+     * Scores all affine keys of a UTF-8 file of any size; the histogram is counted in parallel ranges
+     * of the file, then each key costs O(m).
+     *
+     * @param file      the ciphertext file
+     * @param language  the plaintext language
+     * @param statistic the scoring function
+     * @param pool      the pool that counts the file ranges
+     * @return all keys, best first
+     * @throws IOException if the file cannot be read
+     */
+    public static List<Candidate> crackAffine(Path file, Language language, Statistic statistic, ForkJoinPool pool)
+            throws IOException {
+        return crackAffine(language.getAnalyzer().countFile(file, pool), language, statistic);
+    }
+
+    private static List<Candidate> rank(FrequencyAnalyzer.Counts counts, Language language, Statistic statistic,
+                                        boolean caesarOnly) {
+        if (counts.getAnalyzer() != language.getAnalyzer()) {
+            throw new IllegalArgumentException("Counts are not over the " + language + " alphabet");
+        }
+        int m = language.size();
+        long[] histogram = counts.getUnigrams();
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (int a = 1; a < m; a++) {
+            int aInverse = AffineCipherDecrypt.modInverse(a, m);
+            if (aInverse < 0 || (caesarOnly && a != 1)) {
+                continue;
+            }
+            for (int b = 0; b < m; b++) {
+                double score = statistic == Statistic.CHI_SQUARED
+                        ? counts.chiSquared(language.probabilities, a, b)
+                        : negativeLogLikelihood(histogram, language.logProbabilities, a, b);
+                candidates.add(new Candidate(language, a, b, aInverse, score));
+            }
+        }
+        candidates.sort(Comparator.comparingDouble(Candidate::getScore)
+                .thenComparingInt(Candidate::getA)
+                .thenComparingInt(Candidate::getB));
+        return candidates;
+    }
+
+    private static double negativeLogLikelihood(long[] histogram, double[] logProbabilities, int a, int b) {
+        int m = histogram.length;
+        double score = 0;
+        // Plaintext letter x appears as ciphertext letter y = (a * x + b) mod m
+        for (int x = 0, y = b; x < m; x++, y = (y + a) % m) {
+            score -= histogram[y] * logProbabilities[x];
+        }
+        return score;
+    }
+
+    public static void main(String[] args) {
+        try {
+            String cipherText = FileManager.readEncryptedFile();
+            // Skip the "Key a:" and "Key b:" lines written by AffineCipherEncrypt, so the attack does not see them
+            while (cipherText.startsWith("Key ")) {
+                int newLine = cipherText.indexOf('\n');
+                cipherText = newLine < 0 ? "" : cipherText.substring(newLine + 1);
+            }
+
+            // Pick the language whose alphabet covers more letters of the ciphertext
+            Language language = FrequencyAnalyzer.UKRAINIAN.count(cipherText).getLetterCount()
+                    > FrequencyAnalyzer.LATIN.count(cipherText).getLetterCount() ? Language.UKRAINIAN : Language.ENGLISH;
+            FrequencyAnalyzer.Counts counts = language.getAnalyzer().count(cipherText);
+            System.out.println("Language: " + language + ", letters: " + counts.getLetterCount());
+
+            for (Statistic statistic : Statistic.values()) {
+                List<Candidate> caesar = crackCaesar(counts, language, statistic);
+                List<Candidate> affine = crackAffine(counts, language, statistic);
+                System.out.println("\n" + statistic + ", best Caesar shifts:");
+                caesar.stream().limit(3).forEach(candidate -> System.out.println("  " + candidate));
+                System.out.println(statistic + ", best affine keys (of " + affine.size() + "):");
+                affine.stream().limit(3).forEach(candidate -> System.out.println("  " + candidate));
+            }
+
+            Candidate best = crackAffine(counts, language, Statistic.CHI_SQUARED).get(0);
+            System.out.println("\nDecrypted text with a=" + best.getA() + ", b=" + best.getB() + ":");
+            System.out.println(best.decrypt(cipherText));
+        } catch (IOException e) {
+            System.out.println("File operation error: " + e.getMessage());
+        }
+    }
+}
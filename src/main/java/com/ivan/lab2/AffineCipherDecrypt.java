@@ -1,10 +1,21 @@
 package com.ivan.lab2;
 
 import com.ivan.utils.FileManager;
+import com.ivan.utils.MonoalphabeticTransform;
+import com.ivan.utils.StreamingTextCipher;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 public class AffineCipherDecrypt {
+    // Longest accepted "Key a: X" line, so a file without keys is not read to its end
+    private static final int MAX_KEY_LINE = 64;
 
     /**
      * Computes the greatest common divisor (GCD) of two integers using the Euclidean algorithm.
@@ -36,7 +47,7 @@ public class AffineCipherDecrypt {
      * @param m the modulus
      * @return the modular inverse, or -1 if none exists
      */
-    private static int modInverse(int a, int m) {
+    static int modInverse(int a, int m) {
         // Normalize a to ensure it’s positive and less than m
         a = a % m;
         // Test x from 1 to m-1 to find (a * x) mod m = 1
@@ -55,12 +66,12 @@ public class AffineCipherDecrypt {
      * computing x = a^(-1) * (y - b) mod 26, where a^(-1) is the modular inverse of a mod 26.
      * Non-letter characters remain unchanged.
      *
-     * @param c the encrypted character
-     * @param a the multiplicative key used for encryption
-     * @param b the additive key used for encryption
+     * @param c        the encrypted character
+     * @param aInverse the modular inverse of the multiplicative key mod 26
+     * @param b        the additive key used for encryption
      * @return the decrypted character
      */
-    private static char decryptChar(char c, int a, int b) {
+    private static char decryptChar(char c, int aInverse, int b) {
         if (!Character.isLetter(c)) {
             return c;
         }
@@ -68,11 +79,6 @@ public class AffineCipherDecrypt {
         char base = Character.isUpperCase(c) ? 'A' : 'a';
         // Convert encrypted character to 0-based index (e.g., 'B' - 'A' = 1)
         int y = c - base;
-        // Find modular inverse of a mod 26
-        int aInverse = modInverse(a, 26);
-        if (aInverse == -1) {
-            throw new IllegalArgumentException("Cannot find modular inverse for a.");
-        }
         // Decrypt: a^(-1) * (y - b) mod 26
         // 1. (y - b + 26): Subtract b, add 26 to avoid negative values
         // 2. * aInverse: Multiply by inverse of a
@@ -82,36 +88,82 @@ public class AffineCipherDecrypt {
         return (char) (base + decrypted);
     }
 
-    public static void main(String[] args) {
-        try {
-            String cipherText = FileManager.readEncryptedFile();
-
-            // Split file into lines (expects "Key a: X", "Key b: Y", ciphertext)
-            String[] lines = cipherText.split("\n");
-            if (lines.length < 2) {
-                System.out.println("Error: File does not contain keys.");
-                return;
-            }
+    /**
+     * Compiles the affine decryption with keys a and b into a lookup table.
+     * The modular inverse of a is found once, and the rules of {@link #decryptChar(char, int, int)}
+     * are evaluated once per character value, so decrypting is one lookup per character.
+     *
+     * @param a the multiplicative key used for encryption
+     * @param b the additive key used for encryption
+     * @return the decryption transform
+     * @throws IllegalArgumentException if a has no inverse mod 26
+     */
+    public static MonoalphabeticTransform decryptor(int a, int b) {
+        // Find modular inverse of a mod 26
+        int aInverse = modInverse(a, 26);
+        if (aInverse == -1) {
+            throw new IllegalArgumentException("Cannot find modular inverse for a.");
+        }
+        return MonoalphabeticTransform.of(c -> decryptChar((char) c, aInverse, b));
+    }
 
+    /**
+     * Decrypts a UTF-8 file written by {@link AffineCipherEncrypt#encryptFile(Path, Path, int, int)},
+     * streaming it through bounded buffers. The keys are read from the "Key a:" and "Key b:" lines
+     * at the start of the file; the ciphertext after them is decrypted with its exact line endings.
+     *
+     * @param input  the ciphertext file with the key lines
+     * @param output the plaintext file (created or truncated)
+     * @return the number of ciphertext bytes processed, without the key lines
+     * @throws IOException              if a file cannot be read or written
+     * @throws IllegalArgumentException if the key lines are missing or a is not coprime with 26
+     */
+    public static long decryptFile(Path input, Path output) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(input));
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
             // Parse a from first line, skipping "Key a: " prefix
-            int a = Integer.parseInt(lines[0].substring(7).trim());
+            int a = parseKey(readLine(in), "Key a: ");
             // Parse b from second line, skipping "Key b: " prefix
-            int b = Integer.parseInt(lines[1].substring(7).trim());
-
+            int b = parseKey(readLine(in), "Key b: ");
             // Verify a is coprime with 26 (GCD must be 1 for inverse)
             if (gcd(a, 26) != 1) {
-                System.out.println("Error: a and 26 must be coprime.");
-                return;
+                throw new IllegalArgumentException("a and 26 must be coprime.");
             }
+            return StreamingTextCipher.transform(in, out, StandardCharsets.UTF_8, decryptor(a, b));
+        }
+    }
 
-            StringBuilder plainText = new StringBuilder();
-            // Process ciphertext, skipping key lines (length + 2 for newlines)
-            for (char c : cipherText.substring(lines[0].length() + lines[1].length() + 2).toCharArray()) {
-                plainText.append(decryptChar(c, a, b));
+    /**
+     * Reads one key line byte by byte, so the stream stays positioned at the start of the ciphertext.
+     */
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1 && c != '\n') {
+            if (line.length() == MAX_KEY_LINE) {
+                throw new IllegalArgumentException("File does not contain keys.");
             }
+            line.append((char) c);
+        }
+        if (c == -1) {
+            throw new IllegalArgumentException("File does not contain keys.");
+        }
+        return line.toString().trim();
+    }
 
-            System.out.println("Decrypted text:");
-            System.out.println(plainText);
+    private static int parseKey(String line, String prefix) {
+        if (!line.startsWith(prefix)) {
+            throw new IllegalArgumentException("File does not contain keys.");
+        }
+        return Integer.parseInt(line.substring(prefix.length()).trim());
+    }
+
+    public static void main(String[] args) {
+        try {
+            // The ciphertext is streamed, so it is not limited by the heap and keeps its exact bytes
+            long size = decryptFile(FileManager.resourcePath(FileManager.OUTPUT_FILE),
+                    FileManager.resourcePath(FileManager.DECRYPTED_FILE));
+            System.out.println("Decrypted text saved to decrypted.txt (" + size + " bytes).");
 
         } catch (IOException e) {
             System.out.println("File operation error: " + e.getMessage());
@@ -2,8 +2,16 @@ package com.ivan.lab2;
 
 import com.ivan.utils.FileManager;
 import com.ivan.utils.Locale;
+import com.ivan.utils.MonoalphabeticTransform;
+import com.ivan.utils.StreamingTextCipher;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Scanner;
 
 public class AffineCipherEncrypt {
@@ -54,6 +62,41 @@ public class AffineCipherEncrypt {
         return (char) (base + encrypted);
     }
 
+    /**
+     * Compiles the affine encryption with keys a and b into a lookup table.
+     * The rules of {@link #encryptChar(char, int, int)} are evaluated once per character value,
+     * so the returned transform encrypts any amount of text with one lookup per character.
+     *
+     * @param a the multiplicative key (must be coprime with 26)
+     * @param b the additive key
+     * @return the encryption transform
+     */
+    public static MonoalphabeticTransform encryptor(int a, int b) {
+        return MonoalphabeticTransform.of(c -> encryptChar((char) c, a, b));
+    }
+
+    /**
+     * Encrypts a UTF-8 text file of any size with the affine cipher, streaming it through bounded buffers.
+     * The output starts with the "Key a:" and "Key b:" lines read by {@link AffineCipherDecrypt},
+     * followed by the ciphertext; the text is not trimmed and its line endings are kept.
+     *
+     * @param input  the plaintext file
+     * @param output the ciphertext file (created or truncated)
+     * @param a      the multiplicative key (must be coprime with 26)
+     * @param b      the additive key
+     * @return the number of plaintext bytes processed
+     * @throws IOException if a file cannot be read or written
+     */
+    public static long encryptFile(Path input, Path output, int a, int b) throws IOException {
+        MonoalphabeticTransform encryptor = encryptor(a, b);
+        try (InputStream in = Files.newInputStream(input);
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+            // Format output with keys followed by ciphertext
+            out.write(("Key a: " + a + "\n" + "Key b: " + b + "\n").getBytes(StandardCharsets.UTF_8));
+            return StreamingTextCipher.transform(in, out, StandardCharsets.UTF_8, encryptor);
+        }
+    }
+
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
         System.out.println("Enter key a (coprime with 26):");
@@ -73,20 +116,9 @@ public class AffineCipherEncrypt {
         }
 
         try {
-            String plainText = FileManager.readInputFile(Locale.EN);
-
-            StringBuilder cipherText = new StringBuilder();
-            for (char c : plainText.toCharArray()) {
-                cipherText.append(encryptChar(c, a, b));
-            }
-
-            // Format output with keys followed by ciphertext
-            String output = "Key a: " + a + "\n" +
-                    "Key b: " + b + "\n" +
-                    cipherText;
-
-            FileManager.writeOutputFile(output);
-            System.out.println("Ciphertext saved to encrypted.txt with keys.");
+            // The input is streamed, so it is not limited by the heap and keeps its exact bytes
+            long size = encryptFile(FileManager.inputPath(Locale.EN), FileManager.resourcePath(FileManager.OUTPUT_FILE), a, b);
+            System.out.println("Ciphertext saved to encrypted.txt with keys (" + size + " bytes).");
 
         } catch (IOException e) {
             System.out.println("File operation error: " + e.getMessage());
@@ -0,0 +1,183 @@
+package com.ivan.lab3;
+
+import com.ivan.utils.Alphabet;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Streaming gamma of the Vernam cipher over the 32-letter Ukrainian alphabet.
+ * <p>
+ * The sequence y starts with the three key values and continues as y[t] = (y[t-1] + y[t-3]) mod 32;
+ * the gamma is z[t] = (y[t] + y[t+1]) mod 32. Only the three most recent values of y are kept, so the
+ * gamma is produced on demand with O(1) memory, and encryption and decryption add or subtract it and
+ * map the result to a letter in the same pass. Each instance continues its sequence across calls.
+ */
+public final class VernamGamma {
+    public static final int MODULUS = 32;
+    private static final Alphabet ALPHABET = Alphabet.UKRAINIAN;
+    private static final int BUFFER_SIZE = 8192;
+
+    // y[t], y[t+1] and y[t+2] for the next gamma value z[t]
+    private int y0;
+    private int y1;
+    private int y2;
+
+    /**
+     * Creates the gamma for a key.
+     *
+     * @param key array of three initial key values (0-31)
+     */
+    public VernamGamma(int[] key) {
+        if (key.length != 3) {
+            throw new IllegalArgumentException("Key must have three values");
+        }
+        for (int k : key) {
+            if (k < 0 || k >= MODULUS) {
+                throw new IllegalArgumentException("Key numbers must be in range 0-31.");
+            }
+        }
+        this.y0 = key[0];
+        this.y1 = key[1];
+        this.y2 = key[2];
+    }
+
+    /**
+     * Produces the next gamma value.
+     * The algorithm returns z[t] = (y[t] + y[t+1]) mod 32 and shifts the state by one,
+     * computing y[t+3] = (y[t+2] + y[t]) mod 32.
+     *
+     * @return the gamma value (0-31)
+     */
+    public int next() {
+        int z = (y0 + y1) % MODULUS;
+        int y3 = (y2 + y0) % MODULUS;
+        y0 = y1;
+        y1 = y2;
+        y2 = y3;
+        return z;
+    }
+
+    /**
+     * Produces the next {@code length} gamma values.
+     *
+     * @param gamma  the destination
+     * @param offset the first index to write
+     * @param length the number of values
+     */
+    public void next(int[] gamma, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            gamma[offset + i] = next();
+        }
+    }
+
+    /**
+     * Generates a gamma sequence of the given length from the start of the key.
+     *
+     * @param key    array of three initial key values (0-31)
+     * @param length desired length of the gamma sequence
+     * @return the gamma sequence as an integer array
+     */
+    public static int[] generate(int[] key, int length) {
+        int[] gamma = new int[length];
+        new VernamGamma(key).next(gamma, 0, length);
+        return gamma;
+    }
+
+    /**
+     * Encrypts letters in place: c[t] = (p[t] + z[t]) mod 32.
+     *
+     * @param text   the plaintext letters, replaced by the ciphertext
+     * @param offset the first letter
+     * @param length the number of letters
+     * @return the index of the first character that is not in the alphabet (the gamma stops before it),
+     * or -1 if all were encrypted
+     */
+    public int encrypt(char[] text, int offset, int length) {
+        return apply(text, offset, length, false);
+    }
+
+    /**
+     * Decrypts letters in place: p[t] = (c[t] - z[t]) mod 32.
+     *
+     * @param text   the ciphertext letters, replaced by the plaintext
+     * @param offset the first letter
+     * @param length the number of letters
+     * @return the index of the first character that is not in the alphabet (the gamma stops before it),
+     * or -1 if all were decrypted
+     */
+    public int decrypt(char[] text, int offset, int length) {
+        return apply(text, offset, length, true);
+    }
+
+    /**
+     * Encrypts a letter stream of any length with constant memory.
+     *
+     * @param in  the plaintext, read until its end (not closed)
+     * @param out the ciphertext destination (not closed or flushed)
+     * @return the number of letters encrypted
+     * @throws IOException              if the source cannot be read or the destination written
+     * @throws IllegalArgumentException if the plaintext contains a character outside the alphabet
+     */
+    public long encrypt(Reader in, Writer out) throws IOException {
+        return apply(in, out, false);
+    }
+
+    /**
+     * Decrypts a letter stream of any length with constant memory.
+     *
+     * @param in  the ciphertext, read until its end (not closed)
+     * @param out the plaintext destination (not closed or flushed)
+     * @return the number of letters decrypted
+     * @throws IOException              if the source cannot be read or the destination written
+     * @throws IllegalArgumentException if the ciphertext contains a character outside the alphabet
+     */
+    public long decrypt(Reader in, Writer out) throws IOException {
+        return apply(in, out, true);
+    }
+
+    private long apply(Reader in, Writer out, boolean decrypt) throws IOException {
+        char[] buffer = new char[BUFFER_SIZE];
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            int invalid = apply(buffer, 0, read, decrypt);
+            if (invalid >= 0) {
+                throw new IllegalArgumentException("Invalid character at position " + (total + invalid)
+                        + ": " + buffer[invalid]);
+            }
+            out.write(buffer, 0, read);
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Generates the gamma, adds or subtracts it and maps the result back to a letter in one pass.
+     */
+    private int apply(char[] text, int offset, int length, boolean decrypt) {
+        int a = y0;
+        int b = y1;
+        int c = y2;
+        int invalid = -1;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            int index = ALPHABET.indexOf(text[i]);
+            if (index < 0) {
+                invalid = i;
+                break;
+            }
+            int z = (a + b) % MODULUS;
+            int next = (c + a) % MODULUS;
+            a = b;
+            b = c;
+            c = next;
+            // Subtraction uses (32 - z) to keep the result positive
+            text[i] = ALPHABET.charAt((index + (decrypt ? MODULUS - z : z)) % MODULUS);
+        }
+        y0 = a;
+        y1 = b;
+        y2 = c;
+        return invalid;
+    }
+}
@@ -0,0 +1,186 @@
+package com.ivan.lab3;
+
+import lombok.experimental.UtilityClass;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Streaming text preparation around {@link VernamGamma}, one buffer at a time.
+ * <p>
+ * The Vernam alphabet has no space, so the plaintext is upper-cased, line breaks become spaces, leading
+ * and trailing whitespace is dropped and every space is written as the pair "ФЯ". After decryption the
+ * pairs are turned back into spaces and the text is lower-cased. Both directions keep only a few
+ * characters of state, so texts of any size pass through in constant memory.
+ */
+@UtilityClass
+class VernamText {
+    // Letters that encode a space in the plaintext
+    private static final char SPACE_FIRST = 'Ф';
+    private static final char SPACE_SECOND = 'Я';
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * @param in the raw plaintext (closed with the returned reader)
+     * @return the plaintext prepared for encryption
+     */
+    static Reader encodeSpaces(Reader in) {
+        return new EncodingReader(in);
+    }
+
+    /**
+     * @param out the destination of the restored text (closed with the returned writer)
+     * @return a writer that restores spaces and lower case; close it to write the last character
+     */
+    static Writer decodeSpaces(Writer out) {
+        return new DecodingWriter(out);
+    }
+
+    private static final class EncodingReader extends Reader {
+        private final Reader in;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private int position;
+        private int limit;
+        // False until the first character that is not whitespace, which drops the leading whitespace
+        private boolean started;
+        // Spaces and line breaks seen after the last letter; written only when another letter follows
+        private long pendingSpaces;
+        // First other whitespace character of the pending run, passed on so the cipher rejects it
+        private char pendingInvalid;
+        private boolean afterCarriageReturn;
+        // Output waiting for room in the caller's buffer: spaces being encoded, then the letter after them
+        private long spacesToWrite;
+        private boolean secondToWrite;
+        private char invalidToWrite;
+        private int letterToWrite = -1;
+
+        EncodingReader(Reader in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read(char[] chars, int offset, int length) throws IOException {
+            int count = 0;
+            while (count < length) {
+                if (secondToWrite) {
+                    chars[offset + count++] = SPACE_SECOND;
+                    secondToWrite = false;
+                } else if (spacesToWrite > 0) {
+                    chars[offset + count++] = SPACE_FIRST;
+                    spacesToWrite--;
+                    secondToWrite = true;
+                } else if (invalidToWrite != 0) {
+                    chars[offset + count++] = invalidToWrite;
+                    invalidToWrite = 0;
+                } else if (letterToWrite >= 0) {
+                    chars[offset + count++] = (char) letterToWrite;
+                    letterToWrite = -1;
+                } else if (position < limit) {
+                    accept(buffer[position++]);
+                } else if (count > 0) {
+                    break;
+                } else {
+                    limit = in.read(buffer);
+                    position = 0;
+                    if (limit < 0) {
+                        // Trailing whitespace is dropped
+                        limit = 0;
+                        return -1;
+                    }
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Queues the output of one input character.
+         */
+        private void accept(char c) {
+            // Whitespace as trimmed by String.trim
+            if (c <= ' ') {
+                if (!started || (c == '\n' && afterCarriageReturn)) {
+                    afterCarriageReturn = false;
+                    return;
+                }
+                afterCarriageReturn = c == '\r';
+                if (c == ' ' || c == '\n' || c == '\r') {
+                    pendingSpaces++;
+                } else if (pendingInvalid == 0) {
+                    pendingInvalid = c;
+                }
+                return;
+            }
+            started = true;
+            afterCarriageReturn = false;
+            spacesToWrite = pendingSpaces;
+            invalidToWrite = pendingInvalid;
+            letterToWrite = Character.toUpperCase(c);
+            pendingSpaces = 0;
+            pendingInvalid = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static final class DecodingWriter extends Writer {
+        private final Writer out;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        // The last character was SPACE_FIRST, which is a space if SPACE_SECOND follows
+        private boolean afterFirst;
+
+        DecodingWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            int count = 0;
+            for (int i = offset, end = offset + length; i < end; i++) {
+                // Room for a held SPACE_FIRST and the current character
+                if (count > buffer.length - 2) {
+                    out.write(buffer, 0, count);
+                    count = 0;
+                }
+                char c = chars[i];
+                if (afterFirst) {
+                    afterFirst = false;
+                    if (c == SPACE_SECOND) {
+                        buffer[count++] = ' ';
+                        continue;
+                    }
+                    buffer[count++] = Character.toLowerCase(SPACE_FIRST);
+                }
+                if (c == SPACE_FIRST) {
+                    afterFirst = true;
+                } else {
+                    buffer[count++] = Character.toLowerCase(c);
+                }
+            }
+            out.write(buffer, 0, count);
+        }
+
+        /**
+         * Flushes the destination; a trailing SPACE_FIRST is held until the next write or close.
+         */
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (afterFirst) {
+                    afterFirst = false;
+                    out.write(Character.toLowerCase(SPACE_FIRST));
+                }
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.ivan.lab4;
+
+/**
+ * Double S-DES: C = E_K2(E_K1(P)) with two independent 10-bit keys (20 key bits in total).
+ * Both layers are composed into single 256-entry tables, so a byte is still one lookup.
+ */
+public final class DoubleSDES {
+    public static final int KEY_BITS = 2 * SDESEngine.KEY_BITS;
+
+    private final int key1;
+    private final int key2;
+    private final byte[] encryptTable = new byte[256];
+    private final byte[] decryptTable = new byte[256];
+
+    /**
+     * Creates double S-DES with the standard S-DES tables.
+     *
+     * @param key1 the 10-bit key of the first (inner) encryption
+     * @param key2 the 10-bit key of the second (outer) encryption
+     */
+    public DoubleSDES(int key1, int key2) {
+        this(key1, key2, SDESParameters.STANDARD);
+    }
+
+    /**
+     * Creates double S-DES with custom permutation tables and S-boxes.
+     *
+     * @param key1       the 10-bit key of the first (inner) encryption
+     * @param key2       the 10-bit key of the second (outer) encryption
+     * @param parameters the tables and S-boxes of both layers
+     */
+    public DoubleSDES(int key1, int key2, SDESParameters parameters) {
+        SDESEngine inner = new SDESEngine(key1, parameters);
+        SDESEngine outer = new SDESEngine(key2, parameters);
+        this.key1 = key1;
+        this.key2 = key2;
+        for (int block = 0; block < 256; block++) {
+            encryptTable[block] = outer.encrypt(inner.encrypt((byte) block));
+            decryptTable[block] = inner.decrypt(outer.decrypt((byte) block));
+        }
+    }
+
+    /**
+     * Creates double S-DES from a 20-bit combined key, K1 in the high 10 bits.
+     *
+     * @param key the combined key (0 to 2^20 - 1)
+     * @return the cipher
+     */
+    public static DoubleSDES fromCombinedKey(long key) {
+        if (key < 0 || key >= 1L << KEY_BITS) {
+            throw new IllegalArgumentException("Key must be a 20-bit value: " + key);
+        }
+        return new DoubleSDES((int) (key >>> SDESEngine.KEY_BITS), (int) (key & (SDESEngine.KEY_COUNT - 1)));
+    }
+
+    public int getKey1() {
+        return key1;
+    }
+
+    public int getKey2() {
+        return key2;
+    }
+
+    /**
+     * @return the 20-bit combined key, K1 in the high 10 bits
+     */
+    public long getCombinedKey() {
+        return ((long) key1 << SDESEngine.KEY_BITS) | key2;
+    }
+
+    public byte encrypt(byte block) {
+        return encryptTable[block & 0xFF];
+    }
+
+    public byte decrypt(byte block) {
+        return decryptTable[block & 0xFF];
+    }
+
+    /**
+     * Encrypts every byte of {@code in} into {@code out}; the arrays may be the same.
+     */
+    public void encrypt(byte[] in, byte[] out) {
+        for (int i = 0; i < in.length; i++) {
+            out[i] = encryptTable[in[i] & 0xFF];
+        }
+    }
+
+    /**
+     * Decrypts every byte of {@code in} into {@code out}; the arrays may be the same.
+     */
+    public void decrypt(byte[] in, byte[] out) {
+        for (int i = 0; i < in.length; i++) {
+            out[i] = decryptTable[in[i] & 0xFF];
+        }
+    }
+}
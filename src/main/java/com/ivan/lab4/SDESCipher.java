@@ -4,29 +4,16 @@ import com.ivan.utils.FileManager;
 import com.ivan.utils.Locale;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Scanner;
 
 public class SDESCipher {
-    // Initial permutation table (maps 8-bit input positions to output)
-    private static final int[] IP = {2, 6, 3, 1, 4, 8, 5, 7};
-    // Inverse initial permutation table
-    private static final int[] IP_INV = {4, 1, 3, 5, 7, 2, 8, 6};
-    // Expansion permutation table (expands 4 bits to 8, with repeats)
-    private static final int[] EP = {4, 1, 2, 3, 2, 3, 4, 1};
-    // Key permutation table (selects 10 bits from key)
-    private static final int[] P10 = {3, 5, 2, 7, 4, 10, 1, 9, 8, 6};
-    // Subkey permutation table (selects 8 bits from 10)
-    private static final int[] P8 = {6, 3, 7, 4, 8, 5, 10, 9};
-    // Permutation table for S-box output (4 bits)
-    private static final int[] P4 = {2, 4, 3, 1};
-    // S-box 0: Maps 4-bit input to 2-bit output (row: bits 1,4; col: bits 2,3)
-    public static final int[][] S0 = {
-            {1, 0, 3, 2}, {3, 2, 1, 0}, {0, 2, 1, 3}, {3, 1, 3, 2}
-    };
-    // S-box 1: Similar mapping for second 4-bit input
-    public static final int[][] S1 = {
-            {0, 1, 2, 3}, {2, 0, 1, 3}, {3, 0, 1, 2}, {2, 1, 0, 3}
-    };
+    // Standard tables and S-boxes; the boolean API reads the same immutable set as SDESEngine
+    private static final SDESParameters PARAMETERS = SDESParameters.STANDARD;
+    // Files written by main
+    private static final String PLAIN_FILE = "sdes-plain.bin";
+    private static final String ENCRYPTED_FILE = "sdes-encrypted.bin";
+    private static final String DECRYPTED_FILE = "sdes-decrypted.bin";
 
     /**
      * Applies a permutation to a boolean array based on a table.
@@ -82,19 +69,17 @@ public class SDESCipher {
     /**
      * Applies an S-box transformation to a 4-bit input.
      * The algorithm uses bits 1 and 4 for the row, bits 2 and 3 for the column,
-     * and maps to a 2-bit output via the provided S-box table.
+     * and maps to a 2-bit output via the standard S-box.
      *
      * @param input the 4-bit input array
-     * @param sBox  the S-box table (4x4)
+     * @param box   the S-box (0 for S0, 1 for S1)
      * @return the 2-bit output
      */
-    private static boolean[] sBox(boolean[] input, int[][] sBox) {
-        // Row: bit 1 (MSB, 2 if true) + bit 4 (LSB, 1 if true)
-        int row = (input[0] ? 2 : 0) + (input[3] ? 1 : 0);
-        // Column: bit 2 (2 if true) + bit 3 (1 if true)
-        int col = (input[1] ? 2 : 0) + (input[2] ? 1 : 0);
+    private static boolean[] sBox(boolean[] input, int box) {
+        // 4-bit index with bit 1 as MSB; the lookup takes the row from bits 1, 4 and the column from bits 2, 3
+        int index = (input[0] ? 8 : 0) | (input[1] ? 4 : 0) | (input[2] ? 2 : 0) | (input[3] ? 1 : 0);
         // Get S-box value (0-3)
-        int value = sBox[row][col];
+        int value = PARAMETERS.sBox(box, index);
         // Convert to 2 bits: bit 0 = (value & 2), bit 1 = (value & 1)
         boolean[] output = new boolean[2];
         output[0] = (value & 2) != 0;
@@ -113,20 +98,20 @@ public class SDESCipher {
      */
     private static boolean[] fFunction(boolean[] right, boolean[] subkey) {
         // Expand right half from 4 to 8 bits using EP
-        boolean[] expanded = permute(right, EP);
+        boolean[] expanded = permute(right, PARAMETERS.ep());
         // XOR expanded bits with subkey
         boolean[] xored = xor(expanded, subkey);
         // Split into two 4-bit inputs for S0 and S1
         boolean[] s0Input = {xored[0], xored[1], xored[2], xored[3]};
         boolean[] s1Input = {xored[4], xored[5], xored[6], xored[7]};
-        boolean[] s0Output = sBox(s0Input, S0);
-        boolean[] s1Output = sBox(s1Input, S1);
+        boolean[] s0Output = sBox(s0Input, 0);
+        boolean[] s1Output = sBox(s1Input, 1);
         // Combine S-box outputs (2 bits each) into 4 bits
         boolean[] combined = new boolean[4];
         System.arraycopy(s0Output, 0, combined, 0, 2);
         System.arraycopy(s1Output, 0, combined, 2, 2);
         // Permute combined output with P4
-        return permute(combined, P4);
+        return permute(combined, PARAMETERS.p4());
     }
 
     /**
@@ -139,7 +124,7 @@ public class SDESCipher {
      */
     private static boolean[][] generateSubkeys(boolean[] key) {
         // Permute key with P10 (10 bits)
-        boolean[] permuted = permute(key, P10);
+        boolean[] permuted = permute(key, PARAMETERS.p10());
         // Split into left and right 5-bit halves
         boolean[] left = new boolean[5];
         boolean[] right = new boolean[5];
@@ -153,7 +138,7 @@ public class SDESCipher {
         System.arraycopy(left, 0, combined1, 0, 5);
         System.arraycopy(right, 0, combined1, 5, 5);
         // Select 8 bits for k1 with P8
-        boolean[] k1 = permute(combined1, P8);
+        boolean[] k1 = permute(combined1, PARAMETERS.p8());
         // Shift both halves left by 2 more for k2
         left = leftShift(left, 2);
         right = leftShift(right, 2);
@@ -162,7 +147,7 @@ public class SDESCipher {
         System.arraycopy(left, 0, combined2, 0, 5);
         System.arraycopy(right, 0, combined2, 5, 5);
         // Select 8 bits for k2
-        boolean[] k2 = permute(combined2, P8);
+        boolean[] k2 = permute(combined2, PARAMETERS.p8());
         return new boolean[][]{k1, k2};
     }
 
@@ -178,7 +163,7 @@ public class SDESCipher {
     public static boolean[] encryptBlock(boolean[] block, boolean[] key) {
         boolean[][] subkeys = generateSubkeys(key);
         // Apply initial permutation
-        boolean[] ip = permute(block, IP);
+        boolean[] ip = permute(block, PARAMETERS.ip());
         // Split into left and right 4-bit halves
         boolean[] left = new boolean[4];
         boolean[] right = new boolean[4];
@@ -199,7 +184,7 @@ public class SDESCipher {
         System.arraycopy(newLeft, 0, combined, 0, 4);
         System.arraycopy(right, 0, combined, 4, 4);
         // Apply inverse permutation
-        return permute(combined, IP_INV);
+        return permute(combined, PARAMETERS.ipInv());
     }
 
     /**
@@ -214,7 +199,7 @@ public class SDESCipher {
     public static boolean[] decryptBlock(boolean[] block, boolean[] key) {
         boolean[][] subkeys = generateSubkeys(key);
         // Apply initial permutation
-        boolean[] ip = permute(block, IP);
+        boolean[] ip = permute(block, PARAMETERS.ip());
         // Split into left and right 4-bit halves
         boolean[] left = new boolean[4];
         boolean[] right = new boolean[4];
@@ -235,7 +220,7 @@ public class SDESCipher {
         System.arraycopy(newLeft, 0, combined, 0, 4);
         System.arraycopy(right, 0, combined, 4, 4);
         // Apply inverse permutation
-        return permute(combined, IP_INV);
+        return permute(combined, PARAMETERS.ipInv());
     }
 
     /**
@@ -304,35 +289,31 @@ public class SDESCipher {
             System.out.println("--------------------------------");
             String inputText = FileManager.readInputFile(Locale.EN);
             byte[] inputBytes = inputText.getBytes();
+            // Subkeys and lookup tables are computed once for the entered key
+            SDESEngine engine = SDESEngine.of(stringToKey(keyStr));
             byte[] inputEnc = new byte[inputBytes.length];
-            // Encrypt each byte with fixed key "1100110011"
-            for (int i = 0; i < inputBytes.length; i++) {
-                inputEnc[i] = bitsToByte(encryptBlock(byteToBits(inputBytes[i]), stringToKey(keyStr)));
-            }
-            FileManager.writeOutputFile(inputEnc.toString());
+            engine.encrypt(inputBytes, inputEnc);
+            // Save the ciphertext bytes themselves in a CBC container (header with mode and IV)
+            FileManager.writeLargeBinaryFile(ENCRYPTED_FILE, SDESModeCipher.encrypt(inputBytes, engine, SDESMode.CBC));
             byte[] inputDec = new byte[inputEnc.length];
-            // Decrypt each byte
-            for (int i = 0; i < inputEnc.length; i++) {
-                inputDec[i] = bitsToByte(decryptBlock(byteToBits(inputEnc[i]), stringToKey(keyStr)));
-            }
+            engine.decrypt(inputEnc, inputDec);
             String inputResult = new String(inputDec);
             System.out.println("Test 1 decrypted: " + inputResult);
             System.out.println("Test 1 matches: " + inputText.equals(inputResult));
+            String containerResult = new String(SDESModeCipher.decrypt(FileManager.readLargeBinaryFile(ENCRYPTED_FILE), engine));
+            System.out.println("Test 1 CBC file matches: " + inputText.equals(containerResult));
 
             // Test 2: Fixed string
             System.out.println("--------------------------------");
             String test1 = "Hello";
             byte[] test1Bytes = test1.getBytes();
             byte[] test1Enc = new byte[test1Bytes.length];
-            // Encrypt with same key
-            for (int i = 0; i < test1Bytes.length; i++) {
-                test1Enc[i] = bitsToByte(encryptBlock(byteToBits(test1Bytes[i]), stringToKey("1100110011")));
-            }
+            // Encrypt with key "1100110011"
+            SDESEngine engine1 = SDESEngine.of(stringToKey("1100110011"));
+            engine1.encrypt(test1Bytes, test1Enc);
             byte[] test1Dec = new byte[test1Enc.length];
             // Decrypt
-            for (int i = 0; i < test1Enc.length; i++) {
-                test1Dec[i] = bitsToByte(decryptBlock(byteToBits(test1Enc[i]), stringToKey("1100110011")));
-            }
+            engine1.decrypt(test1Enc, test1Dec);
             String test1Result = new String(test1Dec);
             System.out.println("Test 1 decrypted: " + test1Result);
             System.out.println("Test 1 matches: " + test1.equals(test1Result));
@@ -343,19 +324,26 @@ public class SDESCipher {
             byte[] test2Bytes = test2.getBytes();
             byte[] test2Enc = new byte[test2Bytes.length];
             // Encrypt with key "0011110000"
-            for (int i = 0; i < test2Bytes.length; i++) {
-                test2Enc[i] = bitsToByte(encryptBlock(byteToBits(test2Bytes[i]), stringToKey("0011110000")));
-            }
+            SDESEngine engine2 = SDESEngine.of(stringToKey("0011110000"));
+            engine2.encrypt(test2Bytes, test2Enc);
             byte[] test2Dec = new byte[test2Enc.length];
             // Decrypt
-            for (int i = 0; i < test2Enc.length; i++) {
-                test2Dec[i] = bitsToByte(decryptBlock(byteToBits(test2Enc[i]), stringToKey("0011110000")));
-            }
+            engine2.decrypt(test2Enc, test2Dec);
             String test2Result = new String(test2Dec);
             System.out.println("Test 2 decrypted: " + test2Result);
             System.out.println("Test 2 matches: " + test2.equals(test2Result));
             System.out.println("--------------------------------");
 
+            // Test 4: Modes of operation over files
+            FileManager.writeLargeBinaryFile(PLAIN_FILE, inputBytes);
+            for (SDESMode mode : SDESMode.values()) {
+                SDESModeCipher.encryptFile(PLAIN_FILE, ENCRYPTED_FILE, engine, mode);
+                SDESModeCipher.decryptFile(ENCRYPTED_FILE, DECRYPTED_FILE, engine);
+                boolean matches = Arrays.equals(inputBytes, FileManager.readLargeBinaryFile(DECRYPTED_FILE));
+                System.out.println("Test 4 " + mode + " file matches: " + matches);
+            }
+            System.out.println("--------------------------------");
+
         } catch (IOException e) {
             System.out.println("File operation error: " + e.getMessage());
         }
@@ -0,0 +1,282 @@
+package com.ivan.lab4;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Table-driven S-DES for a single 10-bit key.
+ * The subkeys are derived once in the constructor and every one of the 256 blocks is
+ * encrypted and decrypted up front, so processing a byte is a single array lookup.
+ * Bits are numbered as in {@link SDESCipher}: bit 1 of a block or key is its most significant bit.
+ * The permutation tables and S-boxes come from the engine's own {@link SDESParameters}.
+ */
+public final class SDESEngine {
+    public static final int KEY_BITS = 10;
+    public static final int KEY_COUNT = 1 << KEY_BITS;
+
+    private final int key;
+    private final SDESParameters parameters;
+    private final int subkey1;
+    private final int subkey2;
+    private final byte[] encryptTable = new byte[256];
+    private final byte[] decryptTable = new byte[256];
+
+    /**
+     * Creates an engine for the given key with the standard S-DES tables.
+     *
+     * @param key the 10-bit key (0 to 1023)
+     */
+    public SDESEngine(int key) {
+        this(key, SDESParameters.STANDARD);
+    }
+
+    /**
+     * Creates an engine for the given key with custom permutation tables and S-boxes.
+     *
+     * @param key        the 10-bit key (0 to 1023)
+     * @param parameters the tables and S-boxes
+     */
+    public SDESEngine(int key, SDESParameters parameters) {
+        checkKey(key);
+        this.key = key;
+        this.parameters = parameters;
+        int[] subkeys = generateSubkeys(key, parameters);
+        this.subkey1 = subkeys[0];
+        this.subkey2 = subkeys[1];
+
+        for (int block = 0; block < 256; block++) {
+            encryptTable[block] = (byte) crypt(block, subkey1, subkey2, parameters);
+            decryptTable[block] = (byte) crypt(block, subkey2, subkey1, parameters);
+        }
+    }
+
+    /**
+     * Creates an engine for a key given as a boolean array, as used by {@link SDESCipher}.
+     *
+     * @param key the 10-bit key
+     * @return the engine for the key
+     */
+    public static SDESEngine of(boolean[] key) {
+        return new SDESEngine(keyToInt(key));
+    }
+
+    /**
+     * Creates a block encryption function for the given key without building the lookup tables.
+     * Only the subkeys are derived, which is cheaper when a key is used for a few blocks, as in key search.
+     *
+     * @param key the 10-bit key (0 to 1023)
+     * @return a function from a plaintext byte (0-255) to its ciphertext byte (0-255)
+     */
+    public static IntUnaryOperator encryptor(int key) {
+        return encryptor(key, SDESParameters.STANDARD);
+    }
+
+    /**
+     * Same as {@link #encryptor(int)} with custom permutation tables and S-boxes.
+     *
+     * @param key        the 10-bit key (0 to 1023)
+     * @param parameters the tables and S-boxes
+     * @return a function from a plaintext byte (0-255) to its ciphertext byte (0-255)
+     */
+    public static IntUnaryOperator encryptor(int key, SDESParameters parameters) {
+        checkKey(key);
+        int[] subkeys = generateSubkeys(key, parameters);
+        return block -> crypt(block, subkeys[0], subkeys[1], parameters);
+    }
+
+    /**
+     * Creates a block decryption function for the given key without building the lookup tables.
+     *
+     * @param key        the 10-bit key (0 to 1023)
+     * @param parameters the tables and S-boxes
+     * @return a function from a ciphertext byte (0-255) to its plaintext byte (0-255)
+     */
+    public static IntUnaryOperator decryptor(int key, SDESParameters parameters) {
+        checkKey(key);
+        int[] subkeys = generateSubkeys(key, parameters);
+        return block -> crypt(block, subkeys[1], subkeys[0], parameters);
+    }
+
+    /**
+     * Encrypts all 256 blocks with the given key; entry i is the ciphertext of block i.
+     *
+     * @param key        the 10-bit key (0 to 1023)
+     * @param parameters the tables and S-boxes
+     * @return the encryption table
+     */
+    public static byte[] encryptionTable(int key, SDESParameters parameters) {
+        checkKey(key);
+        int[] subkeys = generateSubkeys(key, parameters);
+        byte[] table = new byte[256];
+        for (int block = 0; block < 256; block++) {
+            table[block] = (byte) crypt(block, subkeys[0], subkeys[1], parameters);
+        }
+        return table;
+    }
+
+    private static void checkKey(int key) {
+        if (key < 0 || key >= KEY_COUNT) {
+            throw new IllegalArgumentException("Key must be a 10-bit value: " + key);
+        }
+    }
+
+    /**
+     * Converts a 10-bit boolean key into an int, with key bit 1 as the most significant bit.
+     *
+     * @param key the 10-bit key
+     * @return the key as an int (0 to 1023)
+     */
+    public static int keyToInt(boolean[] key) {
+        int value = 0;
+        for (int i = 0; i < KEY_BITS; i++) {
+            value = (value << 1) | (key[i] ? 1 : 0);
+        }
+        return value;
+    }
+
+    public int getKey() {
+        return key;
+    }
+
+    public SDESParameters getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return the first 8-bit subkey (K1)
+     */
+    public int getSubkey1() {
+        return subkey1;
+    }
+
+    /**
+     * @return the second 8-bit subkey (K2)
+     */
+    public int getSubkey2() {
+        return subkey2;
+    }
+
+    /**
+     * Encrypts one byte.
+     *
+     * @param block the plaintext byte
+     * @return the ciphertext byte
+     */
+    public byte encrypt(byte block) {
+        return encryptTable[block & 0xFF];
+    }
+
+    /**
+     * Decrypts one byte.
+     *
+     * @param block the ciphertext byte
+     * @return the plaintext byte
+     */
+    public byte decrypt(byte block) {
+        return decryptTable[block & 0xFF];
+    }
+
+    /**
+     * Encrypts every byte of {@code in} into {@code out}; the arrays may be the same.
+     *
+     * @param in  the plaintext
+     * @param out the destination, at least as long as {@code in}
+     */
+    public void encrypt(byte[] in, byte[] out) {
+        encrypt(in, 0, out, 0, in.length);
+    }
+
+    /**
+     * Decrypts every byte of {@code in} into {@code out}; the arrays may be the same.
+     *
+     * @param in  the ciphertext
+     * @param out the destination, at least as long as {@code in}
+     */
+    public void decrypt(byte[] in, byte[] out) {
+        decrypt(in, 0, out, 0, in.length);
+    }
+
+    /**
+     * Encrypts {@code length} bytes of {@code in} starting at {@code inOffset} into {@code out} at {@code outOffset}.
+     */
+    public void encrypt(byte[] in, int inOffset, byte[] out, int outOffset, int length) {
+        apply(encryptTable, in, inOffset, out, outOffset, length);
+    }
+
+    /**
+     * Decrypts {@code length} bytes of {@code in} starting at {@code inOffset} into {@code out} at {@code outOffset}.
+     */
+    public void decrypt(byte[] in, int inOffset, byte[] out, int outOffset, int length) {
+        apply(decryptTable, in, inOffset, out, outOffset, length);
+    }
+
+    private static void apply(byte[] table, byte[] in, int inOffset, byte[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            out[outOffset + i] = table[in[inOffset + i] & 0xFF];
+        }
+    }
+
+    /**
+     * Applies a permutation table to the low {@code width} bits of a value.
+     * Output bit i (counting from the most significant) is input bit table[i] (1-based, also from the most significant).
+     *
+     * @param value the input bits
+     * @param width the number of input bits
+     * @param table the permutation table (1-based indices)
+     * @return the permuted bits, table.length bits wide
+     */
+    public static int permute(int value, int width, int[] table) {
+        int result = 0;
+        for (int position : table) {
+            result = (result << 1) | ((value >>> (width - position)) & 1);
+        }
+        return result;
+    }
+
+    /**
+     * Generates the two 8-bit subkeys: P10, a rotation of both 5-bit halves by 1 for K1
+     * and by 2 more for K2, then P8.
+     *
+     * @param key        the 10-bit key
+     * @param parameters the tables
+     * @return the subkeys K1 and K2
+     */
+    static int[] generateSubkeys(int key, SDESParameters parameters) {
+        int permuted = permute(key, 10, parameters.p10());
+        int left = rotateLeft5(permuted >>> 5, 1);
+        int right = rotateLeft5(permuted & 0x1F, 1);
+        int k1 = permute((left << 5) | right, 10, parameters.p8());
+        left = rotateLeft5(left, 2);
+        right = rotateLeft5(right, 2);
+        int k2 = permute((left << 5) | right, 10, parameters.p8());
+        return new int[]{k1, k2};
+    }
+
+    private static int rotateLeft5(int value, int shift) {
+        return ((value << shift) | (value >>> (5 - shift))) & 0x1F;
+    }
+
+    /**
+     * The f-function: EP expansion, XOR with the subkey, S0 and S1, P4.
+     */
+    static int fFunction(int right, int subkey, SDESParameters parameters) {
+        int xored = permute(right, 4, parameters.ep()) ^ subkey;
+        int combined = (parameters.flatS0[xored >>> 4] << 2) | parameters.flatS1[xored & 0xF];
+        return permute(combined, 4, parameters.p4());
+    }
+
+    /**
+     * Runs IP, two Feistel rounds with the given subkeys (swapping the halves in between) and IP^-1.
+     * Encryption uses K1 then K2, decryption K2 then K1.
+     */
+    static int crypt(int block, int first, int second, SDESParameters parameters) {
+        int ip = permute(block, 8, parameters.ip());
+        int left = ip >>> 4;
+        int right = ip & 0xF;
+        int newLeft = left ^ fFunction(right, first, parameters);
+        // Swap: the old right half becomes the left half of round 2
+        left = right;
+        right = newLeft;
+        newLeft = left ^ fFunction(right, second, parameters);
+        return permute((newLeft << 4) | right, 8, parameters.ipInv());
+    }
+}
@@ -0,0 +1,20 @@
+package com.ivan.lab4;
+
+/**
+ * Modes of operation for the 8-bit S-DES block.
+ */
+public enum SDESMode {
+    /**
+     * Electronic codebook: every byte is encrypted independently.
+     */
+    ECB,
+    /**
+     * Cipher block chaining: each plaintext byte is XORed with the previous ciphertext byte (the IV for the first).
+     */
+    CBC,
+    /**
+     * Counter mode: each byte is XORed with the encryption of (IV + position) mod 256.
+     * With an 8-bit block the counter, and therefore the keystream, repeats every 256 bytes.
+     */
+    CTR
+}
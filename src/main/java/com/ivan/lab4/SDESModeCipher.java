@@ -0,0 +1,354 @@
+package com.ivan.lab4;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Mode-of-operation layer (ECB, CBC, CTR) over the S-DES block primitive.
+ * <p>
+ * An instance holds the running state of one encryption or decryption (the CBC chaining byte and
+ * the CTR position), so data may be passed to {@link #update} in pieces of any size.
+ * The static methods produce and read a binary container:
+ * <pre>
+ *   "SDES" | version (1 byte) | mode ordinal (1 byte) | IV (1 byte) | body (one byte per plaintext byte)
+ * </pre>
+ * ECB, CTR and CBC decryption of files are split into chunks and processed in parallel;
+ * CBC encryption is inherently sequential.
+ */
+public final class SDESModeCipher {
+    private static final byte[] MAGIC = {'S', 'D', 'E', 'S'};
+    private static final int VERSION = 1;
+    public static final int HEADER_SIZE = MAGIC.length + 3;
+    private static final int BUFFER_SIZE = 8192;
+    // Size of one parallel file chunk
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    private final SDESEngine engine;
+    private final SDESMode mode;
+    private final int iv;
+    private final boolean encrypting;
+    private int chain;     // CBC: the previous ciphertext byte
+    private long position; // CTR: the index of the next byte
+
+    /**
+     * Creates the state for encrypting or decrypting one message.
+     *
+     * @param engine     the S-DES engine for the key
+     * @param mode       the mode of operation
+     * @param iv         the 8-bit initialization vector (ignored in ECB)
+     * @param encrypting true to encrypt, false to decrypt
+     */
+    public SDESModeCipher(SDESEngine engine, SDESMode mode, int iv, boolean encrypting) {
+        this(engine, mode, iv, encrypting, 0, iv);
+    }
+
+    /**
+     * Creates the state at an arbitrary byte position of a message, used for parallel chunks.
+     *
+     * @param position the index of the first byte to process
+     * @param chain    the ciphertext byte before that position (the IV at position 0)
+     */
+    private SDESModeCipher(SDESEngine engine, SDESMode mode, int iv, boolean encrypting, long position, int chain) {
+        if (iv < 0 || iv > 0xFF) {
+            throw new IllegalArgumentException("IV must be an 8-bit value: " + iv);
+        }
+        this.engine = engine;
+        this.mode = mode;
+        this.iv = iv;
+        this.encrypting = encrypting;
+        this.position = position;
+        this.chain = chain & 0xFF;
+    }
+
+    /**
+     * Processes the next {@code length} bytes of the message; {@code in} and {@code out} may be the same array.
+     *
+     * @param in        the source bytes
+     * @param inOffset  the first source index
+     * @param out       the destination
+     * @param outOffset the first destination index
+     * @param length    the number of bytes
+     */
+    public void update(byte[] in, int inOffset, byte[] out, int outOffset, int length) {
+        switch (mode) {
+            case ECB:
+                if (encrypting) {
+                    engine.encrypt(in, inOffset, out, outOffset, length);
+                } else {
+                    engine.decrypt(in, inOffset, out, outOffset, length);
+                }
+                break;
+            case CBC:
+                int previous = chain;
+                if (encrypting) {
+                    for (int i = 0; i < length; i++) {
+                        previous = engine.encrypt((byte) (in[inOffset + i] ^ previous)) & 0xFF;
+                        out[outOffset + i] = (byte) previous;
+                    }
+                } else {
+                    for (int i = 0; i < length; i++) {
+                        int cipher = in[inOffset + i] & 0xFF;
+                        out[outOffset + i] = (byte) (engine.decrypt((byte) cipher) ^ previous);
+                        previous = cipher;
+                    }
+                }
+                chain = previous;
+                break;
+            case CTR:
+                // Encryption and decryption are the same XOR with E(counter)
+                int counter = (int) ((iv + position) & 0xFF);
+                for (int i = 0; i < length; i++) {
+                    out[outOffset + i] = (byte) (in[inOffset + i] ^ engine.encrypt((byte) counter));
+                    counter = (counter + 1) & 0xFF;
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unsupported mode: " + mode);
+        }
+        position += length;
+    }
+
+    /**
+     * Encrypts a message into a container with a random IV.
+     *
+     * @param plaintext the message
+     * @param engine    the S-DES engine for the key
+     * @param mode      the mode of operation
+     * @return the header followed by the ciphertext
+     */
+    public static byte[] encrypt(byte[] plaintext, SDESEngine engine, SDESMode mode) {
+        return encrypt(plaintext, engine, mode, randomIv());
+    }
+
+    /**
+     * Encrypts a message into a container with the given IV.
+     *
+     * @param plaintext the message
+     * @param engine    the S-DES engine for the key
+     * @param mode      the mode of operation
+     * @param iv        the 8-bit initialization vector
+     * @return the header followed by the ciphertext
+     */
+    public static byte[] encrypt(byte[] plaintext, SDESEngine engine, SDESMode mode, int iv) {
+        byte[] container = new byte[HEADER_SIZE + plaintext.length];
+        writeHeader(container, mode, iv);
+        new SDESModeCipher(engine, mode, iv, true).update(plaintext, 0, container, HEADER_SIZE, plaintext.length);
+        return container;
+    }
+
+    /**
+     * Decrypts a container produced by {@link #encrypt(byte[], SDESEngine, SDESMode, int)}.
+     *
+     * @param container the header followed by the ciphertext
+     * @param engine    the S-DES engine for the key
+     * @return the message
+     */
+    public static byte[] decrypt(byte[] container, SDESEngine engine) {
+        if (container.length < HEADER_SIZE) {
+            throw new IllegalArgumentException("Not an S-DES container: too short");
+        }
+        Header header = parseHeader(container);
+        byte[] plaintext = new byte[container.length - HEADER_SIZE];
+        new SDESModeCipher(engine, header.mode, header.iv, false)
+                .update(container, HEADER_SIZE, plaintext, 0, plaintext.length);
+        return plaintext;
+    }
+
+    /**
+     * Encrypts a stream into a container, reading and writing 8 KB at a time.
+     *
+     * @param in     the plaintext stream
+     * @param out    the container stream
+     * @param engine the S-DES engine for the key
+     * @param mode   the mode of operation
+     * @param iv     the 8-bit initialization vector
+     */
+    public static void encrypt(InputStream in, OutputStream out, SDESEngine engine, SDESMode mode, int iv)
+            throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        writeHeader(header, mode, iv);
+        out.write(header);
+        copy(in, out, new SDESModeCipher(engine, mode, iv, true));
+    }
+
+    /**
+     * Decrypts a container stream, reading and writing 8 KB at a time.
+     *
+     * @param in     the container stream
+     * @param out    the plaintext stream
+     * @param engine the S-DES engine for the key
+     */
+    public static void decrypt(InputStream in, OutputStream out, SDESEngine engine) throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        new DataInputStream(in).readFully(header);
+        Header parsed = parseHeader(header);
+        copy(in, out, new SDESModeCipher(engine, parsed.mode, parsed.iv, false));
+    }
+
+    /**
+     * Encrypts a file into a container with a random IV.
+     *
+     * @param inputFile  the plaintext file
+     * @param outputFile the container file (created or truncated)
+     * @param engine     the S-DES engine for the key
+     * @param mode       the mode of operation
+     */
+    public static void encryptFile(String inputFile, String outputFile, SDESEngine engine, SDESMode mode)
+            throws IOException {
+        int iv = randomIv();
+        if (mode == SDESMode.CBC) {
+            // Every CBC ciphertext byte depends on the previous one
+            try (InputStream in = new BufferedInputStream(new FileInputStream(inputFile));
+                 OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+                encrypt(in, out, engine, mode, iv);
+            }
+            return;
+        }
+
+        try (FileChannel in = FileChannel.open(Paths.get(inputFile), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(Paths.get(outputFile), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            byte[] header = new byte[HEADER_SIZE];
+            writeHeader(header, mode, iv);
+            writeFully(out, ByteBuffer.wrap(header), 0);
+            transformParallel(in, 0, out, HEADER_SIZE, in.size(), engine, mode, iv, true);
+        }
+    }
+
+    /**
+     * Decrypts a container file; all modes are decrypted in parallel.
+     *
+     * @param inputFile  the container file
+     * @param outputFile the plaintext file (created or truncated)
+     * @param engine     the S-DES engine for the key
+     */
+    public static void decryptFile(String inputFile, String outputFile, SDESEngine engine) throws IOException {
+        try (FileChannel in = FileChannel.open(Paths.get(inputFile), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(Paths.get(outputFile), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (in.size() < HEADER_SIZE) {
+                throw new IOException("Not an S-DES container: " + inputFile);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(in, header, 0);
+            Header parsed = parseHeader(header.array());
+            transformParallel(in, HEADER_SIZE, out, 0, in.size() - HEADER_SIZE, engine, parsed.mode, parsed.iv, false);
+        }
+    }
+
+    /**
+     * Splits a byte range into chunks and processes them as fork-join tasks with positional I/O.
+     * Each chunk starts its own cipher state: CTR from the chunk position, CBC decryption from
+     * the ciphertext byte before the chunk.
+     */
+    private static void transformParallel(FileChannel in, long inStart, FileChannel out, long outStart, long length,
+                                          SDESEngine engine, SDESMode mode, int iv, boolean encrypting)
+            throws IOException {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (long from = 0; from < length; from += CHUNK_SIZE) {
+            long start = from;
+            int size = (int) Math.min(CHUNK_SIZE, length - from);
+            tasks.add(() -> {
+                // The chunk is read together with the byte before it, which CBC decryption chains from
+                int lead = start == 0 ? 0 : 1;
+                ByteBuffer buffer = ByteBuffer.allocate(size + lead);
+                readFully(in, buffer, inStart + start - lead);
+                byte[] data = buffer.array();
+                int chain = lead == 0 ? iv : data[0];
+                new SDESModeCipher(engine, mode, iv, encrypting, start, chain).update(data, lead, data, lead, size);
+                writeFully(out, ByteBuffer.wrap(data, lead, size), outStart + start);
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> result : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Encryption interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Parallel encryption failed", e.getCause());
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out, SDESModeCipher cipher) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int bytesRead;
+        while ((bytesRead = in.read(buffer)) != -1) {
+            cipher.update(buffer, 0, buffer, 0, bytesRead);
+            out.write(buffer, 0, bytesRead);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of file at " + (position + buffer.position()));
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long base = position - buffer.position();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, base + buffer.position());
+        }
+    }
+
+    private static int randomIv() {
+        return new SecureRandom().nextInt(256);
+    }
+
+    private static void writeHeader(byte[] target, SDESMode mode, int iv) {
+        if (iv < 0 || iv > 0xFF) {
+            throw new IllegalArgumentException("IV must be an 8-bit value: " + iv);
+        }
+        System.arraycopy(MAGIC, 0, target, 0, MAGIC.length);
+        target[MAGIC.length] = VERSION;
+        target[MAGIC.length + 1] = (byte) mode.ordinal();
+        target[MAGIC.length + 2] = (byte) iv;
+    }
+
+    private static Header parseHeader(byte[] header) {
+        if (!Arrays.equals(header, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            throw new IllegalArgumentException("Not an S-DES container: bad magic");
+        }
+        if (header[MAGIC.length] != VERSION) {
+            throw new IllegalArgumentException("Unsupported S-DES container version: " + header[MAGIC.length]);
+        }
+        int mode = header[MAGIC.length + 1];
+        if (mode < 0 || mode >= SDESMode.values().length) {
+            throw new IllegalArgumentException("Unknown S-DES mode: " + mode);
+        }
+        return new Header(SDESMode.values()[mode], header[MAGIC.length + 2] & 0xFF);
+    }
+
+    /**
+     * Mode and IV read from a container header.
+     */
+    private static final class Header {
+        private final SDESMode mode;
+        private final int iv;
+
+        private Header(SDESMode mode, int iv) {
+            this.mode = mode;
+            this.iv = iv;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.ivan.lab4;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of S-DES permutation tables and S-boxes.
+ * Every {@link SDESEngine} works with its own parameters, so variants with modified S-boxes
+ * can be analyzed concurrently; there are no global mutable tables, and the boolean API of
+ * {@link SDESCipher} reads {@link #STANDARD}.
+ */
+public final class SDESParameters {
+    /**
+     * The standard S-DES tables.
+     */
+    public static final SDESParameters STANDARD = new SDESParameters(
+            // Initial permutation (maps 8-bit input positions to output) and its inverse
+            new int[]{2, 6, 3, 1, 4, 8, 5, 7},
+            new int[]{4, 1, 3, 5, 7, 2, 8, 6},
+            // Expansion permutation (expands 4 bits to 8, with repeats)
+            new int[]{4, 1, 2, 3, 2, 3, 4, 1},
+            // Key permutation (selects 10 bits from key) and subkey selection (8 bits from 10)
+            new int[]{3, 5, 2, 7, 4, 10, 1, 9, 8, 6},
+            new int[]{6, 3, 7, 4, 8, 5, 10, 9},
+            // Permutation of the S-box output (4 bits)
+            new int[]{2, 4, 3, 1},
+            // S-box 0: maps 4-bit input to 2-bit output (row: bits 1,4; col: bits 2,3)
+            new int[][]{{1, 0, 3, 2}, {3, 2, 1, 0}, {0, 2, 1, 3}, {3, 1, 3, 2}},
+            // S-box 1: similar mapping for the second 4-bit input
+            new int[][]{{0, 1, 2, 3}, {2, 0, 1, 3}, {3, 0, 1, 2}, {2, 1, 0, 3}});
+
+    private final int[] ip;
+    private final int[] ipInv;
+    private final int[] ep;
+    private final int[] p10;
+    private final int[] p8;
+    private final int[] p4;
+    private final int[][] s0;
+    private final int[][] s1;
+    // S-boxes indexed directly by the 4-bit input (row from bits 1 and 4, column from bits 2 and 3)
+    final int[] flatS0;
+    final int[] flatS1;
+
+    /**
+     * Creates a parameter set; all arrays are copied.
+     *
+     * @param ip    the initial permutation (8 entries, 1-based)
+     * @param ipInv the inverse initial permutation (8 entries)
+     * @param ep    the expansion permutation (8 entries over 4 bits)
+     * @param p10   the key permutation (10 entries)
+     * @param p8    the subkey selection (8 entries over 10 bits)
+     * @param p4    the S-box output permutation (4 entries)
+     * @param s0    the first S-box (4x4, values 0-3)
+     * @param s1    the second S-box (4x4, values 0-3)
+     */
+    public SDESParameters(int[] ip, int[] ipInv, int[] ep, int[] p10, int[] p8, int[] p4, int[][] s0, int[][] s1) {
+        this.ip = checkTable(ip, 8, 8, "IP");
+        this.ipInv = checkTable(ipInv, 8, 8, "IP_INV");
+        this.ep = checkTable(ep, 8, 4, "EP");
+        this.p10 = checkTable(p10, 10, 10, "P10");
+        this.p8 = checkTable(p8, 8, 10, "P8");
+        this.p4 = checkTable(p4, 4, 4, "P4");
+        this.s0 = copySBox(s0, "S0");
+        this.s1 = copySBox(s1, "S1");
+        this.flatS0 = flatten(this.s0);
+        this.flatS1 = flatten(this.s1);
+    }
+
+    /**
+     * Returns a copy of these parameters with one S-box entry replaced.
+     *
+     * @param box   the S-box (0 for S0, 1 for S1)
+     * @param row   the row index (0-3)
+     * @param col   the column index (0-3)
+     * @param value the new value (0-3)
+     * @return the modified parameters
+     */
+    public SDESParameters withSBoxEntry(int box, int row, int col, int value) {
+        if (box != 0 && box != 1) {
+            throw new IllegalArgumentException("S-box must be 0 or 1: " + box);
+        }
+        int[][] s0Copy = getS0();
+        int[][] s1Copy = getS1();
+        (box == 0 ? s0Copy : s1Copy)[row][col] = value;
+        return new SDESParameters(ip, ipInv, ep, p10, p8, p4, s0Copy, s1Copy);
+    }
+
+    /**
+     * @param box the S-box (0 for S0, 1 for S1)
+     * @param row the row index (0-3)
+     * @param col the column index (0-3)
+     * @return the S-box entry
+     */
+    public int getSBoxEntry(int box, int row, int col) {
+        return (box == 0 ? s0 : s1)[row][col];
+    }
+
+    /**
+     * Looks up an S-box by its 4-bit input (row from bits 1 and 4, column from bits 2 and 3).
+     *
+     * @param box   the S-box (0 for S0, 1 for S1)
+     * @param input the 4-bit input
+     * @return the 2-bit output
+     */
+    public int sBox(int box, int input) {
+        return (box == 0 ? flatS0 : flatS1)[input & 0xF];
+    }
+
+    public int[] getIP() {
+        return ip.clone();
+    }
+
+    public int[] getIPInv() {
+        return ipInv.clone();
+    }
+
+    public int[] getEP() {
+        return ep.clone();
+    }
+
+    public int[] getP10() {
+        return p10.clone();
+    }
+
+    public int[] getP8() {
+        return p8.clone();
+    }
+
+    public int[] getP4() {
+        return p4.clone();
+    }
+
+    public int[][] getS0() {
+        return copySBox(s0, "S0");
+    }
+
+    public int[][] getS1() {
+        return copySBox(s1, "S1");
+    }
+
+    // Package-private views without copying, for SDESEngine
+
+    int[] ip() {
+        return ip;
+    }
+
+    int[] ipInv() {
+        return ipInv;
+    }
+
+    int[] ep() {
+        return ep;
+    }
+
+    int[] p10() {
+        return p10;
+    }
+
+    int[] p8() {
+        return p8;
+    }
+
+    int[] p4() {
+        return p4;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SDESParameters)) {
+            return false;
+        }
+        SDESParameters other = (SDESParameters) o;
+        return Arrays.equals(ip, other.ip) && Arrays.equals(ipInv, other.ipInv) && Arrays.equals(ep, other.ep)
+                && Arrays.equals(p10, other.p10) && Arrays.equals(p8, other.p8) && Arrays.equals(p4, other.p4)
+                && Arrays.deepEquals(s0, other.s0) && Arrays.deepEquals(s1, other.s1);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(ip);
+        result = 31 * result + Arrays.hashCode(ipInv);
+        result = 31 * result + Arrays.hashCode(ep);
+        result = 31 * result + Arrays.hashCode(p10);
+        result = 31 * result + Arrays.hashCode(p8);
+        result = 31 * result + Arrays.hashCode(p4);
+        result = 31 * result + Arrays.deepHashCode(s0);
+        result = 31 * result + Arrays.deepHashCode(s1);
+        return result;
+    }
+
+    private static int[] checkTable(int[] table, int length, int inputBits, String name) {
+        if (table.length != length) {
+            throw new IllegalArgumentException(name + " must have " + length + " entries");
+        }
+        for (int position : table) {
+            if (position < 1 || position > inputBits) {
+                throw new IllegalArgumentException(name + " entries must be between 1 and " + inputBits);
+            }
+        }
+        return table.clone();
+    }
+
+    private static int[][] copySBox(int[][] sBox, String name) {
+        if (sBox.length != 4) {
+            throw new IllegalArgumentException(name + " must have 4 rows");
+        }
+        int[][] copy = new int[4][];
+        for (int row = 0; row < 4; row++) {
+            if (sBox[row].length != 4) {
+                throw new IllegalArgumentException(name + " must have 4 columns");
+            }
+            for (int value : sBox[row]) {
+                if (value < 0 || value > 3) {
+                    throw new IllegalArgumentException(name + " values must be between 0 and 3");
+                }
+            }
+            copy[row] = sBox[row].clone();
+        }
+        return copy;
+    }
+
+    private static int[] flatten(int[][] sBox) {
+        int[] flat = new int[16];
+        for (int input = 0; input < 16; input++) {
+            int row = ((input >>> 2) & 2) | (input & 1);
+            int col = (input >>> 1) & 3;
+            flat[input] = sBox[row][col];
+        }
+        return flat;
+    }
+}
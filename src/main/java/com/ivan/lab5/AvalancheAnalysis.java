@@ -0,0 +1,314 @@
+package com.ivan.lab5;
+
+import com.ivan.lab4.SDESEngine;
+import com.ivan.lab4.SDESParameters;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Avalanche statistics of S-DES over the full population: all 256 plaintexts x 1024 keys,
+ * flipping every plaintext bit and every key bit.
+ * <p>
+ * The encryption tables of all keys are built once, so every flip is a pair of table lookups.
+ * For each flipped input bit the engine only counts how often each 8-bit ciphertext difference occurs;
+ * the strict avalanche criterion (SAC) matrix, the bit independence criterion (BIC) and the
+ * Hamming-weight histograms are all derived from these counts afterwards.
+ * Bits are numbered from the most significant, as in {@link com.ivan.lab4.SDESCipher}.
+ */
+public final class AvalancheAnalysis {
+    public static final int BLOCK_BITS = 8;
+    public static final int KEY_BITS = SDESEngine.KEY_BITS;
+    // Number of key ranges per worker thread
+    private static final int RANGES_PER_THREAD = 4;
+
+    private final long[][] plaintextDifferences; // [flipped plaintext bit][ciphertext difference]
+    private final long[][] keyDifferences;       // [flipped key bit][ciphertext difference]
+    private final long samplesPerBit;
+    private final long elapsedNanos;
+
+    private AvalancheAnalysis(long[][] plaintextDifferences, long[][] keyDifferences, long samplesPerBit,
+                              long elapsedNanos) {
+        this.plaintextDifferences = plaintextDifferences;
+        this.keyDifferences = keyDifferences;
+        this.samplesPerBit = samplesPerBit;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Runs the sweep for the given parameters on the common fork-join pool.
+     *
+     * @param parameters the S-DES tables and S-boxes
+     * @return the collected statistics
+     */
+    public static AvalancheAnalysis run(SDESParameters parameters) {
+        return run(parameters, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Runs the sweep for the given parameters.
+     *
+     * @param parameters the S-DES tables and S-boxes
+     * @param pool       the pool that runs the key ranges
+     * @return the collected statistics
+     */
+    public static AvalancheAnalysis run(SDESParameters parameters, ForkJoinPool pool) {
+        long startTime = System.nanoTime();
+        int keyCount = SDESEngine.KEY_COUNT;
+        byte[][] tables = new byte[keyCount][];
+
+        int rangeCount = Math.min(keyCount, pool.getParallelism() * RANGES_PER_THREAD);
+        int rangeSize = (keyCount + rangeCount - 1) / rangeCount;
+
+        // Pass 1: encryption tables of every key
+        List<Callable<Void>> tableTasks = new ArrayList<>();
+        for (int from = 0; from < keyCount; from += rangeSize) {
+            int start = from;
+            int end = Math.min(keyCount, from + rangeSize);
+            tableTasks.add(() -> {
+                for (int key = start; key < end; key++) {
+                    tables[key] = SDESEngine.encryptionTable(key, parameters);
+                }
+                return null;
+            });
+        }
+        invokeAll(pool, tableTasks);
+
+        // Pass 2: ciphertext differences for every flip, counted per range and merged
+        List<Callable<long[][]>> countTasks = new ArrayList<>();
+        for (int from = 0; from < keyCount; from += rangeSize) {
+            int start = from;
+            int end = Math.min(keyCount, from + rangeSize);
+            countTasks.add(() -> countDifferences(tables, start, end));
+        }
+        long[][] counts = new long[BLOCK_BITS + KEY_BITS][256];
+        for (long[][] partial : invokeAll(pool, countTasks)) {
+            for (int bit = 0; bit < counts.length; bit++) {
+                for (int difference = 0; difference < 256; difference++) {
+                    counts[bit][difference] += partial[bit][difference];
+                }
+            }
+        }
+
+        long[][] plaintext = new long[BLOCK_BITS][];
+        long[][] key = new long[KEY_BITS][];
+        System.arraycopy(counts, 0, plaintext, 0, BLOCK_BITS);
+        System.arraycopy(counts, BLOCK_BITS, key, 0, KEY_BITS);
+        return new AvalancheAnalysis(plaintext, key, (long) keyCount * 256, System.nanoTime() - startTime);
+    }
+
+    /**
+     * Counts ciphertext differences for keys in [from, to); rows 0-7 are plaintext bits, rows 8-17 key bits.
+     */
+    private static long[][] countDifferences(byte[][] tables, int from, int to) {
+        long[][] counts = new long[BLOCK_BITS + KEY_BITS][256];
+        for (int key = from; key < to; key++) {
+            byte[] table = tables[key];
+            for (int block = 0; block < 256; block++) {
+                int cipher = table[block];
+                for (int bit = 0; bit < BLOCK_BITS; bit++) {
+                    int flipped = block ^ (0x80 >>> bit);
+                    counts[bit][(cipher ^ table[flipped]) & 0xFF]++;
+                }
+                for (int bit = 0; bit < KEY_BITS; bit++) {
+                    byte[] other = tables[key ^ (0x200 >>> bit)];
+                    counts[BLOCK_BITS + bit][(cipher ^ other[block]) & 0xFF]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static <T> List<T> invokeAll(ForkJoinPool pool, List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> result : pool.invokeAll(tasks)) {
+                results.add(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Avalanche analysis interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Avalanche analysis failed", e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * @return the number of (plaintext, key) samples per flipped bit
+     */
+    public long getSamplesPerBit() {
+        return samplesPerBit;
+    }
+
+    /**
+     * @return the number of encryptions compared (two per flip)
+     */
+    public long getComparisons() {
+        return samplesPerBit * (BLOCK_BITS + KEY_BITS);
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return SAC matrix for plaintext flips: entry [i][j] is the probability that ciphertext bit j
+     * changes when plaintext bit i is flipped (ideal 0.5)
+     */
+    public double[][] getPlaintextSacMatrix() {
+        return sacMatrix(plaintextDifferences);
+    }
+
+    /**
+     * @return SAC matrix for key flips: entry [i][j] is the probability that ciphertext bit j
+     * changes when key bit i is flipped (ideal 0.5)
+     */
+    public double[][] getKeySacMatrix() {
+        return sacMatrix(keyDifferences);
+    }
+
+    private double[][] sacMatrix(long[][] differences) {
+        double[][] matrix = new double[differences.length][BLOCK_BITS];
+        for (int input = 0; input < differences.length; input++) {
+            for (int difference = 0; difference < 256; difference++) {
+                long count = differences[input][difference];
+                for (int output = 0; output < BLOCK_BITS; output++) {
+                    if ((difference & (0x80 >>> output)) != 0) {
+                        matrix[input][output] += count;
+                    }
+                }
+            }
+            for (int output = 0; output < BLOCK_BITS; output++) {
+                matrix[input][output] /= samplesPerBit;
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Bit independence criterion for plaintext flips: the largest absolute correlation between
+     * the changes of two different ciphertext bits, over all flipped plaintext bits (ideal 0).
+     */
+    public double getPlaintextBicMaxCorrelation() {
+        return bicMaxCorrelation(plaintextDifferences);
+    }
+
+    /**
+     * Bit independence criterion for key flips, as {@link #getPlaintextBicMaxCorrelation()}.
+     */
+    public double getKeyBicMaxCorrelation() {
+        return bicMaxCorrelation(keyDifferences);
+    }
+
+    private double bicMaxCorrelation(long[][] differences) {
+        double max = 0;
+        for (long[] counts : differences) {
+            for (int j = 0; j < BLOCK_BITS; j++) {
+                for (int k = j + 1; k < BLOCK_BITS; k++) {
+                    int maskJ = 0x80 >>> j;
+                    int maskK = 0x80 >>> k;
+                    long nJ = 0;
+                    long nK = 0;
+                    long nJK = 0;
+                    for (int difference = 0; difference < 256; difference++) {
+                        boolean changedJ = (difference & maskJ) != 0;
+                        boolean changedK = (difference & maskK) != 0;
+                        if (changedJ) {
+                            nJ += counts[difference];
+                        }
+                        if (changedK) {
+                            nK += counts[difference];
+                        }
+                        if (changedJ && changedK) {
+                            nJK += counts[difference];
+                        }
+                    }
+                    // Pearson correlation of two indicator variables
+                    double n = samplesPerBit;
+                    double pJ = nJ / n;
+                    double pK = nK / n;
+                    double variance = pJ * (1 - pJ) * pK * (1 - pK);
+                    // A bit that never or always changes is fully dependent
+                    double correlation = variance == 0 ? 1 : (nJK / n - pJ * pK) / Math.sqrt(variance);
+                    max = Math.max(max, Math.abs(correlation));
+                }
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @param bit the flipped plaintext bit (0-7)
+     * @return histogram of changed ciphertext bits: entry w counts samples with w changed bits
+     */
+    public long[] getPlaintextHistogram(int bit) {
+        return histogram(plaintextDifferences[bit]);
+    }
+
+    /**
+     * @param bit the flipped key bit (0-9)
+     * @return histogram of changed ciphertext bits: entry w counts samples with w changed bits
+     */
+    public long[] getKeyHistogram(int bit) {
+        return histogram(keyDifferences[bit]);
+    }
+
+    private static long[] histogram(long[] differences) {
+        long[] histogram = new long[BLOCK_BITS + 1];
+        for (int difference = 0; difference < 256; difference++) {
+            histogram[Integer.bitCount(difference)] += differences[difference];
+        }
+        return histogram;
+    }
+
+    /**
+     * Prints the SAC matrices, BIC and per-bit min/mean/max with Hamming-weight histograms.
+     */
+    public void printReport() {
+        System.out.println("-----------------------------------");
+        System.out.println("Avalanche statistics (256 plaintexts x " + SDESEngine.KEY_COUNT + " keys, "
+                + getComparisons() + " flips):");
+        printSection("Plaintext", getPlaintextSacMatrix(), getPlaintextBicMaxCorrelation(), plaintextDifferences);
+        printSection("Key", getKeySacMatrix(), getKeyBicMaxCorrelation(), keyDifferences);
+        System.out.printf("Time taken: %.1f ms%n", elapsedNanos / 1_000_000.0);
+    }
+
+    private void printSection(String name, double[][] sac, double bic, long[][] differences) {
+        System.out.println(name + " bit flips, SAC matrix (rows: flipped bit, columns: ciphertext bit, ideal 0.5):");
+        double maxDeviation = 0;
+        for (int input = 0; input < sac.length; input++) {
+            StringBuilder row = new StringBuilder(String.format("Bit %d:", input));
+            for (double probability : sac[input]) {
+                row.append(String.format(" %.3f", probability));
+                maxDeviation = Math.max(maxDeviation, Math.abs(probability - 0.5));
+            }
+            System.out.println(row);
+        }
+        System.out.printf("Max SAC deviation: %.4f%n", maxDeviation);
+        System.out.printf("BIC max |correlation|: %.4f%n", bic);
+        System.out.println(name + " bit flips, changed ciphertext bits (min/mean/max, histogram 0..8):");
+        for (int input = 0; input < differences.length; input++) {
+            long[] histogram = histogram(differences[input]);
+            int min = -1;
+            int max = 0;
+            long total = 0;
+            StringBuilder counts = new StringBuilder();
+            for (int weight = 0; weight <= BLOCK_BITS; weight++) {
+                if (histogram[weight] > 0) {
+                    if (min < 0) {
+                        min = weight;
+                    }
+                    max = weight;
+                }
+                total += histogram[weight] * weight;
+                counts.append(weight == 0 ? "" : " ").append(histogram[weight]);
+            }
+            System.out.printf("Bit %d: %d / %.3f / %d  [%s]%n", input, min, (double) total / samplesPerBit, max, counts);
+        }
+    }
+}
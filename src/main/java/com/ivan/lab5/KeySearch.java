@@ -0,0 +1,233 @@
+package com.ivan.lab5;
+
+import com.ivan.lab4.SDESEngine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Parallel exhaustive key search for 8-bit block ciphers with known plaintext.
+ * The known pairs are first reduced to a table of required ciphertexts for every distinct
+ * plaintext byte, so a candidate key is checked against each distinct byte once and
+ * rejected at the first mismatch. The key space is split into ranges that run as fork-join tasks.
+ */
+public final class KeySearch {
+    // Number of ranges per worker thread, so uneven ranges still balance
+    private static final int RANGES_PER_THREAD = 8;
+
+    /**
+     * Builds the block encryption function of a cipher for one key (key schedule or per-key tables).
+     */
+    @FunctionalInterface
+    public interface BlockCipherFactory {
+        /**
+         * @param key the candidate key
+         * @return a function mapping a plaintext byte (0-255) to its ciphertext byte (0-255)
+         */
+        IntUnaryOperator forKey(long key);
+    }
+
+    private final int keyBits;
+    private final BlockCipherFactory cipher;
+
+    /**
+     * @param keyBits the key length in bits (1 to 62)
+     * @param cipher  the cipher under attack
+     */
+    public KeySearch(int keyBits, BlockCipherFactory cipher) {
+        if (keyBits < 1 || keyBits > 62) {
+            throw new IllegalArgumentException("Key length must be between 1 and 62 bits: " + keyBits);
+        }
+        this.keyBits = keyBits;
+        this.cipher = cipher;
+    }
+
+    /**
+     * Creates a search over the 1024 S-DES keys; every candidate derives its subkeys once
+     * (see {@link SDESEngine#encryptor(int)}) and encrypts only the distinct known plaintexts.
+     */
+    public static KeySearch sdes() {
+        return new KeySearch(SDESEngine.KEY_BITS, key -> SDESEngine.encryptor((int) key));
+    }
+
+    public int getKeyBits() {
+        return keyBits;
+    }
+
+    /**
+     * Finds every key consistent with the known pairs using the common fork-join pool.
+     *
+     * @param plaintext  the known plaintext bytes
+     * @param ciphertext the ciphertext bytes at the same positions (ECB)
+     * @return all consistent keys with timing statistics
+     */
+    public Result search(byte[] plaintext, byte[] ciphertext) {
+        return search(plaintext, ciphertext, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Finds every key consistent with the known pairs.
+     *
+     * @param plaintext  the known plaintext bytes
+     * @param ciphertext the ciphertext bytes at the same positions (ECB)
+     * @param pool       the pool that runs the key ranges
+     * @return all consistent keys with timing statistics
+     */
+    public Result search(byte[] plaintext, byte[] ciphertext, ForkJoinPool pool) {
+        if (plaintext.length != ciphertext.length || plaintext.length == 0) {
+            throw new IllegalArgumentException("Plaintext and ciphertext must be non-empty and of equal length");
+        }
+        long startTime = System.nanoTime();
+        long keyCount = 1L << keyBits;
+
+        // Required ciphertext for every distinct plaintext byte, in order of first appearance
+        int[] required = new int[256];
+        Arrays.fill(required, -1);
+        int[] distinct = new int[256];
+        int distinctCount = 0;
+        for (int i = 0; i < plaintext.length; i++) {
+            int p = plaintext[i] & 0xFF;
+            int c = ciphertext[i] & 0xFF;
+            if (required[p] == -1) {
+                required[p] = c;
+                distinct[distinctCount++] = p;
+            } else if (required[p] != c) {
+                // The same plaintext byte maps to two ciphertexts: no single ECB key fits
+                return new Result(keyBits, new long[0], 0, System.nanoTime() - startTime, plaintext.length, distinctCount);
+            }
+        }
+        int[] blocks = Arrays.copyOf(distinct, distinctCount);
+        int[] targets = new int[distinctCount];
+        for (int i = 0; i < distinctCount; i++) {
+            targets[i] = required[blocks[i]];
+        }
+
+        long rangeCount = Math.min(keyCount, (long) pool.getParallelism() * RANGES_PER_THREAD);
+        long rangeSize = (keyCount + rangeCount - 1) / rangeCount;
+        List<Callable<long[]>> tasks = new ArrayList<>();
+        for (long from = 0; from < keyCount; from += rangeSize) {
+            long start = from;
+            long end = Math.min(keyCount, from + rangeSize);
+            tasks.add(() -> searchRange(start, end, blocks, targets));
+        }
+
+        long[] keys;
+        try {
+            List<long[]> found = new ArrayList<>();
+            int total = 0;
+            for (Future<long[]> result : pool.invokeAll(tasks)) {
+                long[] range = result.get();
+                found.add(range);
+                total += range.length;
+            }
+            // Ranges are submitted in key order, so concatenation keeps the keys sorted
+            keys = new long[total];
+            int position = 0;
+            for (long[] range : found) {
+                System.arraycopy(range, 0, keys, position, range.length);
+                position += range.length;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Key search interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Key search failed", e.getCause());
+        }
+
+        return new Result(keyBits, keys, keyCount, System.nanoTime() - startTime, plaintext.length, distinctCount);
+    }
+
+    /**
+     * Tests the keys in [from, to) against the distinct known pairs.
+     */
+    private long[] searchRange(long from, long to, int[] blocks, int[] targets) {
+        long[] found = new long[4];
+        int count = 0;
+        for (long key = from; key < to; key++) {
+            IntUnaryOperator encrypt = cipher.forKey(key);
+            boolean consistent = true;
+            for (int i = 0; i < blocks.length; i++) {
+                if (encrypt.applyAsInt(blocks[i]) != targets[i]) {
+                    consistent = false;
+                    break;
+                }
+            }
+            if (consistent) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, count * 2);
+                }
+                found[count++] = key;
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Outcome of a key search.
+     */
+    public static final class Result {
+        private final int keyBits;
+        private final long[] keys;
+        private final long keysTested;
+        private final long elapsedNanos;
+        private final int pairs;
+        private final int distinctPairs;
+
+        Result(int keyBits, long[] keys, long keysTested, long elapsedNanos, int pairs, int distinctPairs) {
+            this.keyBits = keyBits;
+            this.keys = keys;
+            this.keysTested = keysTested;
+            this.elapsedNanos = elapsedNanos;
+            this.pairs = pairs;
+            this.distinctPairs = distinctPairs;
+        }
+
+        /**
+         * @return every key consistent with the known pairs, in ascending order
+         */
+        public long[] getKeys() {
+            return keys.clone();
+        }
+
+        public long getKeysTested() {
+            return keysTested;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public int getPairs() {
+            return pairs;
+        }
+
+        /**
+         * @return the number of distinct plaintext bytes among the pairs
+         */
+        public int getDistinctPairs() {
+            return distinctPairs;
+        }
+
+        public double getKeysPerSecond() {
+            return elapsedNanos == 0 ? 0 : keysTested * 1e9 / elapsedNanos;
+        }
+
+        public double getNanosPerKey() {
+            return keysTested == 0 ? 0 : (double) elapsedNanos / keysTested;
+        }
+
+        /**
+         * Formats a key as a binary string of the searched key length.
+         */
+        public String formatKey(long key) {
+            String bits = Long.toBinaryString(key);
+            return "0".repeat(Math.max(0, keyBits - bits.length())) + bits;
+        }
+    }
+}
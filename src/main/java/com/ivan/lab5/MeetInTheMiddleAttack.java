@@ -0,0 +1,264 @@
+package com.ivan.lab5;
+
+import com.ivan.lab4.DoubleSDES;
+import com.ivan.lab4.SDESEngine;
+import com.ivan.lab4.SDESParameters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Meet-in-the-middle known-plaintext attack on double S-DES.
+ * <p>
+ * For the first known pair (P, C) every K1 is tried once forward, E_K1(P), and the keys are stored
+ * by middle value in a bucket table (two int arrays filled by counting sort, 256 buckets).
+ * Then every K2 is tried once backward, D_K2(C), and paired with the K1 bucket of the same middle value.
+ * Each match is checked against the other known pairs through precomputed middle values, so the
+ * 2^20 key space costs about 2^11 block operations plus the checks instead of 2^20 double encryptions.
+ */
+public final class MeetInTheMiddleAttack {
+    // Pairs besides the first used to filter the middle matches with precomputed values;
+    // one leaves about 2^20 / 2^16 = 16 matches for full checks, more would only add precomputation
+    private static final int FILTER_PAIRS = 1;
+    private static final int RANGES_PER_THREAD = 4;
+
+    private MeetInTheMiddleAttack() {
+    }
+
+    /**
+     * Outcome of the attack.
+     */
+    public static final class Result {
+        private final long[] keys;
+        private final long operations;
+        private final long middleMatches;
+        private final int distinctPairs;
+        private final long elapsedNanos;
+
+        Result(long[] keys, long operations, long middleMatches, int distinctPairs, long elapsedNanos) {
+            this.keys = keys;
+            this.operations = operations;
+            this.middleMatches = middleMatches;
+            this.distinctPairs = distinctPairs;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return the consistent keys as 20-bit combined keys (K1 in the high 10 bits), ascending
+         */
+        public long[] getKeys() {
+            return keys.clone();
+        }
+
+        /**
+         * @return the number of single S-DES block encryptions and decryptions performed
+         */
+        public long getOperations() {
+            return operations;
+        }
+
+        /**
+         * @return the operations of the meeting itself: one encryption per K1 and one decryption per K2 (2^11)
+         */
+        public long getMeetOperations() {
+            return 2L * SDESEngine.KEY_COUNT;
+        }
+
+        /**
+         * @return the number of (K1, K2) pairs that met on the first known pair
+         */
+        public long getMiddleMatches() {
+            return middleMatches;
+        }
+
+        public int getDistinctPairs() {
+            return distinctPairs;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+
+    /**
+     * Runs the attack on the common fork-join pool.
+     *
+     * @param parameters the S-DES tables of both layers
+     * @param plaintext  the known plaintext bytes
+     * @param ciphertext the double S-DES ciphertext bytes (ECB)
+     * @return the consistent keys and the work done
+     */
+    public static Result attack(SDESParameters parameters, byte[] plaintext, byte[] ciphertext) {
+        return attack(parameters, plaintext, ciphertext, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Runs the attack; the backward half is split into K2 ranges that run on the pool.
+     *
+     * @param parameters the S-DES tables of both layers
+     * @param plaintext  the known plaintext bytes
+     * @param ciphertext the double S-DES ciphertext bytes (ECB)
+     * @param pool       the pool that runs the K2 ranges
+     * @return the consistent keys and the work done
+     */
+    public static Result attack(SDESParameters parameters, byte[] plaintext, byte[] ciphertext, ForkJoinPool pool) {
+        if (plaintext.length != ciphertext.length || plaintext.length == 0) {
+            throw new IllegalArgumentException("Plaintext and ciphertext must be non-empty and of equal length");
+        }
+        long startTime = System.nanoTime();
+        int keyCount = SDESEngine.KEY_COUNT;
+
+        // Distinct plaintext bytes with their ciphertexts; a contradiction means no key fits
+        int[] required = new int[256];
+        Arrays.fill(required, -1);
+        int[] plains = new int[256];
+        int distinct = 0;
+        for (int i = 0; i < plaintext.length; i++) {
+            int p = plaintext[i] & 0xFF;
+            int c = ciphertext[i] & 0xFF;
+            if (required[p] == -1) {
+                required[p] = c;
+                plains[distinct++] = p;
+            } else if (required[p] != c) {
+                return new Result(new long[0], 0, 0, distinct, System.nanoTime() - startTime);
+            }
+        }
+        int filters = Math.min(FILTER_PAIRS, distinct - 1);
+
+        // Forward half: middle values E_K1(P_j) of the first pair and the filter pairs
+        IntUnaryOperator[] forward = new IntUnaryOperator[keyCount];
+        int[][] middles = new int[1 + filters][keyCount];
+        for (int k1 = 0; k1 < keyCount; k1++) {
+            forward[k1] = SDESEngine.encryptor(k1, parameters);
+            for (int j = 0; j <= filters; j++) {
+                middles[j][k1] = forward[k1].applyAsInt(plains[j]);
+            }
+        }
+        long forwardOperations = (long) keyCount * (1 + filters);
+
+        // Bucket table by middle value of the first pair: keys of bucket m are keysByMiddle[start[m]..start[m + 1])
+        int[] start = new int[257];
+        for (int k1 = 0; k1 < keyCount; k1++) {
+            start[middles[0][k1] + 1]++;
+        }
+        for (int m = 0; m < 256; m++) {
+            start[m + 1] += start[m];
+        }
+        int[] keysByMiddle = new int[keyCount];
+        int[] cursor = Arrays.copyOf(start, 256);
+        for (int k1 = 0; k1 < keyCount; k1++) {
+            keysByMiddle[cursor[middles[0][k1]]++] = k1;
+        }
+
+        // Backward half in parallel K2 ranges
+        int parts = Math.min(keyCount, pool.getParallelism() * RANGES_PER_THREAD);
+        int rangeSize = (keyCount + parts - 1) / parts;
+        int filterCount = filters;
+        int distinctCount = distinct;
+        List<Callable<long[]>> tasks = new ArrayList<>();
+        for (int from = 0; from < keyCount; from += rangeSize) {
+            int rangeStart = from;
+            int rangeEnd = Math.min(keyCount, from + rangeSize);
+            tasks.add(() -> searchRange(parameters, rangeStart, rangeEnd, plains, required, distinctCount,
+                    filterCount, forward, middles, start, keysByMiddle));
+        }
+
+        List<Long> keys = new ArrayList<>();
+        long operations = forwardOperations;
+        long matches = 0;
+        try {
+            for (Future<long[]> result : pool.invokeAll(tasks)) {
+                long[] range = result.get();
+                // The first two entries are counters, the rest are keys
+                operations += range[0];
+                matches += range[1];
+                for (int i = 2; i < range.length; i++) {
+                    keys.add(range[i]);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Meet-in-the-middle attack interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Meet-in-the-middle attack failed", e.getCause());
+        }
+        long[] result = keys.stream().mapToLong(Long::longValue).sorted().toArray();
+        return new Result(result, operations, matches, distinct, System.nanoTime() - startTime);
+    }
+
+    /**
+     * Decrypts the first pair (and lazily the filter pairs) with every K2 in [from, to) and checks
+     * the K1 keys with the same middle value.
+     *
+     * @return operation count, match count, then the consistent combined keys
+     */
+    private static long[] searchRange(SDESParameters parameters, int from, int to, int[] plains, int[] required,
+                                      int distinct, int filters, IntUnaryOperator[] forward, int[][] middles,
+                                      int[] start, int[] keysByMiddle) {
+        long[] found = new long[8];
+        int count = 2;
+        long operations = 0;
+        long matches = 0;
+        int[] backward = new int[1 + filters];
+        for (int k2 = from; k2 < to; k2++) {
+            IntUnaryOperator decrypt = SDESEngine.decryptor(k2, parameters);
+            int middle = decrypt.applyAsInt(required[plains[0]]);
+            operations++;
+            int bucketEnd = start[middle + 1];
+            if (start[middle] == bucketEnd) {
+                continue;
+            }
+            for (int j = 1; j <= filters; j++) {
+                backward[j] = decrypt.applyAsInt(required[plains[j]]);
+            }
+            operations += filters;
+            IntUnaryOperator encrypt = null;
+
+            for (int b = start[middle]; b < bucketEnd; b++) {
+                int k1 = keysByMiddle[b];
+                matches++;
+                boolean consistent = true;
+                for (int j = 1; j <= filters && consistent; j++) {
+                    consistent = middles[j][k1] == backward[j];
+                }
+                // Remaining pairs are checked by full double encryption
+                for (int j = filters + 1; j < distinct && consistent; j++) {
+                    if (encrypt == null) {
+                        encrypt = SDESEngine.encryptor(k2, parameters);
+                    }
+                    consistent = encrypt.applyAsInt(forward[k1].applyAsInt(plains[j])) == required[plains[j]];
+                    operations += 2;
+                }
+                if (consistent) {
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, count * 2);
+                    }
+                    found[count++] = ((long) k1 << SDESEngine.KEY_BITS) | k2;
+                }
+            }
+        }
+        found[0] = operations;
+        found[1] = matches;
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Naive exhaustive search over all 2^20 double S-DES keys with {@link KeySearch}, for comparison.
+     *
+     * @param parameters the S-DES tables of both layers
+     * @return a key search over the combined 20-bit keys (K1 in the high 10 bits)
+     */
+    public static KeySearch exhaustiveSearch(SDESParameters parameters) {
+        return new KeySearch(DoubleSDES.KEY_BITS, key -> {
+            IntUnaryOperator inner = SDESEngine.encryptor((int) (key >>> SDESEngine.KEY_BITS), parameters);
+            IntUnaryOperator outer = SDESEngine.encryptor((int) (key & (SDESEngine.KEY_COUNT - 1)), parameters);
+            return block -> outer.applyAsInt(inner.applyAsInt(block));
+        });
+    }
+}
@@ -0,0 +1,258 @@
+package com.ivan.lab5;
+
+import com.ivan.lab4.SDESEngine;
+import com.ivan.lab4.SDESParameters;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Parallel sweep over S-box mutations of S-DES.
+ * Every single-entry change of S0 or S1 and every pair of changes at two different entries is
+ * applied to its own {@link SDESParameters}, and each variant encrypts all 256 plaintexts under a set
+ * of keys. The ciphertexts are compared with the unmodified cipher to measure how far each mutation
+ * diffuses. Variants are independent, so they run as fork-join tasks without shared state.
+ */
+public final class SBoxMutationSweep {
+    // Number of keys used by default, spread evenly over the key space
+    public static final int DEFAULT_KEYS = 64;
+
+    private SBoxMutationSweep() {
+    }
+
+    /**
+     * Diffusion statistics of one S-box mutation over all plaintexts and keys.
+     */
+    public static final class MutationResult {
+        private final String description;
+        private final int changedEntries;
+        private final long samples;
+        private final long totalBitChanges;
+        private final int minBitChanges;
+        private final int maxBitChanges;
+        private final long changedCiphertexts;
+
+        MutationResult(String description, int changedEntries, long samples, long totalBitChanges,
+                       int minBitChanges, int maxBitChanges, long changedCiphertexts) {
+            this.description = description;
+            this.changedEntries = changedEntries;
+            this.samples = samples;
+            this.totalBitChanges = totalBitChanges;
+            this.minBitChanges = minBitChanges;
+            this.maxBitChanges = maxBitChanges;
+            this.changedCiphertexts = changedCiphertexts;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * @return 1 for a single mutation, 2 for a pairwise one
+         */
+        public int getChangedEntries() {
+            return changedEntries;
+        }
+
+        public double getMeanBitChanges() {
+            return (double) totalBitChanges / samples;
+        }
+
+        public int getMinBitChanges() {
+            return minBitChanges;
+        }
+
+        public int getMaxBitChanges() {
+            return maxBitChanges;
+        }
+
+        /**
+         * @return the fraction of (plaintext, key) samples whose ciphertext changed at all
+         */
+        public double getChangedFraction() {
+            return (double) changedCiphertexts / samples;
+        }
+    }
+
+    /**
+     * Outcome of a sweep.
+     */
+    public static final class Report {
+        private final List<MutationResult> results;
+        private final int keys;
+        private final long elapsedNanos;
+
+        Report(List<MutationResult> results, int keys, long elapsedNanos) {
+            this.results = results;
+            this.keys = keys;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public List<MutationResult> getResults() {
+            return results;
+        }
+
+        public int getKeys() {
+            return keys;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+
+    /**
+     * Runs the sweep with {@code keyCount} keys spread evenly over the key space, using the common pool.
+     *
+     * @param base     the parameters to mutate
+     * @param keyCount the number of keys (1 to 1024)
+     * @return statistics for every mutation
+     */
+    public static Report run(SDESParameters base, int keyCount) {
+        if (keyCount < 1 || keyCount > SDESEngine.KEY_COUNT) {
+            throw new IllegalArgumentException("Key count must be between 1 and " + SDESEngine.KEY_COUNT);
+        }
+        int[] keys = new int[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = (int) ((long) i * SDESEngine.KEY_COUNT / keyCount);
+        }
+        return run(base, keys, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Runs the sweep over all 256 plaintexts and the given keys.
+     *
+     * @param base the parameters to mutate
+     * @param keys the keys to encrypt with
+     * @param pool the pool that runs the variants
+     * @return statistics for every mutation
+     */
+    public static Report run(SDESParameters base, int[] keys, ForkJoinPool pool) {
+        long startTime = System.nanoTime();
+
+        // Reference ciphertexts of the unmodified cipher
+        byte[][] reference = new byte[keys.length][];
+        for (int k = 0; k < keys.length; k++) {
+            reference[k] = SDESEngine.encryptionTable(keys[k], base);
+        }
+
+        // Every (box, row, col) position with each of the 3 values different from the original
+        int[][] singles = new int[2 * 16 * 3][];
+        int count = 0;
+        for (int box = 0; box < 2; box++) {
+            for (int entry = 0; entry < 16; entry++) {
+                int original = base.getSBoxEntry(box, entry >>> 2, entry & 3);
+                for (int value = 0; value < 4; value++) {
+                    if (value != original) {
+                        singles[count++] = new int[]{box, entry >>> 2, entry & 3, value};
+                    }
+                }
+            }
+        }
+
+        List<Callable<MutationResult>> tasks = new ArrayList<>();
+        for (int[] single : singles) {
+            tasks.add(() -> evaluate(base.withSBoxEntry(single[0], single[1], single[2], single[3]),
+                    describe(single), 1, keys, reference));
+        }
+        for (int i = 0; i < singles.length; i++) {
+            for (int j = i + 1; j < singles.length; j++) {
+                int[] first = singles[i];
+                int[] second = singles[j];
+                // Two values for the same entry are not a pair of changes
+                if (first[0] == second[0] && first[1] == second[1] && first[2] == second[2]) {
+                    continue;
+                }
+                tasks.add(() -> evaluate(base.withSBoxEntry(first[0], first[1], first[2], first[3])
+                                .withSBoxEntry(second[0], second[1], second[2], second[3]),
+                        describe(first) + " + " + describe(second), 2, keys, reference));
+            }
+        }
+
+        List<MutationResult> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<MutationResult> result : pool.invokeAll(tasks)) {
+                results.add(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("S-box sweep interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("S-box sweep failed", e.getCause());
+        }
+        return new Report(results, keys.length, System.nanoTime() - startTime);
+    }
+
+    /**
+     * Encrypts all plaintexts under all keys with a variant and compares with the reference ciphertexts.
+     */
+    private static MutationResult evaluate(SDESParameters variant, String description, int changedEntries,
+                                           int[] keys, byte[][] reference) {
+        long total = 0;
+        long changed = 0;
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (int k = 0; k < keys.length; k++) {
+            byte[] table = SDESEngine.encryptionTable(keys[k], variant);
+            byte[] base = reference[k];
+            for (int block = 0; block < 256; block++) {
+                int bits = Integer.bitCount((table[block] ^ base[block]) & 0xFF);
+                total += bits;
+                if (bits != 0) {
+                    changed++;
+                }
+                min = Math.min(min, bits);
+                max = Math.max(max, bits);
+            }
+        }
+        return new MutationResult(description, changedEntries, (long) keys.length * 256, total, min, max, changed);
+    }
+
+    private static String describe(int[] mutation) {
+        return "S" + mutation[0] + "[" + mutation[1] + "][" + mutation[2] + "]=" + mutation[3];
+    }
+
+    /**
+     * Prints min/mean/max diffusion for single and pairwise mutations and the weakest and strongest variants.
+     *
+     * @param report the sweep outcome
+     */
+    public static void printReport(Report report) {
+        System.out.println("-----------------------------------");
+        System.out.println("S-box mutation sweep (" + report.getResults().size() + " variants, 256 plaintexts x "
+                + report.getKeys() + " keys):");
+        for (int entries = 1; entries <= 2; entries++) {
+            List<MutationResult> group = new ArrayList<>();
+            for (MutationResult result : report.getResults()) {
+                if (result.getChangedEntries() == entries) {
+                    group.add(result);
+                }
+            }
+            if (group.isEmpty()) {
+                continue;
+            }
+            group.sort(Comparator.comparingDouble(MutationResult::getMeanBitChanges));
+            double sum = 0;
+            for (MutationResult result : group) {
+                sum += result.getMeanBitChanges();
+            }
+            MutationResult weakest = group.get(0);
+            MutationResult strongest = group.get(group.size() - 1);
+            System.out.println((entries == 1 ? "Single" : "Pairwise") + " mutations: " + group.size());
+            System.out.printf("Mean bit changes: min %.3f, mean %.3f, max %.3f%n",
+                    weakest.getMeanBitChanges(), sum / group.size(), strongest.getMeanBitChanges());
+            System.out.printf("Weakest: %s (%.3f bits, %.1f%% ciphertexts changed)%n", weakest.getDescription(),
+                    weakest.getMeanBitChanges(), weakest.getChangedFraction() * 100);
+            System.out.printf("Strongest: %s (%.3f bits, max %d bits)%n", strongest.getDescription(),
+                    strongest.getMeanBitChanges(), strongest.getMaxBitChanges());
+        }
+        double seconds = report.getElapsedNanos() / 1e9;
+        long encryptions = (long) (report.getResults().size() + 1) * report.getKeys() * 256;
+        System.out.printf("Time taken: %.1f ms (%.0f encryptions per second)%n", seconds * 1000, encryptions / seconds);
+    }
+}
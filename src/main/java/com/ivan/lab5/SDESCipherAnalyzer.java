@@ -1,9 +1,13 @@
 package com.ivan.lab5;
 
+import com.ivan.lab4.DoubleSDES;
 import com.ivan.lab4.SDESCipher;
+import com.ivan.lab4.SDESEngine;
+import com.ivan.lab4.SDESParameters;
 import com.ivan.utils.FileManager;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.Scanner;
 
@@ -167,26 +171,11 @@ public class SDESCipherAnalyzer {
         System.out.println(testName + " max changes: " + maxChanges + " (bit " + maxBit + ")");
     }
 
-    /**
-     * Modifies a single entry in the S0 S-box of SDESCipher.
-     * The algorithm updates the specified row and column with a new value if valid.
-     *
-     * @param row   the row index (0-3)
-     * @param col   the column index (0-3)
-     * @param value the new value (0-3)
-     */
-    private static void modifySBox(int row, int col, int value) {
-        // Validate indices and value before modifying S0
-        if (row < 4 && col < 4 && value >= 0 && value <= 3) {
-            SDESCipher.S0[row][col] = value;
-        }
-    }
-
     /**
      * Analyzes S-box diffusion in S-DES encryption.
-     * The algorithm encrypts a fixed text block, then modifies each S0 S-box entry to
-     * different values, re-encrypts, and counts ciphertext bit differences to assess
-     * the impact of S-box changes.
+     * The algorithm encrypts a fixed text block, then encrypts it again with cipher instances
+     * whose S0 has one entry changed to each different value, and counts ciphertext bit
+     * differences to assess the impact of S-box changes. The global S-boxes are not modified.
      *
      * @param text     the input text (uses first byte)
      * @param key      the key as a binary string
@@ -194,16 +183,11 @@ public class SDESCipherAnalyzer {
      */
     private static void analyzeSBoxDiffusion(String text, String key, String testName) {
         // Use first byte of text as 8-bit block
-        boolean[] block = SDESCipher.byteToBits(text.getBytes()[0]);
-        // Convert key to 10-bit array
-        boolean[] baseKey = stringToBits(key);
+        byte block = text.getBytes()[0];
+        int baseKey = SDESEngine.keyToInt(stringToBits(key));
+        SDESParameters original = SDESParameters.STANDARD;
         // Encrypt with original S-box
-        boolean[] baseCipher = SDESCipher.encryptBlock(block, baseKey);
-        // Backup original S0
-        int[][] originalS0 = new int[4][4];
-        for (int i = 0; i < 4; i++) {
-            System.arraycopy(SDESCipher.S0[i], 0, originalS0[i], 0, 4);
-        }
+        int baseCipher = SDESEngine.encryptor(baseKey, original).applyAsInt(block & 0xFF);
         int minChanges = Integer.MAX_VALUE;
         int maxChanges = 0;
         String minChangePos = "";
@@ -216,13 +200,12 @@ public class SDESCipherAnalyzer {
             for (int col = 0; col < 4; col++) {
                 for (int val = 0; val < 4; val++) {
                     // Skip original value to avoid no-op
-                    if (val != originalS0[row][col]) {
-                        // Modify S-box entry
-                        modifySBox(row, col, val);
-                        // Re-encrypt with modified S-box
-                        boolean[] cipher = SDESCipher.encryptBlock(block, baseKey);
+                    if (val != original.getSBoxEntry(0, row, col)) {
+                        // Re-encrypt with a cipher instance that has the modified S-box
+                        SDESParameters modified = original.withSBoxEntry(0, row, col, val);
+                        int cipher = SDESEngine.encryptor(baseKey, modified).applyAsInt(block & 0xFF);
                         // Count differing bits
-                        int changes = countBitDifferences(baseCipher, cipher);
+                        int changes = Integer.bitCount(baseCipher ^ cipher);
                         totalChanges += changes;
                         count++;
                         // Track minimum changes
@@ -235,8 +218,6 @@ public class SDESCipherAnalyzer {
                             maxChanges = changes;
                             maxChangePos = "row " + row + ", col " + col + ", val " + val;
                         }
-                        // Restore original S-box
-                        SDESCipher.S0[row][col] = originalS0[row][col];
                     }
                 }
             }
@@ -252,49 +233,95 @@ public class SDESCipherAnalyzer {
 
     /**
      * Simulates a brute-force attack on S-DES.
-     * The algorithm tries all 1024 possible 10-bit keys to find one that produces
-     * the target ciphertext for a given text block, measuring time and keys tested.
+     * The algorithm searches all 1024 possible 10-bit keys in parallel (see KeySearch) for every key
+     * consistent with the known plaintext/ciphertext pairs, first with the first byte only and then
+     * with the whole text, and reports the keys found, keys per second and time per candidate.
      *
-     * @param text   the input text (uses first byte)
-     * @param cipher the target ciphertext as a binary string
+     * @param plaintext  the known plaintext bytes
+     * @param ciphertext the corresponding ciphertext bytes
      */
-    private static void bruteForceAttack(String text, String cipher) {
-        // Use first byte of text as 8-bit block
-        boolean[] block = SDESCipher.byteToBits(text.getBytes()[0]);
-        // Convert target ciphertext to bits
-        boolean[] targetCipher = stringToBits(cipher);
-        // Record start time in nanoseconds
-        long startTime = System.nanoTime();
-        int keysTried = 0;
-        int successKey = -1;
-        boolean found = false;
+    private static void bruteForceAttack(byte[] plaintext, byte[] ciphertext) {
+        KeySearch search = KeySearch.sdes();
+        System.out.println("-----------------------------------");
+        System.out.println("Brute-force attack:");
+        System.out.println("Total keys: " + (1 << search.getKeyBits()));
+        // A single byte leaves many false positives, the whole text narrows them down
+        printSearchResult("First byte", search.search(Arrays.copyOf(plaintext, 1), Arrays.copyOf(ciphertext, 1)));
+        printSearchResult("Whole text", search.search(plaintext, ciphertext));
+    }
 
-        // Test all 10-bit keys (0 to 1023)
-        for (int i = 0; i < 1024; i++) {
-            // Generate key as 10-bit binary string, padded with zeros
-            String keyStr = String.format("%10s", Integer.toBinaryString(i)).replace(' ', '0');
-            boolean[] key = stringToBits(keyStr);
-            // Encrypt block with current key
-            boolean[] cipherBits = SDESCipher.encryptBlock(block, key);
-            keysTried++;
-            // Check if ciphertext matches target
-            if (bitsToString(cipherBits).equals(bitsToString(targetCipher))) {
-                successKey = i;
-                found = true;
-                break;
+    /**
+     * Attacks double S-DES with a meet-in-the-middle search and compares it with exhaustive search.
+     * The algorithm meets E_K1(P) and D_K2(C) in a bucket table (about 2^11 block operations) and
+     * then runs the naive parallel search over all 2^20 key pairs on the same known pairs.
+     *
+     * @param plaintext  the known plaintext bytes
+     * @param ciphertext the double S-DES ciphertext bytes
+     */
+    private static void meetInTheMiddleAttack(byte[] plaintext, byte[] ciphertext) {
+        MeetInTheMiddleAttack.Result result = MeetInTheMiddleAttack.attack(SDESParameters.STANDARD, plaintext, ciphertext);
+        KeySearch exhaustive = MeetInTheMiddleAttack.exhaustiveSearch(SDESParameters.STANDARD);
+        System.out.println("Meet-in-the-middle (" + result.getDistinctPairs() + " distinct pairs):");
+        System.out.println("Meet operations: " + result.getMeetOperations() + " (2^"
+                + String.format("%.1f", Math.log(result.getMeetOperations()) / Math.log(2)) + ")");
+        System.out.println("Total block operations with filtering: " + result.getOperations() + " (2^"
+                + String.format("%.1f", Math.log(result.getOperations()) / Math.log(2)) + ")");
+        System.out.println("Middle matches checked: " + result.getMiddleMatches());
+        StringBuilder keyList = new StringBuilder();
+        for (long key : result.getKeys()) {
+            if (keyList.length() > 0) {
+                keyList.append(", ");
             }
+            // Combined key: K1 in the high 10 bits, K2 in the low 10 bits
+            String bits = String.format("%20s", Long.toBinaryString(key)).replace(' ', '0');
+            keyList.append(bits, 0, 10).append('/').append(bits, 10, 20);
         }
+        System.out.println("Consistent keys K1/K2 (" + result.getKeys().length + "): "
+                + (keyList.length() == 0 ? "none" : keyList));
+        System.out.println("Time taken: " + result.getElapsedNanos() / 1_000_000.0 + " ms");
+        printSearchResult("Exhaustive 2^20 search", exhaustive.search(plaintext, ciphertext));
+    }
 
-        // Calculate time in milliseconds
-        long endTime = System.nanoTime();
-        double timeMs = (endTime - startTime) / 1_000_000.0;
-        System.out.println("-----------------------------------");
-        System.out.println("Brute-force attack:");
-        System.out.println("Total keys: 1024");
-        System.out.println("Keys tried: " + keysTried);
-        // Format success key as 10-bit string if found
-        System.out.println("Success key: " + (found ? String.format("%10s", Integer.toBinaryString(successKey)).replace(' ', '0') : "none"));
-        System.out.println("Time taken: " + timeMs + " ms");
+    /**
+     * Prints the consistent keys and timing of a key search.
+     *
+     * @param name   the name of the search for output
+     * @param result the search result
+     */
+    private static void printSearchResult(String name, KeySearch.Result result) {
+        long[] keys = result.getKeys();
+        StringBuilder keyList = new StringBuilder();
+        for (long key : keys) {
+            if (keyList.length() > 0) {
+                keyList.append(", ");
+            }
+            keyList.append(result.formatKey(key));
+        }
+        System.out.println(name + " (" + result.getPairs() + " pairs, " + result.getDistinctPairs() + " distinct):");
+        System.out.println("Keys tried: " + result.getKeysTested());
+        System.out.println("Consistent keys (" + keys.length + "): " + (keys.length == 0 ? "none" : keyList));
+        System.out.println("Time taken: " + result.getElapsedNanos() / 1_000_000.0 + " ms");
+        System.out.printf("Keys per second: %.0f%n", result.getKeysPerSecond());
+        System.out.printf("Time per candidate: %.1f ns%n", result.getNanosPerKey());
+    }
+
+    /**
+     * Prints the difference distribution and linear approximation tables of S0 and S1.
+     * The algorithm prints one row per input difference (or mask) and one column per output difference (or mask).
+     *
+     * @param parameters the S-DES tables
+     */
+    private static void printSBoxTables(SDESParameters parameters) {
+        for (int box = 0; box < 2; box++) {
+            int[][] ddt = SDESCryptanalysis.differenceDistributionTable(parameters, box);
+            int[][] lat = SDESCryptanalysis.linearApproximationTable(parameters, box);
+            System.out.println("S" + box + " DDT (rows: input difference, columns: output difference) | LAT (rows: input mask, columns: output mask):");
+            for (int row = 0; row < 16; row++) {
+                System.out.printf("%2d: %2d %2d %2d %2d | %2d %2d %2d %2d%n", row,
+                        ddt[row][0], ddt[row][1], ddt[row][2], ddt[row][3],
+                        lat[row][0], lat[row][1], lat[row][2], lat[row][3]);
+            }
+        }
     }
 
     public static void main(String[] args) {
@@ -333,15 +360,37 @@ public class SDESCipherAnalyzer {
         }
         analyzeTextDiffusion(randomText, randomKey, "Random text (" + randomText + ")");
 
+        // Full population: every plaintext, key and single-bit flip
+        AvalancheAnalysis.run(SDESParameters.STANDARD).printReport();
+
         System.out.println("-----------------------------------");
         System.out.println("S-box diffusion analysis:");
         analyzeSBoxDiffusion(inputText, randomKey, "Random key (" + randomKey + ")");
+        SBoxMutationSweep.printReport(SBoxMutationSweep.run(SDESParameters.STANDARD, SBoxMutationSweep.DEFAULT_KEYS));
 
         System.out.println("-----------------------------------");
         System.out.println("Brute-force attack simulation:");
         // Use input text and random key to generate ciphertext
-        boolean[] block = SDESCipher.byteToBits(inputText.getBytes()[0]);
-        boolean[] cipher = SDESCipher.encryptBlock(block, stringToBits(randomKey));
-        bruteForceAttack(inputText, bitsToString(cipher));
+        byte[] plaintext = inputText.getBytes();
+        byte[] ciphertext = new byte[plaintext.length];
+        SDESEngine.of(stringToBits(randomKey)).encrypt(plaintext, ciphertext);
+        bruteForceAttack(plaintext, ciphertext);
+
+        System.out.println("-----------------------------------");
+        System.out.println("Differential and linear cryptanalysis:");
+        printSBoxTables(SDESParameters.STANDARD);
+        SDESEngine target = SDESEngine.of(stringToBits(randomKey));
+        System.out.println("-----------------------------------");
+        SDESCryptanalysis.differentialAttack(SDESParameters.STANDARD,
+                block -> target.encrypt((byte) block) & 0xFF, rand).print();
+        System.out.println("-----------------------------------");
+        SDESCryptanalysis.linearAttack(SDESParameters.STANDARD, plaintext, ciphertext).print();
+
+        System.out.println("-----------------------------------");
+        System.out.println("Double S-DES meet-in-the-middle attack:");
+        DoubleSDES doubleCipher = new DoubleSDES(SDESEngine.keyToInt(stringToBits(randomKey)), rand.nextInt(SDESEngine.KEY_COUNT));
+        byte[] doubleCiphertext = new byte[plaintext.length];
+        doubleCipher.encrypt(plaintext, doubleCiphertext);
+        meetInTheMiddleAttack(plaintext, doubleCiphertext);
     }
 }
\ No newline at end of file
@@ -0,0 +1,448 @@
+package com.ivan.lab5;
+
+import com.ivan.lab4.SDESEngine;
+import com.ivan.lab4.SDESParameters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Differential and linear cryptanalysis of two-round S-DES.
+ * <p>
+ * Both attacks target the last round. Applying IP to a ciphertext gives the round-2 output
+ * (R0 ⊕ F(L1, K2)) || L1, so the input L1 of the last f-function is visible and, together with the
+ * plaintext half R0, so is its output. The S-box inputs are EP(L1) ⊕ K2, split into a nibble for S0 and
+ * one for S1, and each 4-bit half of K2 is recovered separately from the S-box tables:
+ * <ul>
+ *     <li>the differential attack uses chosen plaintext pairs with a fixed difference in the left half,
+ *     which passes round 1 unchanged, and keeps the subkey nibbles consistent with the observed
+ *     S-box output differences (difference distribution table);</li>
+ *     <li>the linear attack uses known plaintexts and, Matsui-style, estimates the parity a·k of every
+ *     subkey nibble from the best linear approximation a·x = b·S(x) of each input mask (linear
+ *     approximation table), then ranks the 16 candidates by agreement with the estimates.</li>
+ * </ul>
+ * The remaining 2 master-key bits that K2 does not contain are found by trying the 4 completions
+ * of every candidate K2 on the known pairs.
+ */
+public final class SDESCryptanalysis {
+    // Upper bound of chosen plaintext pairs for the differential attack
+    private static final int MAX_PAIRS = 64;
+
+    private SDESCryptanalysis() {
+    }
+
+    /**
+     * Builds the difference distribution table of an S-box: entry [dx][dy] counts inputs x with
+     * S(x) ⊕ S(x ⊕ dx) = dy.
+     *
+     * @param parameters the S-DES tables
+     * @param box        the S-box (0 for S0, 1 for S1)
+     * @return the 16x4 table
+     */
+    public static int[][] differenceDistributionTable(SDESParameters parameters, int box) {
+        int[][] table = new int[16][4];
+        for (int dx = 0; dx < 16; dx++) {
+            for (int x = 0; x < 16; x++) {
+                table[dx][parameters.sBox(box, x) ^ parameters.sBox(box, x ^ dx)]++;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Builds the linear approximation table of an S-box: entry [a][b] is the number of inputs x with
+     * a·x = b·S(x), minus 8 (0 means no bias, ±8 a linear relation).
+     *
+     * @param parameters the S-DES tables
+     * @param box        the S-box (0 for S0, 1 for S1)
+     * @return the 16x4 table
+     */
+    public static int[][] linearApproximationTable(SDESParameters parameters, int box) {
+        int[][] table = new int[16][4];
+        for (int a = 0; a < 16; a++) {
+            for (int b = 0; b < 4; b++) {
+                int matches = 0;
+                for (int x = 0; x < 16; x++) {
+                    if (parity(a & x) == parity(b & parameters.sBox(box, x))) {
+                        matches++;
+                    }
+                }
+                table[a][b] = matches - 8;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Outcome of a key-recovery attack.
+     */
+    public static final class AttackResult {
+        private final String name;
+        private final int[] keys;
+        private final int plaintexts;
+        private final int subkeyCandidates;
+        private final long trialEncryptions;
+        private final long elapsedNanos;
+
+        AttackResult(String name, int[] keys, int plaintexts, int subkeyCandidates, long trialEncryptions,
+                     long elapsedNanos) {
+            this.name = name;
+            this.keys = keys;
+            this.plaintexts = plaintexts;
+            this.subkeyCandidates = subkeyCandidates;
+            this.trialEncryptions = trialEncryptions;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return the master keys consistent with all known pairs
+         */
+        public int[] getKeys() {
+            return keys.clone();
+        }
+
+        /**
+         * @return the number of plaintexts encrypted by the oracle or given as known pairs (data complexity)
+         */
+        public int getPlaintexts() {
+            return plaintexts;
+        }
+
+        /**
+         * @return the number of K2 candidates that were extended to master keys
+         */
+        public int getSubkeyCandidates() {
+            return subkeyCandidates;
+        }
+
+        /**
+         * @return the number of block encryptions spent verifying candidate master keys
+         */
+        public long getTrialEncryptions() {
+            return trialEncryptions;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Prints the recovered keys with data and time complexity.
+         */
+        public void print() {
+            StringBuilder keyList = new StringBuilder();
+            for (int key : keys) {
+                if (keyList.length() > 0) {
+                    keyList.append(", ");
+                }
+                String bits = Integer.toBinaryString(key);
+                keyList.append("0".repeat(SDESEngine.KEY_BITS - bits.length())).append(bits);
+            }
+            System.out.println(name + " attack:");
+            System.out.println("Plaintexts used: " + plaintexts);
+            System.out.println("K2 candidates tried: " + subkeyCandidates);
+            System.out.println("Master keys tested: " + subkeyCandidates * 4 + " of " + SDESEngine.KEY_COUNT);
+            System.out.println("Trial encryptions: " + trialEncryptions);
+            System.out.println("Recovered keys: " + (keys.length == 0 ? "none" : keyList));
+            System.out.println("Time taken: " + elapsedNanos / 1_000_000.0 + " ms");
+        }
+    }
+
+    /**
+     * Chosen-plaintext differential attack on the last round.
+     * Pairs P, P' differ only in the left half after IP, so L1 and L1' differ by the same value and the
+     * round-2 S-box input differences are known; two alternating differences are used, because a single one
+     * cannot tell k from k ⊕ dx. Pairs are requested until one candidate is left for each half of K2.
+     *
+     * @param parameters the S-DES tables of the attacked cipher
+     * @param oracle     encrypts a chosen plaintext byte with the unknown key
+     * @param random     source of the chosen plaintexts
+     * @return the recovered keys and complexity
+     */
+    public static AttackResult differentialAttack(SDESParameters parameters, IntUnaryOperator oracle, Random random) {
+        long startTime = System.nanoTime();
+        Round2 round = new Round2(parameters);
+        int[] differences = bestDifferences(parameters);
+
+        // Bit k of candidates[half] is set while nibble k is still consistent
+        int[] candidates = {0xFFFF, 0xFFFF};
+        List<int[]> pairs = new ArrayList<>();
+        int plaintexts = 0;
+        for (int i = 0; i < MAX_PAIRS && (Integer.bitCount(candidates[0]) > 1 || Integer.bitCount(candidates[1]) > 1); i++) {
+            // Difference in the left half after IP, mapped back to plaintext bits
+            int difference = differences[i % differences.length];
+            int plain = random.nextInt(256);
+            int plainPair = plain ^ round.inverseIp(difference << 4);
+            int cipher = oracle.applyAsInt(plain);
+            int cipherPair = oracle.applyAsInt(plainPair);
+            plaintexts += 2;
+            pairs.add(new int[]{plain, cipher});
+            pairs.add(new int[]{plainPair, cipherPair});
+
+            int[] input = round.sBoxInputs(cipher);
+            int[] inputPair = round.sBoxInputs(cipherPair);
+            int[] output = round.sBoxOutputs(plain, cipher);
+            int[] outputPair = round.sBoxOutputs(plainPair, cipherPair);
+            for (int half = 0; half < 2; half++) {
+                int expected = output[half] ^ outputPair[half];
+                for (int k = 0; k < 16; k++) {
+                    int observed = parameters.sBox(half, input[half] ^ k) ^ parameters.sBox(half, inputPair[half] ^ k);
+                    if (observed != expected) {
+                        candidates[half] &= ~(1 << k);
+                    }
+                }
+            }
+        }
+
+        List<Integer> subkeys = new ArrayList<>();
+        for (int high = 0; high < 16; high++) {
+            for (int low = 0; low < 16; low++) {
+                if ((candidates[0] >>> high & 1) != 0 && (candidates[1] >>> low & 1) != 0) {
+                    subkeys.add((high << 4) | low);
+                }
+            }
+        }
+        return recoverMasterKeys("Differential", parameters, subkeys, pairs, plaintexts, startTime);
+    }
+
+    /**
+     * Known-plaintext linear attack on the last round (Matsui's algorithm 1 per S-box mask).
+     * For every input mask a the output mask b with the largest |LAT[a][b]| is used; the majority of
+     * a·x ⊕ b·S(x) over the pairs, corrected for the sign of the bias, estimates the key parity a·k.
+     * Subkey nibbles are ranked by the bias-weighted agreement with the estimates and the best ones
+     * are extended to master keys until a key fits all pairs.
+     *
+     * @param parameters the S-DES tables of the attacked cipher
+     * @param plaintext  the known plaintext bytes
+     * @param ciphertext the ciphertext bytes (ECB)
+     * @return the recovered keys and complexity
+     */
+    public static AttackResult linearAttack(SDESParameters parameters, byte[] plaintext, byte[] ciphertext) {
+        if (plaintext.length != ciphertext.length || plaintext.length == 0) {
+            throw new IllegalArgumentException("Plaintext and ciphertext must be non-empty and of equal length");
+        }
+        long startTime = System.nanoTime();
+        Round2 round = new Round2(parameters);
+        List<int[]> pairs = new ArrayList<>();
+        for (int i = 0; i < plaintext.length; i++) {
+            pairs.add(new int[]{plaintext[i] & 0xFF, ciphertext[i] & 0xFF});
+        }
+
+        double[][] scores = new double[2][16];
+        for (int half = 0; half < 2; half++) {
+            int[][] lat = linearApproximationTable(parameters, half);
+            for (int a = 1; a < 16; a++) {
+                int b = 0;
+                for (int mask = 1; mask < 4; mask++) {
+                    if (Math.abs(lat[a][mask]) > Math.abs(lat[a][b]) || b == 0) {
+                        b = mask;
+                    }
+                }
+                if (lat[a][b] == 0) {
+                    continue;
+                }
+                // Count pairs where a·e ⊕ b·S(x) = 0, e being the S-box input without the key
+                int zeros = 0;
+                for (int[] pair : pairs) {
+                    int e = round.sBoxInputs(pair[1])[half];
+                    int s = round.sBoxOutputs(pair[0], pair[1])[half];
+                    if ((parity(a & e) ^ parity(b & s)) == 0) {
+                        zeros++;
+                    }
+                }
+                // a·k = a·e ⊕ b·S(x) with probability (8 + LAT) / 16
+                int guess = zeros * 2 >= pairs.size() ? 0 : 1;
+                if (lat[a][b] < 0) {
+                    guess ^= 1;
+                }
+                double weight = Math.abs(lat[a][b]) / 16.0 * Math.abs(2.0 * zeros - pairs.size()) / pairs.size();
+                for (int k = 0; k < 16; k++) {
+                    scores[half][k] += parity(a & k) == guess ? weight : -weight;
+                }
+            }
+        }
+
+        // Candidate K2 values in decreasing order of combined score
+        Integer[] order = new Integer[256];
+        for (int i = 0; i < 256; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (x, y) -> Double.compare(scores[0][y >>> 4] + scores[1][y & 0xF],
+                scores[0][x >>> 4] + scores[1][x & 0xF]));
+
+        long trialEncryptions = 0;
+        int tried = 0;
+        for (int subkey : order) {
+            tried++;
+            AttackResult result = recoverMasterKeys("Linear", parameters, List.of(subkey), pairs, plaintext.length, startTime);
+            trialEncryptions += result.getTrialEncryptions();
+            if (result.keys.length > 0) {
+                return new AttackResult("Linear", result.keys, plaintext.length, tried, trialEncryptions,
+                        System.nanoTime() - startTime);
+            }
+        }
+        return new AttackResult("Linear", new int[0], plaintext.length, tried, trialEncryptions,
+                System.nanoTime() - startTime);
+    }
+
+    /**
+     * Extends every candidate K2 with the key bits it does not contain and keeps the master keys
+     * that encrypt all known pairs correctly.
+     */
+    private static AttackResult recoverMasterKeys(String name, SDESParameters parameters, List<Integer> subkeys,
+                                                  List<int[]> pairs, int plaintexts, long startTime) {
+        int[] keyBitOfSubkeyBit = subkey2KeyBits(parameters);
+        int fixedMask = 0;
+        for (int bit : keyBitOfSubkeyBit) {
+            fixedMask |= 1 << (SDESEngine.KEY_BITS - bit);
+        }
+        int[] freeBits = new int[SDESEngine.KEY_BITS - Integer.bitCount(fixedMask)];
+        int free = 0;
+        for (int bit = 0; bit < SDESEngine.KEY_BITS; bit++) {
+            if ((fixedMask & (1 << bit)) == 0) {
+                freeBits[free++] = bit;
+            }
+        }
+
+        List<Integer> keys = new ArrayList<>();
+        long trialEncryptions = 0;
+        for (int subkey : subkeys) {
+            int base = 0;
+            for (int i = 0; i < 8; i++) {
+                if ((subkey & (0x80 >>> i)) != 0) {
+                    base |= 1 << (SDESEngine.KEY_BITS - keyBitOfSubkeyBit[i]);
+                }
+            }
+            for (int completion = 0; completion < (1 << freeBits.length); completion++) {
+                int key = base;
+                for (int i = 0; i < freeBits.length; i++) {
+                    if ((completion & (1 << i)) != 0) {
+                        key |= 1 << freeBits[i];
+                    }
+                }
+                IntUnaryOperator encrypt = SDESEngine.encryptor(key, parameters);
+                boolean consistent = true;
+                for (int[] pair : pairs) {
+                    trialEncryptions++;
+                    if (encrypt.applyAsInt(pair[0]) != pair[1]) {
+                        consistent = false;
+                        break;
+                    }
+                }
+                if (consistent && !keys.contains(key)) {
+                    keys.add(key);
+                }
+            }
+        }
+        int[] result = keys.stream().mapToInt(Integer::intValue).sorted().toArray();
+        return new AttackResult(name, result, plaintexts, subkeys.size(), trialEncryptions,
+                System.nanoTime() - startTime);
+    }
+
+    /**
+     * Traces each K2 bit back through P8, the rotation by 3 and P10 to the master-key bit it comes from.
+     *
+     * @return for each K2 bit (1-8, most significant first) the master-key bit position (1-10)
+     */
+    private static int[] subkey2KeyBits(SDESParameters parameters) {
+        int[] p10 = parameters.getP10();
+        int[] p8 = parameters.getP8();
+        int[] keyBits = new int[8];
+        for (int i = 0; i < 8; i++) {
+            int shifted = p8[i] - 1;                           // Position in the rotated register (0-9)
+            int half = shifted / 5 * 5;
+            int unshifted = half + (shifted - half + 3) % 5;   // Position before rotating left by 3
+            keyBits[i] = p10[unshifted];
+        }
+        return keyBits;
+    }
+
+    /**
+     * Picks the two left-half differences whose S-box input differences have the most skewed DDT rows.
+     */
+    private static int[] bestDifferences(SDESParameters parameters) {
+        int[][] ddt0 = differenceDistributionTable(parameters, 0);
+        int[][] ddt1 = differenceDistributionTable(parameters, 1);
+        int[] ep = parameters.getEP();
+        int best = 1;
+        int second = 2;
+        long bestScore = Long.MIN_VALUE;
+        long secondScore = Long.MIN_VALUE;
+        for (int difference = 1; difference < 16; difference++) {
+            int expanded = SDESEngine.permute(difference, 4, ep);
+            long score = 0;
+            for (int dy = 0; dy < 4; dy++) {
+                // Sum of squares: the expected number of keys surviving a pair, lower is better
+                score -= (long) ddt0[expanded >>> 4][dy] * ddt0[expanded >>> 4][dy]
+                        + (long) ddt1[expanded & 0xF][dy] * ddt1[expanded & 0xF][dy];
+            }
+            if (score > bestScore) {
+                second = best;
+                secondScore = bestScore;
+                best = difference;
+                bestScore = score;
+            } else if (score > secondScore) {
+                second = difference;
+                secondScore = score;
+            }
+        }
+        return new int[]{best, second};
+    }
+
+    private static int parity(int value) {
+        return Integer.bitCount(value) & 1;
+    }
+
+    /**
+     * Observable values of the last round: S-box inputs without the key and S-box outputs.
+     */
+    private static final class Round2 {
+        private final int[] ip;
+        private final int[] ipOfInverse;   // IP applied to a ciphertext: undoes IP_INV
+        private final int[] inverseIp;     // Maps a post-IP block back to plaintext bits
+        private final int[] ep;
+        private final int[] inverseP4;
+
+        Round2(SDESParameters parameters) {
+            this.ip = parameters.getIP();
+            this.ipOfInverse = invert(parameters.getIPInv());
+            this.inverseIp = invert(ip);
+            this.ep = parameters.getEP();
+            this.inverseP4 = invert(parameters.getP4());
+        }
+
+        int inverseIp(int block) {
+            return SDESEngine.permute(block, 8, inverseIp);
+        }
+
+        /**
+         * @return EP(L1) split into the S0 and S1 nibbles
+         */
+        int[] sBoxInputs(int cipher) {
+            int l1 = SDESEngine.permute(cipher, 8, ipOfInverse) & 0xF;
+            int expanded = SDESEngine.permute(l1, 4, ep);
+            return new int[]{expanded >>> 4, expanded & 0xF};
+        }
+
+        /**
+         * @return the S0 and S1 outputs of round 2: P4^-1(R0 ⊕ left half of the round-2 output)
+         */
+        int[] sBoxOutputs(int plain, int cipher) {
+            int r0 = SDESEngine.permute(plain, 8, ip) & 0xF;
+            int f = (SDESEngine.permute(cipher, 8, ipOfInverse) >>> 4) ^ r0;
+            int combined = SDESEngine.permute(f, 4, inverseP4);
+            return new int[]{combined >>> 2, combined & 3};
+        }
+
+        private static int[] invert(int[] table) {
+            int[] inverse = new int[table.length];
+            for (int i = 0; i < table.length; i++) {
+                inverse[table[i] - 1] = i + 1;
+            }
+            return inverse;
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package com.ivan.lab6;
+
+import com.ivan.utils.Alphabet;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Verifies many signed messages (see {@link SignedMessageFormat}) in parallel with the lab scheme of
+ * {@link RSAVerifier}: the codes are decrypted with the private exponent, the hash is the sum of the
+ * decrypted codes mod n and must equal the decrypted signature.
+ * <p>
+ * Messages are taken from a directory or a stream of paths with at most a few messages per pool thread
+ * in flight, so the number of queued tasks and open files is bounded by the pool size however many
+ * messages the batch has. A new message is submitted as soon as any one completes, so a slow message
+ * does not hold back the others. Each message gets a {@link Verdict} with its own latency, and the batch a
+ * {@link Report} with latency percentiles and throughput.
+ */
+public final class BatchVerifier {
+    // Messages in flight per pool thread; bounds the queued tasks and open files
+    private static final int MESSAGES_PER_THREAD = 4;
+    private static final int BLOCK_SIZE = 8192;
+
+    private final RSAEngine engine;
+    private final Alphabet alphabet;
+    private final int modulus;
+
+    /**
+     * @param engine   the key; decryption needs the private key and a modulus that fits in an int
+     * @param alphabet the alphabet the decrypted codes index
+     */
+    public BatchVerifier(RSAEngine engine, Alphabet alphabet) {
+        if (!engine.hasPrivateKey()) {
+            throw new IllegalArgumentException("Verification needs the private key");
+        }
+        // Codes and hashes of the lab scheme are ints below the modulus
+        SignedMessageFormat.codeWidth(engine.getModulus());
+        this.engine = engine;
+        this.alphabet = alphabet;
+        this.modulus = engine.getModulus().intValueExact();
+    }
+
+    public enum Status {
+        VALID,
+        INVALID_SIGNATURE,
+        // The file is not a signed message or a code does not decrypt to a letter
+        MALFORMED,
+        // The file could not be opened or read
+        IO_ERROR
+    }
+
+    /**
+     * Outcome of verifying one signed message.
+     */
+    public static final class Verdict {
+        private final Path file;
+        private final Status status;
+        private final long codeCount;
+        private final long computedHash;
+        private final long verifiedHash;
+        private final long latencyNanos;
+        private final String error;
+
+        private Verdict(Path file, Status status, long codeCount, long computedHash, long verifiedHash,
+                        long latencyNanos, String error) {
+            this.file = file;
+            this.status = status;
+            this.codeCount = codeCount;
+            this.computedHash = computedHash;
+            this.verifiedHash = verifiedHash;
+            this.latencyNanos = latencyNanos;
+            this.error = error;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public boolean isValid() {
+            return status == Status.VALID;
+        }
+
+        /**
+         * @return the number of codes decrypted before the verdict
+         */
+        public long getCodeCount() {
+            return codeCount;
+        }
+
+        /**
+         * @return the hash of the decrypted message, or -1 if it was not computed
+         */
+        public long getComputedHash() {
+            return computedHash;
+        }
+
+        /**
+         * @return the hash recovered from the signature, or -1 if it was not computed
+         */
+        public long getVerifiedHash() {
+            return verifiedHash;
+        }
+
+        public long getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        /**
+         * @return the reason of a MALFORMED or IO_ERROR verdict, or null
+         */
+        public String getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return file + ": " + status + (error != null ? " (" + error + ")" : "");
+        }
+    }
+
+    /**
+     * Verdicts of a batch with latency and throughput statistics.
+     */
+    public static final class Report {
+        private final List<Verdict> verdicts;
+        // Latencies in ascending order
+        private final long[] latencies;
+        private final Map<Status, Integer> counts = new EnumMap<>(Status.class);
+        private final long codeCount;
+        private final long elapsedNanos;
+
+        private Report(List<Verdict> verdicts, long elapsedNanos) {
+            this.verdicts = Collections.unmodifiableList(verdicts);
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = new long[verdicts.size()];
+            long codes = 0;
+            for (Status status : Status.values()) {
+                counts.put(status, 0);
+            }
+            for (int i = 0; i < latencies.length; i++) {
+                Verdict verdict = verdicts.get(i);
+                latencies[i] = verdict.latencyNanos;
+                counts.merge(verdict.status, 1, Integer::sum);
+                codes += verdict.codeCount;
+            }
+            Arrays.sort(latencies);
+            this.codeCount = codes;
+        }
+
+        /**
+         * @return the verdicts in the order the messages were given
+         */
+        public List<Verdict> getVerdicts() {
+            return verdicts;
+        }
+
+        public int getMessageCount() {
+            return verdicts.size();
+        }
+
+        /**
+         * @param status a verdict status
+         * @return the number of messages with that status
+         */
+        public int count(Status status) {
+            return counts.get(status);
+        }
+
+        /**
+         * @return the total number of codes decrypted
+         */
+        public long getCodeCount() {
+            return codeCount;
+        }
+
+        /**
+         * @return the wall-clock time of the whole batch
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Nearest-rank percentile of the per-message latencies.
+         *
+         * @param percentile the percentile (0-100]
+         * @return the latency in nanoseconds, or 0 for an empty batch
+         */
+        public long latencyPercentile(double percentile) {
+            if (percentile <= 0 || percentile > 100) {
+                throw new IllegalArgumentException("Percentile must be in (0, 100]: " + percentile);
+            }
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * latencies.length);
+            return latencies[Math.max(rank, 1) - 1];
+        }
+
+        /**
+         * @return the verified messages per second of wall-clock time
+         */
+        public double getMessagesPerSecond() {
+            return elapsedNanos == 0 ? 0 : verdicts.size() / (elapsedNanos / 1e9);
+        }
+
+        /**
+         * @return the decrypted codes per second of wall-clock time
+         */
+        public double getCodesPerSecond() {
+            return elapsedNanos == 0 ? 0 : codeCount / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder summary = new StringBuilder();
+            summary.append(String.format("Messages: %d, codes: %d, time: %.1f ms%n",
+                    verdicts.size(), codeCount, elapsedNanos / 1e6));
+            for (Status status : Status.values()) {
+                summary.append(String.format("%s: %d%n", status, counts.get(status)));
+            }
+            summary.append(String.format("Latency p50 / p90 / p99 / max: %.1f / %.1f / %.1f / %.1f us%n",
+                    latencyPercentile(50) / 1e3, latencyPercentile(90) / 1e3, latencyPercentile(99) / 1e3,
+                    latencyPercentile(100) / 1e3));
+            summary.append(String.format("Throughput: %.0f messages/s, %.0f codes/s",
+                    getMessagesPerSecond(), getCodesPerSecond()));
+            return summary.toString();
+        }
+    }
+
+    /**
+     * Verifies one signed message on the calling thread.
+     *
+     * @param file the binary container or the old comma-separated text file
+     * @return the verdict; errors are reported in it rather than thrown
+     */
+    public Verdict verify(Path file) {
+        return verify(file, null, null);
+    }
+
+    /**
+     * Verifies one signed message on the calling thread, passing its decrypted text on as it is read.
+     *
+     * @param file      the binary container or the old comma-separated text file
+     * @param signature the signature to check instead of the one in the file, or null
+     * @param text      receives the decrypted letters one block at a time, or null
+     * @return the verdict; errors are reported in it rather than thrown
+     */
+    public Verdict verify(Path file, BigInteger signature, Consumer<CharSequence> text) {
+        long start = System.nanoTime();
+        long codeCount = 0;
+        try (SignedMessageFormat.Reader reader = SignedMessageFormat.open(file)) {
+            int[] codes = new int[BLOCK_SIZE];
+            char[] letters = text != null ? new char[BLOCK_SIZE] : null;
+            long sum = 0;
+            int read;
+            while ((read = reader.read(codes, 0, BLOCK_SIZE)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    int code = engine.privateOp(codes[i]);
+                    if (code >= alphabet.size()) {
+                        return new Verdict(file, Status.MALFORMED, codeCount + i, -1, -1,
+                                System.nanoTime() - start, "Invalid decrypted code " + code);
+                    }
+                    codes[i] = code;
+                    sum += code;
+                }
+                sum %= modulus;
+                codeCount += read;
+                if (text != null) {
+                    alphabet.toChars(codes, 0, read, letters, 0);
+                    text.accept(CharBuffer.wrap(letters, 0, read));
+                }
+            }
+            BigInteger checked = signature != null ? signature : new BigInteger(1, reader.readSignature());
+            int verifiedHash = engine.privateOp(checked.intValueExact());
+            Status status = sum == verifiedHash ? Status.VALID : Status.INVALID_SIGNATURE;
+            return new Verdict(file, status, codeCount, sum, verifiedHash, System.nanoTime() - start, null);
+        } catch (SignedMessageFormat.FormatException e) {
+            return new Verdict(file, Status.MALFORMED, codeCount, -1, -1, System.nanoTime() - start,
+                    e.getMessage());
+        } catch (IOException e) {
+            return new Verdict(file, Status.IO_ERROR, codeCount, -1, -1, System.nanoTime() - start,
+                    e.getMessage());
+        } catch (ArithmeticException | IllegalArgumentException e) {
+            return new Verdict(file, Status.MALFORMED, codeCount, -1, -1, System.nanoTime() - start,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Verifies every regular file of a directory, in name order.
+     *
+     * @param directory the directory of signed messages
+     * @param pool      the pool that runs the verifications; its parallelism bounds the work in flight
+     * @return the verdicts and statistics
+     * @throws IOException if the directory cannot be listed
+     */
+    public Report verifyDirectory(Path directory, ForkJoinPool pool) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return verifyAll(files.filter(Files::isRegularFile).sorted(), pool);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Verifies a stream of signed messages. The stream is consumed lazily: at most
+     * {@code MESSAGES_PER_THREAD} messages per pool thread are in flight, and the next message is
+     * submitted whenever any of them completes.
+     *
+     * @param files the signed messages
+     * @param pool  the pool that runs the verifications; its parallelism bounds the work in flight
+     * @return the verdicts, in stream order, and statistics
+     */
+    public Report verifyAll(Stream<Path> files, ForkJoinPool pool) {
+        int window = MESSAGES_PER_THREAD * pool.getParallelism();
+        CompletionService<Verdict> completion = new ExecutorCompletionService<>(pool);
+        // Stream position of every message in flight; its verdict is stored there when it completes
+        Map<Future<Verdict>, Integer> positions = new HashMap<>();
+        List<Verdict> verdicts = new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            Iterator<Path> iterator = files.iterator();
+            while (iterator.hasNext()) {
+                if (positions.size() == window) {
+                    collect(completion, positions, verdicts);
+                }
+                Path file = iterator.next();
+                positions.put(completion.submit(() -> verify(file)), verdicts.size());
+                verdicts.add(null);
+            }
+            while (!positions.isEmpty()) {
+                collect(completion, positions, verdicts);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch verification interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch verification failed", e.getCause());
+        } finally {
+            // Only left over when the batch failed
+            for (Future<Verdict> result : positions.keySet()) {
+                result.cancel(true);
+            }
+        }
+        return new Report(verdicts, System.nanoTime() - start);
+    }
+
+    /**
+     * Waits for the next message to complete, whichever it is, and stores its verdict at its stream position.
+     */
+    private static void collect(CompletionService<Verdict> completion, Map<Future<Verdict>, Integer> positions,
+                                List<Verdict> verdicts) throws InterruptedException, ExecutionException {
+        Future<Verdict> result = completion.take();
+        verdicts.set(positions.remove(result), result.get());
+    }
+
+    /**
+     * Writes a batch of signed messages with the lab key, a tenth of them with a wrong signature,
+     * and verifies it on pools of increasing size.
+     */
+    public static void main(String[] args) throws IOException {
+        RSAEngine engine = RSAEngine.fromPrimes(3, 11, 7);
+        Alphabet alphabet = Alphabet.UKRAINIAN_WITH_SPACE;
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        Random random = new Random(1);
+        Path directory = Files.createTempDirectory("signed-messages");
+        try {
+            int width = SignedMessageFormat.codeWidth(engine.getModulus());
+            int modulus = engine.getModulus().intValueExact();
+            for (int m = 0; m < messages; m++) {
+                int[] codes = new int[200 + random.nextInt(4000)];
+                int sum = 0;
+                for (int i = 0; i < codes.length; i++) {
+                    int code = random.nextInt(alphabet.size());
+                    sum += code;
+                    codes[i] = engine.publicOp(code);
+                }
+                int hash = sum % modulus;
+                if (m % 10 == 9) {
+                    hash = (hash + 1) % modulus;
+                }
+                Path file = directory.resolve(String.format("message-%05d.bin", m));
+                try (SignedMessageFormat.Writer writer = SignedMessageFormat.create(file, width, codes.length)) {
+                    writer.write(codes, 0, codes.length);
+                    writer.writeSignature(BigInteger.valueOf(engine.publicOp(hash)).toByteArray());
+                }
+            }
+
+            BatchVerifier verifier = new BatchVerifier(engine, alphabet);
+            int processors = Runtime.getRuntime().availableProcessors();
+            for (int threads = 1; threads <= processors; threads *= 2) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                try {
+                    Report report = verifier.verifyDirectory(directory, pool);
+                    System.out.println("-----------------------------------");
+                    System.out.println("Threads: " + threads);
+                    System.out.println(report);
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,522 @@
+package com.ivan.lab6;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * RSA with the public operation x^e mod n and the private operation x^d mod n.
+ * <p>
+ * For small moduli (up to {@value #TABLE_LIMIT}) both operations are precomputed into lookup tables
+ * when the engine is created, so the lab alphabet codes (n = 33) cost one array access each. For real-size
+ * keys created from their primes the private operation uses the Chinese remainder theorem: two
+ * exponentiations modulo p and q with half-size exponents, about four times faster than x^d mod n.
+ * Batches of values can be processed in one call, on a fork-join pool, or as a file of one value per line.
+ */
+public final class RSAEngine {
+    public static final int TABLE_LIMIT = 1 << 16;
+    public static final BigInteger DEFAULT_PUBLIC_EXPONENT = BigInteger.valueOf(65537);
+    // Values per parallel task and per block of lines read from a file
+    private static final int BATCH_SIZE = 256;
+    private static final int BATCHES_PER_THREAD = 4;
+
+    private final BigInteger n;
+    private final BigInteger e;
+    private final BigInteger d;
+    // CRT parameters, null if the primes are unknown
+    private final BigInteger p;
+    private final BigInteger q;
+    private final BigInteger dP;
+    private final BigInteger dQ;
+    private final BigInteger qInv;
+    // Lookup tables for small moduli, null otherwise
+    private final int[] publicTable;
+    private final int[] privateTable;
+
+    private RSAEngine(BigInteger n, BigInteger e, BigInteger d, BigInteger p, BigInteger q) {
+        if (n.signum() <= 0 || e.signum() <= 0) {
+            throw new IllegalArgumentException("Modulus and exponent must be positive");
+        }
+        this.n = n;
+        this.e = e;
+        this.d = d;
+        this.p = p;
+        this.q = q;
+        if (p != null) {
+            this.dP = d.mod(p.subtract(BigInteger.ONE));
+            this.dQ = d.mod(q.subtract(BigInteger.ONE));
+            this.qInv = q.modInverse(p);
+        } else {
+            this.dP = null;
+            this.dQ = null;
+            this.qInv = null;
+        }
+        if (n.compareTo(BigInteger.valueOf(TABLE_LIMIT)) <= 0) {
+            this.publicTable = table(n.intValue(), e);
+            this.privateTable = d == null ? null : table(n.intValue(), d);
+        } else {
+            this.publicTable = null;
+            this.privateTable = null;
+        }
+    }
+
+    /**
+     * Creates an engine for verification and encryption only.
+     *
+     * @param n the modulus
+     * @param e the public exponent
+     * @return the engine
+     */
+    public static RSAEngine publicKey(BigInteger n, BigInteger e) {
+        return new RSAEngine(n, e, null, null, null);
+    }
+
+    /**
+     * Creates an engine from both exponents; the private operation is computed without CRT.
+     *
+     * @param n the modulus
+     * @param e the public exponent
+     * @param d the private exponent
+     * @return the engine
+     */
+    public static RSAEngine privateKey(BigInteger n, BigInteger e, BigInteger d) {
+        return new RSAEngine(n, e, d, null, null);
+    }
+
+    /**
+     * Creates an engine from the primes of the modulus; d is the inverse of e modulo (p-1)(q-1)
+     * and the private operation uses CRT.
+     *
+     * @param p the first prime
+     * @param q the second prime, different from p
+     * @param e the public exponent, coprime with (p-1)(q-1)
+     * @return the engine
+     */
+    public static RSAEngine fromPrimes(BigInteger p, BigInteger q, BigInteger e) {
+        if (p.equals(q)) {
+            throw new IllegalArgumentException("Primes must be different");
+        }
+        BigInteger phi = p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE));
+        if (!e.gcd(phi).equals(BigInteger.ONE)) {
+            throw new IllegalArgumentException("e must be coprime with (p-1)(q-1)");
+        }
+        return new RSAEngine(p.multiply(q), e, e.modInverse(phi), p, q);
+    }
+
+    /**
+     * @see #fromPrimes(BigInteger, BigInteger, BigInteger)
+     */
+    public static RSAEngine fromPrimes(long p, long q, long e) {
+        return fromPrimes(BigInteger.valueOf(p), BigInteger.valueOf(q), BigInteger.valueOf(e));
+    }
+
+    /**
+     * Generates a key with two random primes of half the modulus size and e = 65537.
+     *
+     * @param bits   the modulus size in bits
+     * @param random the source of randomness
+     * @return the engine
+     */
+    public static RSAEngine generate(int bits, Random random) {
+        while (true) {
+            BigInteger p = BigInteger.probablePrime(bits - bits / 2, random);
+            BigInteger q = BigInteger.probablePrime(bits / 2, random);
+            BigInteger phi = p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE));
+            if (!p.equals(q) && p.multiply(q).bitLength() == bits
+                    && DEFAULT_PUBLIC_EXPONENT.gcd(phi).equals(BigInteger.ONE)) {
+                return fromPrimes(p, q, DEFAULT_PUBLIC_EXPONENT);
+            }
+        }
+    }
+
+    public BigInteger getModulus() {
+        return n;
+    }
+
+    public BigInteger getPublicExponent() {
+        return e;
+    }
+
+    /**
+     * @return the private exponent, or null for a public key
+     */
+    public BigInteger getPrivateExponent() {
+        return d;
+    }
+
+    public boolean hasPrivateKey() {
+        return d != null;
+    }
+
+    /**
+     * @return true if the private operation uses CRT
+     */
+    public boolean usesCrt() {
+        return p != null;
+    }
+
+    /**
+     * @return true if both operations on small values are table lookups
+     */
+    public boolean usesTables() {
+        return publicTable != null;
+    }
+
+    /**
+     * Computes x^e mod n.
+     *
+     * @param x the value (0 to n - 1)
+     * @return the result
+     */
+    public BigInteger publicOp(BigInteger x) {
+        checkRange(x);
+        if (publicTable != null) {
+            return BigInteger.valueOf(publicTable[x.intValue()]);
+        }
+        return x.modPow(e, n);
+    }
+
+    /**
+     * Computes x^d mod n, with CRT if the primes are known.
+     *
+     * @param x the value (0 to n - 1)
+     * @return the result
+     */
+    public BigInteger privateOp(BigInteger x) {
+        checkPrivate();
+        checkRange(x);
+        if (privateTable != null) {
+            return BigInteger.valueOf(privateTable[x.intValue()]);
+        }
+        if (p == null) {
+            return x.modPow(d, n);
+        }
+        // Garner's recombination: m = m2 + q * (qInv * (m1 - m2) mod p)
+        BigInteger m1 = x.modPow(dP, p);
+        BigInteger m2 = x.modPow(dQ, q);
+        BigInteger h = qInv.multiply(m1.subtract(m2)).mod(p);
+        return m2.add(h.multiply(q));
+    }
+
+    /**
+     * Computes x^d mod n without CRT, for comparison with {@link #privateOp(BigInteger)}.
+     *
+     * @param x the value (0 to n - 1)
+     * @return the result
+     */
+    public BigInteger privateOpWithoutCrt(BigInteger x) {
+        checkPrivate();
+        checkRange(x);
+        return x.modPow(d, n);
+    }
+
+    /**
+     * Computes x^e mod n for a small value.
+     *
+     * @param x the value (0 to n - 1)
+     * @return the result
+     */
+    public int publicOp(int x) {
+        if (publicTable != null) {
+            checkRange(x);
+            return publicTable[x];
+        }
+        return publicOp(BigInteger.valueOf(x)).intValueExact();
+    }
+
+    /**
+     * Computes x^d mod n for a small value.
+     *
+     * @param x the value (0 to n - 1)
+     * @return the result
+     */
+    public int privateOp(int x) {
+        if (privateTable != null) {
+            checkRange(x);
+            return privateTable[x];
+        }
+        return privateOp(BigInteger.valueOf(x)).intValueExact();
+    }
+
+    /**
+     * Applies x^e mod n to every value.
+     *
+     * @param values the values (0 to n - 1)
+     * @return the results, in the same order
+     */
+    public int[] publicOp(int[] values) {
+        int[] results = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            results[i] = publicOp(values[i]);
+        }
+        return results;
+    }
+
+    /**
+     * Applies x^d mod n to every value.
+     *
+     * @param values the values (0 to n - 1)
+     * @return the results, in the same order
+     */
+    public int[] privateOp(int[] values) {
+        int[] results = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            results[i] = privateOp(values[i]);
+        }
+        return results;
+    }
+
+    /**
+     * Applies x^e mod n to every value.
+     *
+     * @param values the values (0 to n - 1)
+     * @return the results, in the same order
+     */
+    public BigInteger[] publicOp(BigInteger[] values) {
+        BigInteger[] results = new BigInteger[values.length];
+        for (int i = 0; i < values.length; i++) {
+            results[i] = publicOp(values[i]);
+        }
+        return results;
+    }
+
+    /**
+     * Applies x^d mod n to every value.
+     *
+     * @param values the values (0 to n - 1)
+     * @return the results, in the same order
+     */
+    public BigInteger[] privateOp(BigInteger[] values) {
+        BigInteger[] results = new BigInteger[values.length];
+        for (int i = 0; i < values.length; i++) {
+            results[i] = privateOp(values[i]);
+        }
+        return results;
+    }
+
+    /**
+     * Applies x^e mod n to every value in batches on the pool.
+     *
+     * @param values the values (0 to n - 1)
+     * @param pool   the pool that runs the batches
+     * @return the results, in the same order
+     */
+    public BigInteger[] publicOp(BigInteger[] values, ForkJoinPool pool) {
+        return parallel(values, false, pool);
+    }
+
+    /**
+     * Applies x^d mod n to every value in batches on the pool.
+     *
+     * @param values the values (0 to n - 1)
+     * @param pool   the pool that runs the batches
+     * @return the results, in the same order
+     */
+    public BigInteger[] privateOp(BigInteger[] values, ForkJoinPool pool) {
+        checkPrivate();
+        return parallel(values, true, pool);
+    }
+
+    private BigInteger[] parallel(BigInteger[] values, boolean privateOperation, ForkJoinPool pool) {
+        BigInteger[] results = new BigInteger[values.length];
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int from = 0; from < values.length; from += BATCH_SIZE) {
+            int start = from;
+            int end = Math.min(values.length, from + BATCH_SIZE);
+            tasks.add(() -> {
+                for (int i = start; i < end; i++) {
+                    results[i] = privateOperation ? privateOp(values[i]) : publicOp(values[i]);
+                }
+                return null;
+            });
+        }
+        invokeAll(pool, tasks);
+        return results;
+    }
+
+    /**
+     * Applies the public or private operation to a file with one decimal value per line and writes the
+     * results one per line in the same order. Lines are read in blocks that are processed in parallel
+     * batches, so memory use does not depend on the file size. Blank lines are skipped.
+     *
+     * @param input            the file of values
+     * @param output           the file of results (created or truncated)
+     * @param privateOperation true for x^d mod n, false for x^e mod n
+     * @param pool             the pool that runs the batches
+     * @return the number of values processed
+     * @throws IOException if a file cannot be read or written
+     */
+    public long processFile(Path input, Path output, boolean privateOperation, ForkJoinPool pool) throws IOException {
+        if (privateOperation) {
+            checkPrivate();
+        }
+        int blockSize = BATCH_SIZE * BATCHES_PER_THREAD * pool.getParallelism();
+        long processed = 0;
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            List<BigInteger> block = new ArrayList<>(blockSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    block.add(new BigInteger(line.trim()));
+                }
+                if (block.size() == blockSize) {
+                    processed += writeBlock(block, writer, privateOperation, pool);
+                }
+            }
+            processed += writeBlock(block, writer, privateOperation, pool);
+        }
+        return processed;
+    }
+
+    private int writeBlock(List<BigInteger> block, BufferedWriter writer, boolean privateOperation,
+                           ForkJoinPool pool) throws IOException {
+        BigInteger[] results = parallel(block.toArray(new BigInteger[0]), privateOperation, pool);
+        for (BigInteger result : results) {
+            writer.write(result.toString());
+            writer.newLine();
+        }
+        block.clear();
+        return results.length;
+    }
+
+    private void checkRange(BigInteger x) {
+        if (x.signum() < 0 || x.compareTo(n) >= 0) {
+            throw new IllegalArgumentException("Value must be between 0 and n - 1: " + x);
+        }
+    }
+
+    private void checkRange(int x) {
+        if (x < 0 || x >= publicTable.length) {
+            throw new IllegalArgumentException("Value must be between 0 and n - 1: " + x);
+        }
+    }
+
+    private void checkPrivate() {
+        if (d == null) {
+            throw new IllegalStateException("Private operation needs the private key");
+        }
+    }
+
+    /**
+     * Computes x^exponent mod n for every x below n by square-and-multiply (n at most 2^16).
+     */
+    private static int[] table(int n, BigInteger exponent) {
+        long reduced = exponent.bitLength() < Long.SIZE ? exponent.longValue() : -1;
+        int[] table = new int[n];
+        for (int x = 0; x < n; x++) {
+            table[x] = reduced >= 0
+                    ? (int) modPow(x, reduced, n)
+                    : BigInteger.valueOf(x).modPow(exponent, BigInteger.valueOf(n)).intValue();
+        }
+        return table;
+    }
+
+    private static long modPow(long base, long exp, long mod) {
+        long result = 1 % mod;
+        base %= mod;
+        while (exp > 0) {
+            if ((exp & 1) == 1) {
+                result = (result * base) % mod;
+            }
+            base = (base * base) % mod;
+            exp >>= 1;
+        }
+        return result;
+    }
+
+    private static void invokeAll(ForkJoinPool pool, List<Callable<Void>> tasks) {
+        try {
+            for (Future<Void> result : pool.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("RSA batch interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("RSA batch failed", e.getCause());
+        }
+    }
+
+    /**
+     * Measures signatures and verifications per second for the lab key and for generated keys.
+     */
+    public static void main(String[] args) {
+        SecureRandom random = new SecureRandom();
+
+        RSAEngine lab = fromPrimes(3, 11, 7);
+        int[] codes = new int[1_000_000];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = random.nextInt(33);
+        }
+        long start = System.nanoTime();
+        int[] encrypted = lab.publicOp(codes);
+        int[] decrypted = lab.privateOp(encrypted);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("n = 33 (tables): %.1f M operations/s, round trip ok: %b%n",
+                2 * codes.length / seconds / 1e6, Arrays.equals(codes, decrypted));
+
+        for (int bits : new int[]{1024, 2048}) {
+            start = System.nanoTime();
+            RSAEngine engine = generate(bits, random);
+            System.out.println("-----------------------------------");
+            System.out.printf("%d-bit key generated in %.0f ms%n", bits, (System.nanoTime() - start) / 1e6);
+
+            int count = bits <= 1024 ? 400 : 100;
+            BigInteger[] hashes = new BigInteger[count];
+            for (int i = 0; i < count; i++) {
+                hashes[i] = new BigInteger(bits - 1, random);
+            }
+
+            // Untimed warm-up round, so the JIT compiles both paths before either is measured
+            for (BigInteger hash : hashes) {
+                engine.privateOpWithoutCrt(hash);
+            }
+            engine.publicOp(engine.privateOp(hashes));
+            engine.privateOp(hashes, ForkJoinPool.commonPool());
+
+            start = System.nanoTime();
+            for (BigInteger hash : hashes) {
+                engine.privateOpWithoutCrt(hash);
+            }
+            double plain = count / ((System.nanoTime() - start) / 1e9);
+
+            start = System.nanoTime();
+            BigInteger[] signatures = engine.privateOp(hashes);
+            double crt = count / ((System.nanoTime() - start) / 1e9);
+
+            start = System.nanoTime();
+            BigInteger[] parallelSignatures = engine.privateOp(hashes, ForkJoinPool.commonPool());
+            double parallel = count / ((System.nanoTime() - start) / 1e9);
+
+            start = System.nanoTime();
+            BigInteger[] recovered = engine.publicOp(signatures);
+            double verify = count / ((System.nanoTime() - start) / 1e9);
+
+            boolean valid = Arrays.equals(recovered, hashes)
+                    && Arrays.equals(signatures, parallelSignatures);
+            System.out.printf("Signatures/s without CRT: %.0f%n", plain);
+            System.out.printf("Signatures/s with CRT: %.0f%n", crt);
+            System.out.printf("Signatures/s with CRT on %d threads: %.0f%n",
+                    ForkJoinPool.commonPool().getParallelism(), parallel);
+            System.out.printf("Verifications/s: %.0f%n", verify);
+            System.out.println("All signatures valid: " + valid);
+        }
+    }
+}
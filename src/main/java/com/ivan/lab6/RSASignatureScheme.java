@@ -0,0 +1,221 @@
+package com.ivan.lab6;
+
+import com.ivan.utils.FileManager;
+import com.ivan.utils.Locale;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Hash-then-sign RSA signatures: RSASSA-PKCS1-v1_5 with SHA-256 (RFC 8017, section 8.2).
+ * <p>
+ * The SHA-256 digest of the raw message bytes is wrapped in its DigestInfo structure and padded to
+ * the length of the modulus as 00 01 FF .. FF 00 || DigestInfo; the signature is this block raised
+ * to the private exponent. Unlike the lab hash (the sum of alphabet codes mod 33), the digest
+ * depends on the order of the bytes, and files are hashed as a stream, so their size is not limited
+ * by the heap.
+ */
+public final class RSASignatureScheme {
+    public static final int[] KEY_SIZES = {2048, 3072};
+    // DER encoding of DigestInfo { sha256, NULL } without the 32 digest bytes
+    private static final byte[] SHA256_DIGEST_INFO = {
+            0x30, 0x31, 0x30, 0x0d, 0x06, 0x09, 0x60, (byte) 0x86, 0x48, 0x01, 0x65, 0x03, 0x04, 0x02, 0x01,
+            0x05, 0x00, 0x04, 0x20
+    };
+    private static final int DIGEST_LENGTH = 32;
+    // At least eight FF bytes of padding are required
+    private static final int MIN_PADDING = 8;
+
+    private final RSAEngine engine;
+    // Length of the modulus in bytes; signatures and encoded blocks have this length
+    private final int length;
+
+    /**
+     * Creates the scheme for a key whose modulus is long enough for the padded digest (at least 496 bits;
+     * 2048 bits or more for real use).
+     *
+     * @param engine the key; signing needs the private key
+     */
+    public RSASignatureScheme(RSAEngine engine) {
+        this.engine = engine;
+        this.length = (engine.getModulus().bitLength() + 7) / 8;
+        if (length < 3 + MIN_PADDING + SHA256_DIGEST_INFO.length + DIGEST_LENGTH) {
+            throw new IllegalArgumentException("Modulus is too short for a SHA-256 signature");
+        }
+    }
+
+    /**
+     * Generates a key pair with e = 65537.
+     *
+     * @param bits   the modulus size in bits, for example 2048 or 3072
+     * @param random the source of randomness
+     * @return the scheme with the new key
+     */
+    public static RSASignatureScheme generate(int bits, SecureRandom random) {
+        return new RSASignatureScheme(RSAEngine.generate(bits, random));
+    }
+
+    public RSAEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * @return the length of a signature in bytes
+     */
+    public int getSignatureLength() {
+        return length;
+    }
+
+    /**
+     * Signs a message.
+     *
+     * @param message the raw message bytes
+     * @return the signature, as many bytes as the modulus
+     */
+    public byte[] sign(byte[] message) {
+        return signDigest(StreamingHasher.sha256(message));
+    }
+
+    /**
+     * Signs a file of any size, hashing it as a stream.
+     *
+     * @param file the file to sign
+     * @return the signature, as many bytes as the modulus
+     * @throws IOException if the file cannot be read
+     */
+    public byte[] sign(Path file) throws IOException {
+        return signDigest(StreamingHasher.sha256(file));
+    }
+
+    /**
+     * Signs a SHA-256 digest computed by the caller.
+     *
+     * @param digest the 32-byte digest
+     * @return the signature, as many bytes as the modulus
+     */
+    public byte[] signDigest(byte[] digest) {
+        BigInteger block = new BigInteger(1, encode(digest));
+        return toBytes(engine.privateOp(block));
+    }
+
+    /**
+     * @param message   the raw message bytes
+     * @param signature the signature to check
+     * @return true if the signature was made over this message with the private key
+     */
+    public boolean verify(byte[] message, byte[] signature) {
+        return verifyDigest(StreamingHasher.sha256(message), signature);
+    }
+
+    /**
+     * @param file      the signed file, hashed as a stream
+     * @param signature the signature to check
+     * @return true if the signature was made over this file with the private key
+     * @throws IOException if the file cannot be read
+     */
+    public boolean verify(Path file, byte[] signature) throws IOException {
+        return verifyDigest(StreamingHasher.sha256(file), signature);
+    }
+
+    /**
+     * Verifies a signature by re-encoding the digest and comparing the whole block, as the standard
+     * recommends, instead of parsing the padding of the recovered block.
+     *
+     * @param digest    the 32-byte SHA-256 digest of the message
+     * @param signature the signature to check
+     * @return true if the signature matches the digest
+     */
+    public boolean verifyDigest(byte[] digest, byte[] signature) {
+        if (signature.length != length) {
+            return false;
+        }
+        BigInteger s = new BigInteger(1, signature);
+        if (s.compareTo(engine.getModulus()) >= 0) {
+            return false;
+        }
+        return MessageDigest.isEqual(toBytes(engine.publicOp(s)), encode(digest));
+    }
+
+    /**
+     * Builds the EMSA-PKCS1-v1_5 block 00 01 FF .. FF 00 || DigestInfo || digest.
+     */
+    private byte[] encode(byte[] digest) {
+        if (digest.length != DIGEST_LENGTH) {
+            throw new IllegalArgumentException("SHA-256 digest must have 32 bytes");
+        }
+        byte[] block = new byte[length];
+        int digestInfoStart = length - DIGEST_LENGTH - SHA256_DIGEST_INFO.length;
+        block[1] = 0x01;
+        Arrays.fill(block, 2, digestInfoStart - 1, (byte) 0xff);
+        System.arraycopy(SHA256_DIGEST_INFO, 0, block, digestInfoStart, SHA256_DIGEST_INFO.length);
+        System.arraycopy(digest, 0, block, length - DIGEST_LENGTH, DIGEST_LENGTH);
+        return block;
+    }
+
+    /**
+     * Converts a value below the modulus to exactly {@code length} big-endian bytes.
+     */
+    private byte[] toBytes(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length == length) {
+            return bytes;
+        }
+        byte[] result = new byte[length];
+        if (bytes.length > length) {
+            // Sign byte of a value whose top bit is set
+            System.arraycopy(bytes, bytes.length - length, result, 0, length);
+        } else {
+            System.arraycopy(bytes, 0, result, length - bytes.length, bytes.length);
+        }
+        return result;
+    }
+
+    /**
+     * Signs the Ukrainian input file with new keys of each size and measures signing and verification
+     * throughput.
+     */
+    public static void main(String[] args) {
+        SecureRandom random = new SecureRandom();
+        Path input = FileManager.inputPath(Locale.UK);
+        HexFormat hex = HexFormat.of();
+        try {
+            byte[] digest = StreamingHasher.sha256(input);
+            System.out.println("SHA-256 of " + input.getFileName() + ": " + hex.formatHex(digest));
+            byte[] tampered = digest.clone();
+            tampered[0] ^= 1;
+
+            for (int bits : KEY_SIZES) {
+                long start = System.nanoTime();
+                RSASignatureScheme scheme = generate(bits, random);
+                System.out.println("-----------------------------------");
+                System.out.printf("%d-bit key generated in %.0f ms%n", bits, (System.nanoTime() - start) / 1e6);
+
+                byte[] signature = scheme.sign(input);
+                System.out.println("Signature: " + hex.formatHex(signature, 0, 16) + "...");
+                System.out.println("Signature valid: " + scheme.verify(input, signature));
+                System.out.println("Tampered digest detected: " + !scheme.verifyDigest(tampered, signature));
+
+                int count = bits <= 2048 ? 200 : 60;
+                start = System.nanoTime();
+                for (int i = 0; i < count; i++) {
+                    scheme.signDigest(digest);
+                }
+                double signs = count / ((System.nanoTime() - start) / 1e9);
+                start = System.nanoTime();
+                for (int i = 0; i < count * 10; i++) {
+                    scheme.verifyDigest(digest, signature);
+                }
+                double verifications = count * 10 / ((System.nanoTime() - start) / 1e9);
+                System.out.printf("Signatures/s: %.0f%n", signs);
+                System.out.printf("Verifications/s: %.0f%n", verifications);
+            }
+        } catch (IOException e) {
+            System.out.println("File operation error: " + e.getMessage());
+        }
+    }
+}
@@ -1,69 +1,35 @@
 package com.ivan.lab6;
 
+import com.ivan.utils.Alphabet;
 import com.ivan.utils.FileManager;
 import com.ivan.utils.Locale;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 public class RSASigner {
     // Private Modulus n = 33 (p * q, where p=3, q=11 for RSA)
     private static final int n = 33;
     // Public exponent e = 7 (coprime with (p-1)*(q-1) = 20)
     private static final int E = 7;
+    // Lookup tables of x^e and x^d mod n for every code
+    private static final RSAEngine ENGINE = RSAEngine.fromPrimes(3, 11, E);
 
     // Alphabet of Ukrainian letters plus space (33 characters)
-    private static final String[] ALPHABET = {
-            "А", "Б", "В", "Г", "Д", "Е", "Є", "Ж", "З", "И", "І", "Ї", "Й",
-            "К", "Л", "М", "Н", "О", "П", "Р", "С", "Т", "У", "Ф", "Х", "Ц",
-            "Ч", "Ш", "Щ", "Ь", "Ю", "Я", " "
-    };
+    private static final Alphabet ALPHABET = Alphabet.UKRAINIAN_WITH_SPACE;
 
     /**
-     * Converts a character to its index in the ALPHABET array.
-     * The algorithm maps each character to a unique code (0-32) for RSA encryption.
+     * Converts a character to its index in the ALPHABET.
+     * The algorithm maps each character to a unique code (0-32) for RSA encryption
+     * with a direct table lookup.
      *
-     * @param ch the input character (single Ukrainian letter or space)
+     * @param ch the input character (Ukrainian capital letter or space)
      * @return the index (0-32) or -1 if invalid
      */
-    private static int charToCode(String ch) {
-        // Search ALPHABET for matching character
-        for (int i = 0; i < ALPHABET.length; i++) {
-            if (ALPHABET[i].equals(ch)) {
-                return i;
-            }
-        }
-        // Return -1 for invalid characters
-        return -1;
-    }
-
-    /**
-     * Computes modular exponentiation (base^exp mod mod).
-     * The algorithm uses the square-and-multiply method to efficiently calculate
-     * the result, reducing intermediate values modulo mod to prevent overflow.
-     *
-     * @param base the base value
-     * @param exp  the exponent
-     * @param mod  the modulus
-     * @return the result of base^exp mod mod
-     */
-    private static long modPow(long base, long exp, long mod) {
-        long result = 1;
-        // Normalize base to avoid negative values
-        base %= mod;
-        // Process each bit of exponent
-        while (exp > 0) {
-            // If exp is odd, multiply result by base (mod mod)
-            if ((exp & 1) == 1) {
-                result = (result * base) % mod;
-            }
-            // Square base and reduce mod
-            base = (base * base) % mod;
-            // Right-shift exp to process next bit
-            exp >>= 1;
-        }
-        return result;
+    private static int charToCode(char ch) {
+        return ALPHABET.indexOf(ch);
     }
 
     /**
@@ -77,8 +43,7 @@ public class RSASigner {
     private static int computeHash(String message) {
         int sum = 0;
         for (int i = 0; i < message.length(); i++) {
-            // Extract single character
-            String ch = message.substring(i, i + 1);
+            char ch = message.charAt(i);
             int code = charToCode(ch);
             if (code == -1) {
                 throw new IllegalArgumentException("Invalid character: " + ch);
@@ -94,35 +59,31 @@ public class RSASigner {
         try {
             // Read and convert input to uppercase for consistency
             String message = FileManager.readInputFile(Locale.UK).replace(System.lineSeparator(), " ").toUpperCase();
-            List<Integer> encrypted = new ArrayList<>();
-            for (int i = 0; i < message.length(); i++) {
+            char[] text = message.toCharArray();
+            int[] encrypted = new int[text.length];
+            for (int i = 0; i < text.length; i++) {
                 // Process each character
-                String ch = message.substring(i, i + 1);
-                int code = charToCode(ch);
+                int code = charToCode(text[i]);
                 if (code == -1) {
-                    System.out.println("Error: Invalid character " + ch);
+                    System.out.println("Error: Invalid character " + text[i]);
                     return;
                 }
                 // Encrypt code using RSA: code^E mod n
-                long cipher = modPow(code, E, n);
-                encrypted.add((int) cipher);
+                encrypted[i] = ENGINE.publicOp(code);
             }
             // Compute message hash
             int hash = computeHash(message);
             // Sign hash: hash^E mod n
-            long signature = modPow(hash, E, n);
-            StringBuilder output = new StringBuilder();
-            // Build comma-separated list of encrypted codes
-            for (int i = 0; i < encrypted.size(); i++) {
-                output.append(encrypted.get(i));
-                if (i < encrypted.size() - 1) {
-                    output.append(",");
-                }
+            long signature = ENGINE.publicOp(hash);
+            // Write codes and signature to the binary container (one byte per code for n = 33)
+            Path file = FileManager.resourcePath(SignedMessageFormat.SIGNED_FILE);
+            try (SignedMessageFormat.Writer writer = SignedMessageFormat.create(file,
+                    SignedMessageFormat.codeWidth(ENGINE.getModulus()), encrypted.length)) {
+                writer.write(encrypted, 0, encrypted.length);
+                writer.writeSignature(BigInteger.valueOf(signature).toByteArray());
             }
-            // Append signature
-            output.append(",").append(signature);
-            FileManager.writeOutputFile(output.toString());
-            System.out.println("Encrypted message: " + output.toString());
+            System.out.println("Encrypted message: " + encrypted.length + " codes written to " + file
+                    + " (" + Files.size(file) + " bytes)");
             System.out.println("Hash: " + hash);
             System.out.println("Signature: " + signature);
         } catch (IOException e) {
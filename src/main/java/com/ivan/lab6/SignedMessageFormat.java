@@ -0,0 +1,472 @@
+package com.ivan.lab6;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Binary container for an RSA-encrypted message and its signature.
+ * <p>
+ * Layout (big-endian): the magic bytes "RSAM", a version byte, the width of one code in bytes
+ * (1, 2 or 4), the number of codes as a long, the codes, the signature length as an int and the
+ * signature bytes. The lab message with n = 33 takes one byte per character instead of up to three
+ * characters of decimal text and a comma. Both the writer and the reader go through a fixed-size
+ * {@link ByteBuffer} and move codes in {@code int[]} blocks, so messages of any length are handled in
+ * constant memory without boxing.
+ * <p>
+ * The reader also accepts the older text format written to encrypted.txt: comma-separated decimal
+ * codes followed by the signature. Input that is not a valid signed message is reported with a
+ * {@link FormatException}, so callers can tell it from a failure to read the file.
+ */
+public final class SignedMessageFormat {
+    public static final String SIGNED_FILE = "signed-message.bin";
+    public static final int VERSION = 1;
+    private static final byte[] MAGIC = {'R', 'S', 'A', 'M'};
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Longest accepted signature, enough for a 16384-bit modulus
+    private static final int MAX_SIGNATURE_LENGTH = 2048;
+
+    private SignedMessageFormat() {
+    }
+
+    /**
+     * @param modulus the RSA modulus
+     * @return the smallest code width (1, 2 or 4 bytes) that holds every value below the modulus
+     */
+    public static int codeWidth(BigInteger modulus) {
+        int bits = modulus.subtract(BigInteger.ONE).bitLength();
+        if (bits <= 8) {
+            return 1;
+        }
+        if (bits <= 16) {
+            return 2;
+        }
+        if (bits <= 31) {
+            return 4;
+        }
+        throw new IllegalArgumentException("Codes must fit in an int: " + modulus);
+    }
+
+    /**
+     * Opens a file for reading, detecting the binary or the old text format from its first bytes.
+     *
+     * @param file the signed message
+     * @return the reader; closing it closes the file
+     * @throws FormatException if the header is invalid
+     * @throws IOException     if the file cannot be read
+     */
+    public static Reader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return open(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts reading a channel, detecting the binary or the old text format from its first bytes.
+     *
+     * @param in the signed message; closing the reader closes it
+     * @return the reader
+     * @throws FormatException if the header is invalid
+     * @throws IOException     if the channel cannot be read
+     */
+    public static Reader open(ReadableByteChannel in) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        buffer.flip();
+        boolean binary = true;
+        // Peek without consuming, so the text reader starts from the first byte
+        for (int i = 0; i < MAGIC.length && binary; i++) {
+            binary = Reader.fill(in, buffer, i + 1) && buffer.get(i) == MAGIC[i];
+        }
+        return binary ? new BinaryReader(in, buffer) : new TextReader(in, buffer);
+    }
+
+    /**
+     * Creates a file and writes the header.
+     *
+     * @param file      the file to write (created or truncated)
+     * @param codeWidth the width of one code in bytes, see {@link #codeWidth(BigInteger)}
+     * @param codeCount the number of codes that will be written
+     * @return the writer; closing it closes the file
+     * @throws IOException if the file cannot be written
+     */
+    public static Writer create(Path file, int codeWidth, long codeCount) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            return new Writer(channel, codeWidth, codeCount);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the codes and then the signature; the number of codes is fixed in the header.
+     */
+    public static final class Writer implements Closeable {
+        private final WritableByteChannel out;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final int codeWidth;
+        private final long codeLimit;
+        private final long codeCount;
+        private long written;
+        private boolean finished;
+
+        /**
+         * Writes the header.
+         *
+         * @param out       the destination; closing the writer closes it
+         * @param codeWidth the width of one code in bytes (1, 2 or 4)
+         * @param codeCount the number of codes that will be written
+         * @throws IOException if the destination cannot be written
+         */
+        public Writer(WritableByteChannel out, int codeWidth, long codeCount) throws IOException {
+            if (codeWidth != 1 && codeWidth != 2 && codeWidth != 4) {
+                throw new IllegalArgumentException("Code width must be 1, 2 or 4 bytes");
+            }
+            if (codeCount < 0) {
+                throw new IllegalArgumentException("Code count must not be negative");
+            }
+            this.out = out;
+            this.codeWidth = codeWidth;
+            this.codeLimit = 1L << (8 * codeWidth);
+            this.codeCount = codeCount;
+            buffer.put(MAGIC).put((byte) VERSION).put((byte) codeWidth).putLong(codeCount);
+        }
+
+        /**
+         * @param codes  the encrypted codes
+         * @param offset the first code to write
+         * @param length the number of codes
+         * @throws IOException if the destination cannot be written
+         */
+        public void write(int[] codes, int offset, int length) throws IOException {
+            if (finished) {
+                throw new IllegalStateException("Signature already written");
+            }
+            if (written + length > codeCount) {
+                throw new IllegalStateException("More codes than declared: " + codeCount);
+            }
+            for (int i = offset, end = offset + length; i < end; i++) {
+                int code = codes[i];
+                if (code < 0 || code >= codeLimit && codeWidth < 4) {
+                    throw new IllegalArgumentException("Code does not fit in " + codeWidth + " bytes: " + code);
+                }
+                if (buffer.remaining() < codeWidth) {
+                    drain();
+                }
+                switch (codeWidth) {
+                    case 1 -> buffer.put((byte) code);
+                    case 2 -> buffer.putShort((short) code);
+                    default -> buffer.putInt(code);
+                }
+            }
+            written += length;
+        }
+
+        /**
+         * Writes the signature after the last code and flushes the buffer.
+         *
+         * @param signature the signature bytes
+         * @throws IOException if the destination cannot be written
+         */
+        public void writeSignature(byte[] signature) throws IOException {
+            if (written != codeCount) {
+                throw new IllegalStateException("Expected " + codeCount + " codes, written " + written);
+            }
+            if (finished) {
+                throw new IllegalStateException("Signature already written");
+            }
+            if (signature.length > MAX_SIGNATURE_LENGTH) {
+                throw new IllegalArgumentException("Signature is too long: " + signature.length + " bytes");
+            }
+            if (buffer.remaining() < Integer.BYTES + signature.length) {
+                drain();
+            }
+            buffer.putInt(signature.length).put(signature);
+            drain();
+            finished = true;
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads the codes in blocks and then the signature.
+     */
+    public abstract static class Reader implements Closeable {
+        final ReadableByteChannel in;
+        // Bytes read from the channel and not yet consumed, between position and limit
+        final ByteBuffer buffer;
+
+        Reader(ReadableByteChannel in, ByteBuffer buffer) {
+            this.in = in;
+            this.buffer = buffer;
+        }
+
+        /**
+         * @return true if the source is the binary container, false for the old text format
+         */
+        public abstract boolean isBinary();
+
+        /**
+         * @return the number of codes, or -1 if the text format does not record it
+         */
+        public abstract long getCodeCount();
+
+        /**
+         * Reads the next block of codes.
+         *
+         * @param codes  receives the codes
+         * @param offset the first position to write
+         * @param length the maximum number of codes
+         * @return the number of codes read, or -1 after the last code
+         * @throws FormatException if the source is not a valid signed message
+         * @throws IOException     if the source cannot be read
+         */
+        public abstract int read(int[] codes, int offset, int length) throws IOException;
+
+        /**
+         * Skips any codes left unread and reads the signature.
+         *
+         * @return the signature as unsigned big-endian bytes
+         * @throws FormatException if the source is not a valid signed message
+         * @throws IOException     if the source cannot be read
+         */
+        public abstract byte[] readSignature() throws IOException;
+
+        /**
+         * Reads until at least {@code count} bytes are buffered.
+         *
+         * @return false if the source ended first
+         */
+        static boolean fill(ReadableByteChannel in, ByteBuffer buffer, int count) throws IOException {
+            if (buffer.remaining() >= count) {
+                return true;
+            }
+            buffer.compact();
+            try {
+                while (buffer.position() < count) {
+                    if (in.read(buffer) < 0) {
+                        return false;
+                    }
+                }
+                return true;
+            } finally {
+                buffer.flip();
+            }
+        }
+
+        void require(int count) throws IOException {
+            if (!fill(in, buffer, count)) {
+                throw new FormatException("Signed message is truncated");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Thrown when the input is not a valid signed message: wrong header, truncated or unparsable content.
+     */
+    public static final class FormatException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public FormatException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class BinaryReader extends Reader {
+        private final int codeWidth;
+        private final long codeCount;
+        private long remaining;
+
+        BinaryReader(ReadableByteChannel in, ByteBuffer buffer) throws IOException {
+            super(in, buffer);
+            buffer.position(MAGIC.length);
+            require(2 + Long.BYTES);
+            int version = buffer.get();
+            if (version != VERSION) {
+                throw new FormatException("Unsupported signed message version: " + version);
+            }
+            codeWidth = buffer.get();
+            if (codeWidth != 1 && codeWidth != 2 && codeWidth != 4) {
+                throw new FormatException("Invalid code width: " + codeWidth);
+            }
+            codeCount = buffer.getLong();
+            if (codeCount < 0) {
+                throw new FormatException("Invalid code count: " + codeCount);
+            }
+            remaining = codeCount;
+        }
+
+        @Override
+        public boolean isBinary() {
+            return true;
+        }
+
+        @Override
+        public long getCodeCount() {
+            return codeCount;
+        }
+
+        @Override
+        public int read(int[] codes, int offset, int length) throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            int count = (int) Math.min(length, remaining);
+            for (int i = 0; i < count; i++) {
+                require(codeWidth);
+                codes[offset + i] = switch (codeWidth) {
+                    case 1 -> buffer.get() & 0xff;
+                    case 2 -> buffer.getShort() & 0xffff;
+                    default -> buffer.getInt();
+                };
+            }
+            remaining -= count;
+            return count;
+        }
+
+        @Override
+        public byte[] readSignature() throws IOException {
+            while (remaining > 0) {
+                require(codeWidth);
+                int skip = (int) Math.min(remaining, buffer.remaining() / codeWidth);
+                buffer.position(buffer.position() + skip * codeWidth);
+                remaining -= skip;
+            }
+            require(Integer.BYTES);
+            int length = buffer.getInt();
+            if (length < 0 || length > MAX_SIGNATURE_LENGTH) {
+                throw new FormatException("Invalid signature length: " + length);
+            }
+            require(length);
+            byte[] signature = new byte[length];
+            buffer.get(signature);
+            return signature;
+        }
+    }
+
+    /**
+     * Parses comma-separated decimal numbers; the last number is the signature, so one number is
+     * always parsed ahead of the codes returned.
+     */
+    private static final class TextReader extends Reader {
+        private static final long NONE = -1;
+        private long current;
+        private long next;
+
+        TextReader(ReadableByteChannel in, ByteBuffer buffer) throws IOException {
+            super(in, buffer);
+            current = parseNext();
+            if (current == NONE) {
+                throw new FormatException("Signed message is empty");
+            }
+            next = parseNext();
+        }
+
+        @Override
+        public boolean isBinary() {
+            return false;
+        }
+
+        @Override
+        public long getCodeCount() {
+            return -1;
+        }
+
+        @Override
+        public int read(int[] codes, int offset, int length) throws IOException {
+            if (next == NONE) {
+                return -1;
+            }
+            int count = 0;
+            while (count < length && next != NONE) {
+                if (current > Integer.MAX_VALUE) {
+                    throw new FormatException("Code is too large: " + current);
+                }
+                codes[offset + count++] = (int) current;
+                current = next;
+                next = parseNext();
+            }
+            return count;
+        }
+
+        @Override
+        public byte[] readSignature() throws IOException {
+            while (next != NONE) {
+                current = next;
+                next = parseNext();
+            }
+            byte[] bytes = BigInteger.valueOf(current).toByteArray();
+            // Drop the sign byte of the two's complement encoding
+            return bytes.length > 1 && bytes[0] == 0 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes;
+        }
+
+        /**
+         * Whitespace may surround a number but ends it: digits after it, before the next comma, are an error.
+         * As in the old format, every comma must follow a number, except trailing commas at the end of the input.
+         *
+         * @return the next number, or NONE at the end of the input
+         */
+        private long parseNext() throws IOException {
+            long value = NONE;
+            boolean ended = false;
+            // A comma without a number before it; only allowed if no number follows
+            boolean emptyField = false;
+            while (fill(in, buffer, 1)) {
+                byte b = buffer.get(buffer.position());
+                if (b >= '0' && b <= '9') {
+                    if (ended) {
+                        throw new FormatException("Missing comma between numbers in signed message");
+                    }
+                    if (emptyField) {
+                        throw new FormatException("Missing number between commas in signed message");
+                    }
+                    value = (value == NONE ? 0 : value * 10) + (b - '0');
+                    if (value > Integer.MAX_VALUE) {
+                        throw new FormatException("Number is too large in signed message");
+                    }
+                } else if (b == ',' || Character.isWhitespace(b)) {
+                    if (value != NONE && b == ',') {
+                        buffer.position(buffer.position() + 1);
+                        return value;
+                    }
+                    ended = value != NONE;
+                    emptyField |= b == ',';
+                } else {
+                    throw new FormatException("Invalid character in signed message: " + (char) b);
+                }
+                buffer.position(buffer.position() + 1);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.ivan.lab6;
+
+import lombok.experimental.UtilityClass;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+@UtilityClass
+public class StreamingHasher {
+
+    public static final String ALGORITHM = "SHA-256";
+    // Size of the read buffer; memory use does not depend on the file size
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Computes the SHA-256 digest of a file of any size without loading it into the heap.
+     *
+     * @param file the file to hash
+     * @return the 32-byte digest
+     * @throws IOException if the file cannot be read
+     */
+    public static byte[] sha256(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return sha256(channel);
+        }
+    }
+
+    /**
+     * Computes the SHA-256 digest of the rest of a stream; the stream is not closed.
+     *
+     * @param in the source, read until its end
+     * @return the 32-byte digest
+     * @throws IOException if the source cannot be read
+     */
+    public static byte[] sha256(InputStream in) throws IOException {
+        return sha256(Channels.newChannel(in));
+    }
+
+    /**
+     * Computes the SHA-256 digest of the rest of a channel; the channel is not closed.
+     *
+     * @param in the source, read until its end
+     * @return the 32-byte digest
+     * @throws IOException if the source cannot be read
+     */
+    public static byte[] sha256(ReadableByteChannel in) throws IOException {
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        while (in.read(buffer) != -1) {
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+        }
+        return digest.digest();
+    }
+
+    /**
+     * @param data the bytes to hash
+     * @return the 32-byte digest
+     */
+    public static byte[] sha256(byte[] data) {
+        return newDigest().digest(data);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide SHA-256
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+}
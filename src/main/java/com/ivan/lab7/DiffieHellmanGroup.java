@@ -0,0 +1,296 @@
+package com.ivan.lab7;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Diffie-Hellman parameters: a safe prime p = 2q + 1 (q prime) and a primitive root g modulo p.
+ * <p>
+ * Because p - 1 = 2q has only the prime factors 2 and q, g is a primitive root exactly when
+ * g^2 and g^q are both different from 1 mod p, so checking a candidate takes two exponentiations
+ * instead of one per divisor of p - 1. Safe primes are found by sieving windows of consecutive
+ * candidates q with the small primes, discarding every q for which q or 2q + 1 has a small factor, so
+ * only about one candidate in a hundred reaches a probabilistic primality test. Generated groups can be
+ * stored in a text cache file and are loaded from it on later runs.
+ */
+public final class DiffieHellmanGroup {
+    public static final int DEFAULT_BITS = 2048;
+    // Smallest accepted size; below it the sieve primes could be the candidates themselves
+    public static final int MIN_BITS = 64;
+    private static final int CERTAINTY = 100;
+    // Candidates q = start + 2k for k below this are sieved together
+    private static final int WINDOW = 1 << 16;
+    private static final int SIEVE_LIMIT = 1 << 16;
+    private static final int[] SIEVE_PRIMES = oddPrimesBelow(SIEVE_LIMIT);
+
+    private final BigInteger p;
+    private final BigInteger q;
+    private final BigInteger g;
+
+    private DiffieHellmanGroup(BigInteger p, BigInteger q, BigInteger g) {
+        this.p = p;
+        this.q = q;
+        this.g = g;
+    }
+
+    /**
+     * Creates a group from a known safe prime, finding its smallest primitive root.
+     *
+     * @param p a safe prime
+     * @return the group
+     */
+    public static DiffieHellmanGroup of(BigInteger p) {
+        BigInteger q = p.shiftRight(1);
+        if (!p.testBit(0) || !q.isProbablePrime(CERTAINTY) || !p.isProbablePrime(CERTAINTY)) {
+            throw new IllegalArgumentException("Not a safe prime: " + p);
+        }
+        return new DiffieHellmanGroup(p, q, findGenerator(p, List.of(BigInteger.TWO, q)));
+    }
+
+    /**
+     * Generates a group with a random safe prime of the given size, searching on the common pool.
+     *
+     * @param bits   the size of p in bits
+     * @param random the source of randomness
+     * @return the group
+     */
+    public static DiffieHellmanGroup generate(int bits, Random random) {
+        return generate(bits, random, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Generates a group with a random safe prime of the given size. Every pool thread sieves its own
+     * random windows until one of them finds a safe prime.
+     *
+     * @param bits   the size of p in bits
+     * @param random the source of randomness, shared by the threads
+     * @param pool   the pool that runs the search
+     * @return the group
+     */
+    public static DiffieHellmanGroup generate(int bits, Random random, ForkJoinPool pool) {
+        if (bits < MIN_BITS) {
+            throw new IllegalArgumentException("Group must have at least " + MIN_BITS + " bits");
+        }
+        AtomicReference<BigInteger> found = new AtomicReference<>();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < pool.getParallelism(); i++) {
+            tasks.add(() -> {
+                while (found.get() == null) {
+                    // Random q of bits - 1 bits with the top bit set, so p has exactly bits bits
+                    BigInteger start = new BigInteger(bits - 1, random).setBit(bits - 2).setBit(0);
+                    BigInteger q = searchWindow(start, bits - 1, found);
+                    if (q != null) {
+                        found.compareAndSet(null, q);
+                    }
+                }
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> result : pool.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Safe prime search interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Safe prime search failed", e.getCause());
+        }
+        BigInteger q = found.get();
+        BigInteger p = q.shiftLeft(1).setBit(0);
+        return new DiffieHellmanGroup(p, q, findGenerator(p, List.of(BigInteger.TWO, q)));
+    }
+
+    /**
+     * Tests the candidates q = start + 2k of one window.
+     * The algorithm first crosses out every k for which a small prime r divides q or 2q + 1
+     * (q = 0 or q = (r - 1) / 2 mod r), then runs a base-2 Fermat test on q and p and the full
+     * primality tests only on the candidates that pass.
+     *
+     * @return q of the first safe prime in the window, or null
+     */
+    private static BigInteger searchWindow(BigInteger start, int qBits, AtomicReference<BigInteger> found) {
+        boolean[] crossed = new boolean[WINDOW];
+        for (int r : SIEVE_PRIMES) {
+            int s = start.mod(BigInteger.valueOf(r)).intValue();
+            // start + 2k = t mod r  <=>  k = (t - s) * 2^-1 mod r, where 2^-1 = (r + 1) / 2
+            long half = (r + 1) / 2;
+            int k = (int) (Math.floorMod(-s, r) * half % r);
+            for (; k < WINDOW; k += r) {
+                crossed[k] = true;
+            }
+            k = (int) (Math.floorMod((r - 1) / 2 - s, r) * half % r);
+            for (; k < WINDOW; k += r) {
+                crossed[k] = true;
+            }
+        }
+        for (int k = 0; k < WINDOW && found.get() == null; k++) {
+            if (crossed[k]) {
+                continue;
+            }
+            BigInteger q = start.add(BigInteger.valueOf(2L * k));
+            if (q.bitLength() != qBits) {
+                return null;
+            }
+            BigInteger p = q.shiftLeft(1).setBit(0);
+            if (fermatTest(q) && fermatTest(p) && q.isProbablePrime(CERTAINTY) && p.isProbablePrime(CERTAINTY)) {
+                return q;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether g is a primitive root modulo a prime p.
+     * The algorithm tests g^((p-1)/f) != 1 mod p for every prime factor f of p - 1,
+     * which is enough because any smaller order of g divides one of these exponents.
+     *
+     * @param g            the candidate (2 to p - 2)
+     * @param p            the prime modulus
+     * @param primeFactors the distinct prime factors of p - 1
+     * @return true if g generates all of 1..p-1
+     */
+    public static boolean isPrimitiveRoot(BigInteger g, BigInteger p, List<BigInteger> primeFactors) {
+        BigInteger phi = p.subtract(BigInteger.ONE);
+        for (BigInteger factor : primeFactors) {
+            if (g.modPow(phi.divide(factor), p).equals(BigInteger.ONE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the smallest primitive root modulo a prime p.
+     *
+     * @param p            the prime modulus
+     * @param primeFactors the distinct prime factors of p - 1
+     * @return the primitive root
+     */
+    public static BigInteger findGenerator(BigInteger p, List<BigInteger> primeFactors) {
+        for (BigInteger g = BigInteger.TWO; g.compareTo(p.subtract(BigInteger.ONE)) < 0; g = g.add(BigInteger.ONE)) {
+            if (isPrimitiveRoot(g, p, primeFactors)) {
+                return g;
+            }
+        }
+        throw new IllegalArgumentException("No primitive root found for p = " + p);
+    }
+
+    /**
+     * Returns a cached group of the given size, or generates one and adds it to the cache.
+     * Each line of the cache file holds the size of p, p in hexadecimal and g. Cached groups are
+     * checked with the generator test and a base-2 Fermat test, so a corrupted entry is replaced
+     * rather than used.
+     *
+     * @param cache  the cache file; created if it does not exist
+     * @param bits   the size of p in bits
+     * @param random the source of randomness for a new group
+     * @return the group
+     * @throws IOException if the cache file cannot be read or written
+     */
+    public static DiffieHellmanGroup loadOrGenerate(Path cache, int bits, Random random) throws IOException {
+        List<String> lines = Files.exists(cache)
+                ? Files.readAllLines(cache, StandardCharsets.UTF_8) : new ArrayList<>();
+        for (String line : lines) {
+            DiffieHellmanGroup group = parse(line, bits);
+            if (group != null) {
+                return group;
+            }
+        }
+        DiffieHellmanGroup group = generate(bits, random);
+        lines.removeIf(line -> parse(line, bits) == null && line.startsWith(bits + " "));
+        lines.add(group.toCacheLine());
+        // Replace the file in one step so an interrupted run does not leave a partial cache
+        Path temp = Files.createTempFile(cache.toAbsolutePath().getParent(), "dh-groups", ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+        Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING);
+        return group;
+    }
+
+    /**
+     * @return the group of a valid cache line of the given size, or null
+     */
+    private static DiffieHellmanGroup parse(String line, int bits) {
+        String[] parts = line.trim().split("\\s+");
+        if (parts.length != 3 || !parts[0].equals(Integer.toString(bits))) {
+            return null;
+        }
+        try {
+            BigInteger p = new BigInteger(parts[1], 16);
+            BigInteger g = new BigInteger(parts[2]);
+            BigInteger q = p.shiftRight(1);
+            if (p.bitLength() != bits || !p.testBit(0) || g.compareTo(BigInteger.ONE) <= 0 || g.compareTo(p) >= 0
+                    || !isPrimitiveRoot(g, p, List.of(BigInteger.TWO, q))
+                    || !fermatTest(q) || !fermatTest(p)) {
+                return null;
+            }
+            return new DiffieHellmanGroup(p, q, g);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Base-2 Fermat test: one exponentiation, enough to reject a corrupted cache entry.
+     */
+    private static boolean fermatTest(BigInteger n) {
+        return BigInteger.TWO.modPow(n.subtract(BigInteger.ONE), n).equals(BigInteger.ONE);
+    }
+
+    private String toCacheLine() {
+        return p.bitLength() + " " + p.toString(16) + " " + g;
+    }
+
+    /**
+     * @return the safe prime p
+     */
+    public BigInteger getP() {
+        return p;
+    }
+
+    /**
+     * @return the prime q = (p - 1) / 2
+     */
+    public BigInteger getQ() {
+        return q;
+    }
+
+    /**
+     * @return the primitive root g
+     */
+    public BigInteger getG() {
+        return g;
+    }
+
+    private static int[] oddPrimesBelow(int limit) {
+        boolean[] composite = new boolean[limit];
+        List<Integer> primes = new ArrayList<>();
+        for (int i = 3; i < limit; i += 2) {
+            if (!composite[i]) {
+                primes.add(i);
+                for (long j = (long) i * i; j < limit; j += 2L * i) {
+                    composite[(int) j] = true;
+                }
+            }
+        }
+        return primes.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -1,21 +1,39 @@
 package com.ivan.lab7;
 
+import com.ivan.utils.FileManager;
+
+import java.io.IOException;
 import java.math.BigInteger;
+import java.security.SecureRandom;
 import java.util.Random;
 
 public class DiffieHellmanKeyExchange {
+    // Generated groups, keyed by size; later runs load the group instead of searching again
+    private static final String GROUP_CACHE_FILE = "dh-groups.txt";
+
     public static void main(String[] args) {
-        // Step 1: Select a large prime number p (at least 4 digits)
-        BigInteger p = BigInteger.valueOf(10007); // A minimum 4-digit prime number
+        // Step 1: Select a safe prime p = 2q + 1 of at least 2048 bits (from the cache or newly generated)
+        int bits = args.length > 0 ? Integer.parseInt(args[0]) : DiffieHellmanGroup.DEFAULT_BITS;
+        DiffieHellmanGroup group;
+        try {
+            long start = System.nanoTime();
+            group = DiffieHellmanGroup.loadOrGenerate(FileManager.resourcePath(GROUP_CACHE_FILE), bits,
+                    new SecureRandom());
+            System.out.printf("Group of %d bits ready in %.0f ms%n", bits, (System.nanoTime() - start) / 1e6);
+        } catch (IOException e) {
+            System.out.println("File operation error: " + e.getMessage());
+            return;
+        }
+        BigInteger p = group.getP();
         System.out.println("Selected prime number p: " + p);
 
-        // Step 2: Find a primitive root a for p
-        BigInteger a = findPrimitiveRoot(p);
+        // Step 2: Primitive root a for p, checked against the prime factors 2 and q of p - 1
+        BigInteger a = group.getG();
         System.out.println("Selected primitive root a: " + a);
 
         // Step 3: Perform Diffie-Hellman key exchange
         // Party A generates private key x
-        Random rand = new Random();
+        Random rand = new SecureRandom();
         BigInteger x = new BigInteger(p.bitLength(), rand).mod(p.subtract(BigInteger.ONE)).add(BigInteger.ONE);//xi = xi-1^2 mod n
         BigInteger X = a.modPow(x, p); // A computes X = a^x mod p
         System.out.println("A's public key X: " + X);
@@ -38,36 +56,6 @@ public class DiffieHellmanKeyExchange {
         System.out.println("Do the keys match? " + keysMatch);
     }
 
-    // Function to find a primitive root modulo p
-    private static BigInteger findPrimitiveRoot(BigInteger p) {
-        BigInteger phi = p.subtract(BigInteger.ONE); // φ(p) = p-1 for prime p
-        BigInteger candidate = BigInteger.TWO;
-
-        while (candidate.compareTo(p) < 0) {
-            // Check if candidate is a primitive root
-            // By Fermat's Little Theorem, a^(p-1) ≡ 1 (mod p)
-            // We need a number whose powers mod p generate all numbers from 1 to p-1
-            boolean isPrimitive = true;
-            // Test if a^((p-1)/q) ≠ 1 for all prime factors q of p-1
-            // For simplicity, test a few small powers
-            for (BigInteger i = BigInteger.ONE; i.compareTo(phi) < 0; i = i.add(BigInteger.ONE)) {
-                BigInteger power = phi.divide(i);
-                if (phi.mod(power).equals(BigInteger.ZERO)) {
-                    BigInteger test = candidate.modPow(power, p);
-                    if (test.equals(BigInteger.ONE) && power.compareTo(phi) < 0) {
-                        isPrimitive = false;
-                        break;
-                    }
-                }
-            }
-            if (isPrimitive) {
-                return candidate;
-            }
-            candidate = candidate.add(BigInteger.ONE);
-        }
-        throw new RuntimeException("No primitive root found for p = " + p);
-    }
-
     // Function to check if a number is prime
     private static boolean isPrime(long n) {
         if (n <= 1) return false;
@@ -1,11 +1,15 @@
 package com.ivan.lab9;
 
+import com.ivan.utils.Alphabet;
 import com.ivan.utils.FileManager;
 import com.ivan.utils.Locale;
+import com.ivan.utils.MonoalphabeticTransform;
+import com.ivan.utils.StreamingTextCipher;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Random;
@@ -13,8 +17,10 @@ import java.util.Scanner;
 import java.nio.charset.StandardCharsets;
 
 public class CombinedCipher {
-    private static final String ALPHABET = "АБВГДЕЖЗИЙКЛМНОПРСТУФХЦЧШЩЪЫЬЭЮЯ ";
-    private static final int ALPHABET_SIZE = ALPHABET.length();
+    private static final Alphabet ALPHABET = new Alphabet("АБВГДЕЖЗИЙКЛМНОПРСТУФХЦЧШЩЪЫЬЭЮЯ ");
+    private static final int ALPHABET_SIZE = ALPHABET.size();
+    // Ciphertext of the streaming file encryption (the key stays in encrypted.txt)
+    private static final String STREAM_ENCRYPTED_FILE = "combined-encrypted.txt";
 
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
@@ -37,8 +43,9 @@ public class CombinedCipher {
             System.out.println("Substitution table: " + Arrays.toString(substitutionTable));
 
             // Step 4: Encrypt the CMPtext
-            String caesarEncrypted = caesarEncrypt(plaintext, shift);
-            String finalEncrypted = substitutionEncrypt(caesarEncrypted, substitutionTable);
+            // Caesar shift and substitution are composed into one table, so the text is processed in one pass
+            MonoalphabeticTransform encryption = caesarTransform(shift).andThen(substitutionTransform(substitutionTable));
+            String finalEncrypted = encryption.apply(plaintext);
             System.out.println("----------------------------------------------");
             System.out.println("Encrypted text: " + finalEncrypted);
 
@@ -50,36 +57,44 @@ public class CombinedCipher {
             String encryptedText = cipherData[0];
             int readShift = Integer.parseInt(cipherData[1]);
             char[] readSubstitutionTable = cipherData[2].toCharArray();
-            String caesarDecrypted = substitutionDecrypt(encryptedText, readSubstitutionTable);
-            String decryptedText = caesarDecrypt(caesarDecrypted, readShift);
+            MonoalphabeticTransform decryption = substitutionInverseTransform(readSubstitutionTable)
+                    .andThen(caesarTransform(-readShift));
+            String decryptedText = decryption.apply(encryptedText);
             System.out.println("----------------------------------------------");
             System.out.println("Decrypted text: " + decryptedText);
+
+            // Step 7: Encrypt and decrypt the input file as a stream with the same key
+            Path encryptedFile = FileManager.resourcePath(STREAM_ENCRYPTED_FILE);
+            Path decryptedFile = FileManager.resourcePath(FileManager.DECRYPTED_FILE);
+            long size = encryptFile(FileManager.inputPath(Locale.UK), encryptedFile, shift, substitutionTable);
+            decryptFile(encryptedFile, decryptedFile, readShift, readSubstitutionTable);
+            System.out.println("----------------------------------------------");
+            System.out.println("Streamed " + size + " bytes to " + STREAM_ENCRYPTED_FILE + " and back to "
+                    + FileManager.DECRYPTED_FILE);
         } catch (IOException e) {
             System.out.println("Error: " + e.getMessage());
         }
     }
 
-    // Caesar cipher encryption
-    private static String caesarEncrypt(String text, int shift) {
-        StringBuilder result = new StringBuilder();
-        for (char c : text.toCharArray()) {
-            int index = ALPHABET.indexOf(c);
-            if (index != -1) {
-                // Apply shift, handle wrap-around with modulo
-                int newIndex = (index + shift) % ALPHABET_SIZE;
-                if (newIndex < 0) newIndex += ALPHABET_SIZE;
-                result.append(ALPHABET.charAt(newIndex));
-            } else {
-                result.append(c);
-            }
-        }
-        return result.toString();
+    // Encrypts a UTF-8 file of any size in bounded buffers: upper case, Caesar shift and substitution
+    // are composed into one table, and line endings and characters outside ALPHABET keep their bytes
+    public static long encryptFile(Path input, Path output, int shift, char[] substitutionTable) throws IOException {
+        MonoalphabeticTransform encryption = MonoalphabeticTransform.of(c -> Character.toUpperCase((char) c))
+                .andThen(caesarTransform(shift))
+                .andThen(substitutionTransform(substitutionTable));
+        return StreamingTextCipher.transform(input, output, encryption);
+    }
+
+    // Decrypts a file written by encryptFile; the result is the upper-cased plaintext
+    public static long decryptFile(Path input, Path output, int shift, char[] substitutionTable) throws IOException {
+        MonoalphabeticTransform decryption = substitutionInverseTransform(substitutionTable)
+                .andThen(caesarTransform(-shift));
+        return StreamingTextCipher.transform(input, output, decryption);
     }
 
-    // Caesar cipher decryption
-    private static String caesarDecrypt(String text, int shift) {
-        // Decrypt by applying the inverse shift
-        return caesarEncrypt(text, -shift);
+    // Caesar shift over ALPHABET compiled into a lookup table, wrap-around handled once per letter
+    private static MonoalphabeticTransform caesarTransform(int shift) {
+        return MonoalphabeticTransform.rotation(ALPHABET.toString(), shift);
     }
 
     // Generate random substitution table
@@ -95,38 +110,14 @@ public class CombinedCipher {
         return table;
     }
 
-    // Substitution cipher encryption
-    private static String substitutionEncrypt(String text, char[] substitutionTable) {
-        StringBuilder result = new StringBuilder();
-        for (char c : text.toCharArray()) {
-            int index = ALPHABET.indexOf(c);
-            if (index != -1) {
-                result.append(substitutionTable[index]);
-            } else {
-                result.append(c);
-            }
-        }
-        return result.toString();
+    // ALPHABET[i] -> substitutionTable[i]
+    private static MonoalphabeticTransform substitutionTransform(char[] substitutionTable) {
+        return MonoalphabeticTransform.substitution(ALPHABET.toString(), new String(substitutionTable));
     }
 
-    // Substitution cipher decryption
-    private static String substitutionDecrypt(String text, char[] substitutionTable) {
-        StringBuilder result = new StringBuilder();
-        for (char c : text.toCharArray()) {
-            int index = -1;
-            for (int i = 0; i < substitutionTable.length; i++) {
-                if (substitutionTable[i] == c) {
-                    index = i;
-                    break;
-                }
-            }
-            if (index != -1) {
-                result.append(ALPHABET.charAt(index));
-            } else {
-                result.append(c);
-            }
-        }
-        return result.toString();
+    // substitutionTable[i] -> ALPHABET[i]; the first occurrence wins, as in a linear search of the table
+    private static MonoalphabeticTransform substitutionInverseTransform(char[] substitutionTable) {
+        return MonoalphabeticTransform.substitution(new String(substitutionTable), ALPHABET.toString());
     }
 
     // Write encrypted text, shift, and substitution table to file
@@ -0,0 +1,171 @@
+package com.ivan.utils;
+
+import java.util.Arrays;
+
+/**
+ * Immutable ordered alphabet with constant-time lookups in both directions.
+ * <p>
+ * Letters are stored in an index-to-char array, and the reverse mapping is a dense array over the
+ * character range the alphabet spans (the Cyrillic block, plus the space where it is a letter), so
+ * neither direction searches the alphabet or creates a {@code String} per character. A case-insensitive
+ * view ({@link #ignoringCase()}) maps both cases of a letter to the same position.
+ */
+public final class Alphabet {
+    /**
+     * The 32 Ukrainian capital letters of the Vernam cipher (lab3), without Ґ.
+     */
+    public static final Alphabet UKRAINIAN = new Alphabet("АБВГДЕЄЖЗИІЇЙКЛМНОПРСТУФХЦЧШЩЬЮЯ");
+    /**
+     * The Ukrainian capital letters followed by the space (33 characters, lab6).
+     */
+    public static final Alphabet UKRAINIAN_WITH_SPACE = new Alphabet(UKRAINIAN.letters + " ");
+    /**
+     * The 33 Ukrainian small letters (with ґ) of the frequency analysis (lab1, lab2).
+     */
+    public static final Alphabet UKRAINIAN_SMALL = new Alphabet("абвгґдеєжзиіїйклмнопрстуфхцчшщьюя");
+    /**
+     * The 26 Latin small letters (lab1, lab2).
+     */
+    public static final Alphabet LATIN_SMALL = new Alphabet("abcdefghijklmnopqrstuvwxyz");
+
+    private final String letters;
+    private final char[] chars;
+    // Lowest character of the alphabet; indices[c - first] is the index of c, or -1
+    private final char first;
+    private final byte[] indices;
+    private final boolean ignoreCase;
+
+    /**
+     * Creates an alphabet from its characters in order.
+     *
+     * @param letters the distinct characters (at most 127)
+     */
+    public Alphabet(String letters) {
+        this(letters, false);
+    }
+
+    private Alphabet(String letters, boolean ignoreCase) {
+        if (letters.isEmpty() || letters.length() > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Alphabet must have between 1 and 127 characters");
+        }
+        this.letters = letters;
+        this.chars = letters.toCharArray();
+        this.ignoreCase = ignoreCase;
+        char min = Character.MAX_VALUE;
+        char max = Character.MIN_VALUE;
+        for (char c : chars) {
+            for (char variant : variants(c)) {
+                min = (char) Math.min(min, variant);
+                max = (char) Math.max(max, variant);
+            }
+        }
+        this.first = min;
+        this.indices = new byte[max - min + 1];
+        Arrays.fill(indices, (byte) -1);
+        for (int i = 0; i < chars.length; i++) {
+            for (char variant : variants(chars[i])) {
+                if (indices[variant - min] != -1 && indices[variant - min] != i) {
+                    throw new IllegalArgumentException("Duplicate character in alphabet: " + chars[i]);
+                }
+                indices[variant - min] = (byte) i;
+            }
+        }
+    }
+
+    /**
+     * @return the characters looked up for c: c itself, and its lower and upper case when case is ignored
+     */
+    private char[] variants(char c) {
+        return ignoreCase ? new char[]{c, Character.toLowerCase(c), Character.toUpperCase(c)} : new char[]{c};
+    }
+
+    /**
+     * Returns a view of this alphabet in which both cases of a letter have the position of the letter;
+     * {@link #charAt(int)} still returns the letters as given.
+     *
+     * @return the case-insensitive alphabet
+     */
+    public Alphabet ignoringCase() {
+        return ignoreCase ? this : new Alphabet(letters, true);
+    }
+
+    /**
+     * @return the number of characters
+     */
+    public int size() {
+        return chars.length;
+    }
+
+    /**
+     * @param index the position in the alphabet (0 to size - 1)
+     * @return the character at that position
+     */
+    public char charAt(int index) {
+        return chars[index];
+    }
+
+    /**
+     * @param c any character
+     * @return the position of the character, or -1 if it is not in the alphabet
+     */
+    public int indexOf(char c) {
+        int offset = c - first;
+        return offset >= 0 && offset < indices.length ? indices[offset] : -1;
+    }
+
+    public boolean contains(char c) {
+        return indexOf(c) >= 0;
+    }
+
+    /**
+     * Converts {@code length} characters to their positions.
+     *
+     * @param text      the characters
+     * @param offset    the first character to convert
+     * @param length    the number of characters
+     * @param out       receives the positions
+     * @param outOffset the first position to write
+     * @return the index in {@code text} of the first character that is not in the alphabet,
+     * or -1 if all were converted
+     */
+    public int toIndices(char[] text, int offset, int length, int[] out, int outOffset) {
+        for (int i = 0; i < length; i++) {
+            int index = indexOf(text[offset + i]);
+            if (index < 0) {
+                return offset + i;
+            }
+            out[outOffset + i] = index;
+        }
+        return -1;
+    }
+
+    /**
+     * Converts {@code length} positions to their characters.
+     *
+     * @param indices   the positions (0 to size - 1)
+     * @param offset    the first position to convert
+     * @param length    the number of positions
+     * @param out       receives the characters
+     * @param outOffset the first character to write
+     */
+    public void toChars(int[] indices, int offset, int length, char[] out, int outOffset) {
+        for (int i = 0; i < length; i++) {
+            out[outOffset + i] = chars[indices[offset + i]];
+        }
+    }
+
+    /**
+     * @return a copy of the characters in order
+     */
+    public char[] toCharArray() {
+        return chars.clone();
+    }
+
+    /**
+     * @return the characters in order
+     */
+    @Override
+    public String toString() {
+        return letters;
+    }
+}
@@ -14,6 +14,24 @@ public class FileManager {
     public static final String INPUT_EN_FILE = "input-en.txt";
     public static final String INPUT_UK_FILE = "input-uk.txt";
     public static final String OUTPUT_FILE = "encrypted.txt";
+    public static final String DECRYPTED_FILE = "decrypted.txt";
+    public static final String RESOURCES_DIR = "src/main/resources/";
+
+    /**
+     * @param filename the name of a file in the resources directory
+     * @return the path of the file in the source tree, where the labs write their output
+     */
+    public static Path resourcePath(String filename) {
+        return Paths.get(RESOURCES_DIR + filename);
+    }
+
+    /**
+     * @param locale the language of the input text
+     * @return the path of the input file in the source tree
+     */
+    public static Path inputPath(Locale locale) {
+        return resourcePath(locale == Locale.EN ? INPUT_EN_FILE : INPUT_UK_FILE);
+    }
 
     public static String readInputFile(Locale locale) throws IOException {
         String filename = locale == Locale.EN ? INPUT_EN_FILE : INPUT_UK_FILE;
@@ -51,14 +69,14 @@ public class FileManager {
     }
 
     public static void writeOutputFile(String text) throws IOException {
-        Path path = Paths.get("src/main/resources/" + OUTPUT_FILE);
+        Path path = resourcePath(OUTPUT_FILE);
         BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
         writer.write(text);
         writer.close();
     }
 
     public static void writeInputFile(String text) throws IOException {
-        Path path = Paths.get("src/main/resources/" + INPUT_EN_FILE);
+        Path path = resourcePath(INPUT_EN_FILE);
         BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
         writer.write(text);
         writer.close();
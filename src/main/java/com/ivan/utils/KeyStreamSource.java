@@ -0,0 +1,18 @@
+package com.ivan.utils;
+
+/**
+ * Source of keystream bytes for XOR stream ciphers.
+ * Implementations are stateful: every call continues the stream where the previous one stopped.
+ */
+@FunctionalInterface
+public interface KeyStreamSource {
+
+    /**
+     * Writes the next {@code length} keystream bytes into {@code keyStream} starting at {@code offset}.
+     *
+     * @param keyStream the destination buffer
+     * @param offset    the first index to write
+     * @param length    the number of bytes to produce
+     */
+    void generateKeyStream(byte[] keyStream, int offset, int length);
+}
@@ -0,0 +1,208 @@
+package com.ivan.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Character-by-character substitution compiled into a lookup table.
+ * <p>
+ * The table is built once per key from a per-character function, so encrypting a text is one array
+ * lookup per character with no case or alphabet checks. Entries after the last changed character are
+ * identity and are not stored, which keeps Latin and Cyrillic tables small; a mapping that changes
+ * characters anywhere in the BMP keeps the full 65536-entry table.
+ */
+public final class MonoalphabeticTransform {
+    public static final MonoalphabeticTransform IDENTITY = new MonoalphabeticTransform(new char[0]);
+
+    private static final int BUFFER_SIZE = 8192;
+
+    // table[c] is the image of c for c < table.length; larger characters are unchanged
+    private final char[] table;
+
+    private MonoalphabeticTransform(char[] table) {
+        this.table = table;
+    }
+
+    /**
+     * Compiles a per-character function by evaluating it for every char value.
+     *
+     * @param mapping the image of each character (0 to 65535); the result is truncated to a char
+     * @return the compiled transform
+     */
+    public static MonoalphabeticTransform of(IntUnaryOperator mapping) {
+        char[] table = new char[Character.MAX_VALUE + 1];
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            table[c] = (char) mapping.applyAsInt(c);
+        }
+        return new MonoalphabeticTransform(trim(table));
+    }
+
+    /**
+     * Maps {@code from.charAt(i)} to {@code to.charAt(i)}; all other characters are unchanged.
+     * If a character occurs in {@code from} more than once, its first occurrence is used.
+     *
+     * @param from the source characters
+     * @param to   their images, of the same length
+     * @return the compiled transform
+     */
+    public static MonoalphabeticTransform substitution(String from, String to) {
+        if (from.length() != to.length()) {
+            throw new IllegalArgumentException("Source and target alphabets must have the same length");
+        }
+        int max = -1;
+        for (int i = 0; i < from.length(); i++) {
+            max = Math.max(max, from.charAt(i));
+        }
+        char[] table = identity(max + 1);
+        for (int i = from.length() - 1; i >= 0; i--) {
+            table[from.charAt(i)] = to.charAt(i);
+        }
+        return new MonoalphabeticTransform(trim(table));
+    }
+
+    /**
+     * Shifts every character of the alphabet by {@code shift} positions with wrap-around
+     * (a Caesar cipher over an arbitrary alphabet); other characters are unchanged.
+     *
+     * @param alphabet the characters in order
+     * @param shift    the shift, may be negative
+     * @return the compiled transform
+     */
+    public static MonoalphabeticTransform rotation(String alphabet, int shift) {
+        int n = alphabet.length();
+        int offset = Math.floorMod(shift, n);
+        return substitution(alphabet, alphabet.substring(offset) + alphabet.substring(0, offset));
+    }
+
+    /**
+     * @param c the character
+     * @return the image of the character
+     */
+    public char apply(char c) {
+        return c < table.length ? table[c] : c;
+    }
+
+    /**
+     * Transforms {@code length} characters of {@code in} into {@code out}; the ranges may be the same.
+     *
+     * @param in        the source characters
+     * @param inOffset  the first source character
+     * @param out       the destination
+     * @param outOffset the first destination position
+     * @param length    the number of characters
+     */
+    public void apply(char[] in, int inOffset, char[] out, int outOffset, int length) {
+        char[] table = this.table;
+        int limit = table.length;
+        for (int i = 0; i < length; i++) {
+            char c = in[inOffset + i];
+            out[outOffset + i] = c < limit ? table[c] : c;
+        }
+    }
+
+    /**
+     * @param in the source characters
+     * @return a new array with the transformed characters
+     */
+    public char[] apply(char[] in) {
+        char[] out = new char[in.length];
+        apply(in, 0, out, 0, in.length);
+        return out;
+    }
+
+    /**
+     * @param text the source text
+     * @return the transformed text
+     */
+    public String apply(String text) {
+        char[] chars = text.toCharArray();
+        apply(chars, 0, chars, 0, chars.length);
+        return new String(chars);
+    }
+
+    /**
+     * Transforms a character stream of any length one buffer at a time.
+     *
+     * @param in  the source, read until its end (not closed)
+     * @param out the destination (not closed or flushed)
+     * @return the number of characters transformed
+     * @throws IOException if the source cannot be read or the destination written
+     */
+    public long apply(Reader in, Writer out) throws IOException {
+        char[] buffer = new char[BUFFER_SIZE];
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            apply(buffer, 0, buffer, 0, read);
+            out.write(buffer, 0, read);
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Composes two transforms into one table: the result applies this transform, then {@code next}.
+     *
+     * @param next the transform applied second
+     * @return the composed transform
+     */
+    public MonoalphabeticTransform andThen(MonoalphabeticTransform next) {
+        char[] composed = identity(Math.max(table.length, next.table.length));
+        for (int c = 0; c < composed.length; c++) {
+            composed[c] = next.apply(apply((char) c));
+        }
+        return new MonoalphabeticTransform(trim(composed));
+    }
+
+    /**
+     * Returns the inverse transform, for mappings that are one-to-one.
+     *
+     * @return the transform that undoes this one
+     * @throws IllegalStateException if two characters have the same image
+     */
+    public MonoalphabeticTransform inverse() {
+        int max = table.length - 1;
+        for (char image : table) {
+            max = Math.max(max, image);
+        }
+        char[] inverse = identity(max + 1);
+        boolean[] assigned = new boolean[max + 1];
+        for (int c = 0; c < table.length; c++) {
+            char image = table[c];
+            if (assigned[image]) {
+                throw new IllegalStateException("Transform is not invertible: two characters map to " + image);
+            }
+            assigned[image] = true;
+            inverse[image] = (char) c;
+        }
+        // Characters above the table map to themselves, so their images must not be taken by the table
+        for (int c = table.length; c <= max; c++) {
+            if (assigned[c]) {
+                throw new IllegalStateException("Transform is not invertible: two characters map to " + (char) c);
+            }
+        }
+        return new MonoalphabeticTransform(trim(inverse));
+    }
+
+    private static char[] identity(int length) {
+        char[] table = new char[length];
+        for (int c = 0; c < length; c++) {
+            table[c] = (char) c;
+        }
+        return table;
+    }
+
+    /**
+     * Drops the identity entries at the end of the table.
+     */
+    private static char[] trim(char[] table) {
+        int length = table.length;
+        while (length > 0 && table[length - 1] == length - 1) {
+            length--;
+        }
+        return length == table.length ? table : Arrays.copyOf(table, length);
+    }
+}
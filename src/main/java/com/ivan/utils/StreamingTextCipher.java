@@ -0,0 +1,176 @@
+package com.ivan.utils;
+
+import lombok.experimental.UtilityClass;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+@UtilityClass
+public class StreamingTextCipher {
+
+    // Size of the byte and char buffers; memory use does not depend on the file size
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Applies a character transform to a UTF-8 text file without loading it into the heap.
+     *
+     * @param input     the file to encrypt or decrypt
+     * @param output    the file to write (created or truncated)
+     * @param transform the per-character transform
+     * @return the number of input bytes processed
+     * @throws IOException if a file cannot be read or written
+     */
+    public static long transform(Path input, Path output, MonoalphabeticTransform transform) throws IOException {
+        return transform(input, output, StandardCharsets.UTF_8, transform);
+    }
+
+    /**
+     * Applies a character transform to a text file in the given charset.
+     *
+     * @param input     the file to encrypt or decrypt
+     * @param output    the file to write (created or truncated)
+     * @param charset   the charset of both files
+     * @param transform the per-character transform
+     * @return the number of input bytes processed
+     * @throws IOException if a file cannot be read or written
+     */
+    public static long transform(Path input, Path output, Charset charset, MonoalphabeticTransform transform)
+            throws IOException {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            return transform(in, out, charset, transform);
+        }
+    }
+
+    /**
+     * Applies a character transform to the rest of a byte stream; the streams are not closed.
+     *
+     * @param in        the source, read until its end
+     * @param out       the destination
+     * @param charset   the charset of both streams
+     * @param transform the per-character transform
+     * @return the number of input bytes processed
+     * @throws IOException if the source cannot be read or the destination written
+     */
+    public static long transform(InputStream in, OutputStream out, Charset charset, MonoalphabeticTransform transform)
+            throws IOException {
+        long processed = transform(Channels.newChannel(in), Channels.newChannel(out), charset, transform);
+        out.flush();
+        return processed;
+    }
+
+    /**
+     * Decodes the input in bounded buffers, transforms the characters and encodes them back.
+     * Text is neither split into lines nor trimmed, so line endings, a byte order mark and every character
+     * the transform leaves unchanged are written back as the same bytes. Byte sequences that are not valid
+     * in the charset are copied to the output as they are.
+     *
+     * @param in        the source, read until its end
+     * @param out       the destination
+     * @param charset   the charset of both channels
+     * @param transform the per-character transform
+     * @return the number of input bytes processed
+     * @throws IOException if the source cannot be read, the destination written, or a transformed
+     *                     character cannot be encoded in the charset
+     */
+    public static long transform(ReadableByteChannel in, WritableByteChannel out, Charset charset,
+                                  MonoalphabeticTransform transform) throws IOException {
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        CharsetEncoder encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        ByteBuffer source = ByteBuffer.allocate(BUFFER_SIZE);
+        CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        ByteBuffer target = ByteBuffer.allocate(BUFFER_SIZE * (int) Math.ceil(encoder.maxBytesPerChar()));
+        long processed = 0;
+        boolean endOfInput = false;
+
+        while (!endOfInput) {
+            int read = in.read(source);
+            if (read < 0) {
+                endOfInput = true;
+            } else {
+                processed += read;
+            }
+            source.flip();
+            while (true) {
+                int decodedFrom = chars.position();
+                CoderResult result = decoder.decode(source, chars, endOfInput);
+                transform.apply(chars.array(), decodedFrom, chars.array(), decodedFrom, chars.position() - decodedFrom);
+                if (result.isError()) {
+                    // Invalid input bytes: write the text before them, then the bytes themselves
+                    encode(encoder, chars, target, out, false);
+                    ByteBuffer raw = source.slice();
+                    raw.limit(result.length());
+                    source.position(source.position() + result.length());
+                    writeFully(out, raw);
+                    continue;
+                }
+                encode(encoder, chars, target, out, false);
+                if (result.isUnderflow()) {
+                    break;
+                }
+            }
+            source.compact();
+        }
+
+        int decodedFrom = chars.position();
+        decoder.flush(chars);
+        transform.apply(chars.array(), decodedFrom, chars.array(), decodedFrom, chars.position() - decodedFrom);
+        encode(encoder, chars, target, out, true);
+        CoderResult result;
+        do {
+            result = encoder.flush(target);
+            drain(target, out);
+        } while (result.isOverflow());
+        return processed;
+    }
+
+    /**
+     * Encodes the pending characters into the output; a high surrogate at the end of the buffer
+     * waits for its pair unless the input has ended.
+     */
+    private static void encode(CharsetEncoder encoder, CharBuffer chars, ByteBuffer target, WritableByteChannel out,
+                               boolean endOfInput) throws IOException {
+        chars.flip();
+        CoderResult result;
+        do {
+            result = encoder.encode(chars, target, endOfInput);
+            if (result.isError()) {
+                result.throwException();
+            }
+            drain(target, out);
+        } while (result.isOverflow());
+        chars.compact();
+    }
+
+    private static void drain(ByteBuffer target, WritableByteChannel out) throws IOException {
+        target.flip();
+        writeFully(out, target);
+        target.clear();
+    }
+
+    private static void writeFully(WritableByteChannel out, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+    }
+}